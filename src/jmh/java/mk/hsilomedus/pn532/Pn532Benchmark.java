@@ -0,0 +1,105 @@
+package mk.hsilomedus.pn532;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pi4j.io.i2c.I2C;
+
+/**
+ * Baseline for the frame codec and connection round-trip, driven through {@link Pn532LoopbackConnection}.
+ * Run with {@code mvn -P benchmark compile exec:exec} (the gc profiler is enabled by default),
+ * or pass {@code -Djmh.args=<regex>} to select benchmarks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Pn532Benchmark {
+
+	private static final byte COMMAND_IN_LIST_PASSIVE_TARGET = 0x4A;
+
+	@State(Scope.Thread)
+	public static class ConnectionState {
+
+		// Normal frames carry at most 253 payload bytes, 255 and 263 (Pn532Connection.MAX_RESPONSE_LENGTH) need extended frames
+		@Param({ "0", "4", "64", "253", "255", "263" })
+		public int payloadSize;
+
+		Pn532LoopbackConnection connection;
+		byte[] header;
+		byte[] body;
+		byte[] buffer;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			connection = new Pn532LoopbackConnection();
+			connection.setResponse(new byte[payloadSize]);
+
+			header = new byte[] { COMMAND_IN_LIST_PASSIVE_TARGET };
+			body = new byte[] { 1, 0 };
+			buffer = new byte[payloadSize];
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ReaderState {
+
+		Pn532<I2C> pn532;
+		byte[] uid;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			var connection = new Pn532LoopbackConnection();
+			// Tags found, tag number, SENS_RES x2, SEL_RES, NFCID length, NFCID
+			connection.setResponse(new byte[] { 1, 1, 0x00, 0x04, 0x08, 4, 0x12, 0x34, 0x56, 0x78 });
+
+			pn532 = new Pn532<>(connection);
+			uid = new byte[10];
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			pn532.close();
+		}
+	}
+
+	/**
+	 * Frame encode, write, and ACK validation.
+	 */
+	@Benchmark
+	public Pn532TransferResult writeCommand(ConnectionState state) throws InterruptedException, IOException {
+		return state.connection.writeCommand(state.header, state.body);
+	}
+
+	@Benchmark
+	public Pn532TransferResult readAckFrame(ConnectionState state) throws InterruptedException, IOException {
+		state.connection.queueAck();
+		return state.connection.readAckFrame();
+	}
+
+	@Benchmark
+	public int readResponse(ConnectionState state) throws InterruptedException, IOException {
+		state.connection.queueResponse(COMMAND_IN_LIST_PASSIVE_TARGET);
+		return state.connection.readResponse(state.buffer, state.payloadSize);
+	}
+
+	@Benchmark
+	public int readPassiveTargetId(ReaderState state) throws InterruptedException, IOException {
+		return state.pn532.readPassiveTargetId(state.uid);
+	}
+}
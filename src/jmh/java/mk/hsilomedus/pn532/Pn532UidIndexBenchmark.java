@@ -0,0 +1,86 @@
+package mk.hsilomedus.pn532;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+/**
+ * UID to decision lookups with {@link Pn532UidIndex} against the hex string {@code HashMap} it replaces. Half the lookups
+ * are for enrolled UIDs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class Pn532UidIndexBenchmark {
+
+	private static final int LOOKUPS = 1024; // Power of 2
+
+	@State(Scope.Benchmark)
+	public static class IndexState {
+
+		@Param({ "2000000" })
+		public int size;
+
+		Pn532UidIndex index;
+		HashMap<String, Integer> map;
+		byte[][] uids;
+		int next = 0;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			var random = new Random(42);
+			var builder = new Pn532UidIndex.Builder(size);
+			map = new HashMap<>(size * 2);
+			uids = new byte[LOOKUPS][];
+
+			var uid = new byte[7];
+			for (int i = 0; i < size; i++) {
+				random.nextBytes(uid);
+				builder.put(uid, 0, uid.length, 1);
+				map.put(Pn532SamThreadListener.getUidString(uid), 1);
+				if (i < LOOKUPS / 2) {
+					uids[i * 2] = uid.clone();
+				}
+			}
+			for (int i = 1; i < LOOKUPS; i += 2) {
+				uids[i] = new byte[7];
+				random.nextBytes(uids[i]);
+			}
+
+			index = new Pn532UidIndex();
+			index.replace(builder);
+		}
+
+		byte[] nextUid() {
+			return uids[next++ & (LOOKUPS - 1)];
+		}
+	}
+
+	@Benchmark
+	public int index(IndexState state) {
+		var uid = state.nextUid();
+		return state.index.get(uid, 0, uid.length);
+	}
+
+	@Benchmark
+	public Integer hashMap(IndexState state) {
+		return state.map.get(Pn532SamThreadListener.getUidString(state.nextUid()));
+	}
+}
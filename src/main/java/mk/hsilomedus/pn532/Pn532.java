@@ -1,20 +1,54 @@
 package mk.hsilomedus.pn532;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import com.pi4j.io.IO;
 
 public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 
+	public static final int AUTO_POLL_ENDLESS = 0xFF;
+	public static final int AUTO_POLL_PERIOD_MS = 150;
+	public static final int AUTO_POLL_MAX_TYPES = 15;
+	/** How long {@link #autoPoll} waits with {@link Pn532#AUTO_POLL_ENDLESS} before aborting and reporting nothing found. */
+	public static final int AUTO_POLL_ENDLESS_TIMEOUT = 1000;
+	public static final int RETRIES_FOREVER = 0xFF;
+
+	// PowerDown wake-up sources, can be combined
+	public static final int WAKEUP_INT0 = 0x01;
+	public static final int WAKEUP_INT1 = 0x02;
+	public static final int WAKEUP_RF_LEVEL = 0x08;
+	public static final int WAKEUP_HSU = 0x10;
+	public static final int WAKEUP_SPI = 0x20;
+	public static final int WAKEUP_GPIO = 0x40;
+	public static final int WAKEUP_I2C = 0x80;
+
 	private static final byte COMMAND_GET_FW_VERSION = 0x02;
 	private static final byte COMMAND_SAM_CONFIG = 0x14;
+	private static final byte COMMAND_POWER_DOWN = 0x16;
+	private static final byte COMMAND_RF_CONFIGURATION = 0x32;
+	private static final byte COMMAND_IN_DATA_EXCHANGE = 0x40;
+	private static final byte COMMAND_IN_COMMUNICATE_THRU = 0x42;
 	private static final byte COMMAND_IN_LIST_PASSIVE_TARGET = 0x4A;
+	private static final byte COMMAND_IN_AUTO_POLL = 0x60;
 	
+	private static final byte RF_CONFIG_FIELD = 0x01;
+	private static final byte RF_CONFIG_TIMINGS = 0x02;
+	private static final byte RF_CONFIG_MAX_RETRY_COM = 0x04;
+	private static final byte RF_CONFIG_MAX_RETRIES = 0x05;
+
 	private static final byte MIFARE_ISO14443A_BAUD_RATE = 0x00;
+	private static final int MAX_PASSIVE_TARGETS = 2; // The most the PN532 can handle at once
 
 	private final Pn532Connection<T> connection;
-	private final byte[] buffer = new byte[64];
+	private final byte[] buffer = new byte[Pn532Connection.MAX_RESPONSE_LENGTH];
+	private final byte[] command = new byte[Pn532Connection.MAX_COMMAND_LENGTH]; // Reused for every command
+	private final List<Pn532Target> inventoryTargets = new ArrayList<>(MAX_PASSIVE_TARGETS);
+
+	private int lastStatus = 0;
 
 	public int getAckTimeout() {
 		return connection.getAckTimeout();
@@ -36,6 +70,18 @@ public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 		return connection.getDisplayName();
 	}
 
+	public Pn532Metrics getMetrics() {
+		return connection.getMetrics();
+	}
+
+	/**
+	 * @return the error code (status & 0x3F) of the last command that returned {@link Pn532TransferResult#STATUS_ERROR},
+	 *     for example 0x01 for a target timeout or 0x14 for a MIFARE authentication error.
+	 */
+	public int getLastStatus() {
+		return lastStatus;
+	}
+
 	public Pn532(Pn532Connection<T> connection) {
 		if (connection == null) {
 			throw new IllegalArgumentException("PN532 constructed with null connection.");
@@ -57,10 +103,9 @@ public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 	public long getFirmwareVersion() throws InterruptedException, IOException {
 		log("getFirmwareVersion()");
 
-		var command = new byte[1];
 		command[0] = COMMAND_GET_FW_VERSION;
 
-		Pn532TransferResult writeStatus = connection.writeCommand(command);
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, 1);
 		if (writeStatus != Pn532TransferResult.OK) {
 			log("getFirmwareVersion() writeCommand returned " + writeStatus);
 			return writeStatus.getValue();
@@ -95,13 +140,12 @@ public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 	public boolean samConfig() throws InterruptedException, IOException {
 		log("samConfig()");
 
-		var command = new byte[4];
 		command[0] = COMMAND_SAM_CONFIG;
 		command[1] = 0x01; // Normal mode
 		command[2] = 0x14; // Timeout (50ms * 20 = 1s)
 		command[3] = 0x01; // Use IRQ pin
 
-		Pn532TransferResult writeStatus = connection.writeCommand(command);
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, 4);
 		if (writeStatus != Pn532TransferResult.OK) {
 			log("samConfig() writeCommand returned " + writeStatus);
 			return false;
@@ -117,15 +161,167 @@ public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Puts the PN532 into power down mode with PowerDown. Host interface traffic wakes it up if the interface is in
+	 * {@code wakeUpSources}; {@link #wakeupFromPowerDown()} sends what each connection needs. {@link Pn532#WAKEUP_RF_LEVEL}
+	 * wakes it when an external field appears (a phone or another reader, not a passive card), and the IRQ pin goes low when
+	 * it does if {@code generateIrq} is set, see {@link #waitForWakeup(int)}.
+	 *
+	 * @param wakeUpSources a combination of the WAKEUP_ constants. The connection's host interface is always added.
+	 * @return true if the PN532 went into power down, false otherwise (see {@link #getLastStatus()} for a status error).
+	 */
+	public boolean powerDown(int wakeUpSources, boolean generateIrq) throws InterruptedException, IOException {
+		log("powerDown()");
+
+		if (wakeUpSources < 0 || wakeUpSources > 0xFF) {
+			throw new IllegalArgumentException(prefixMessage("powerDown() called with wakeUpSources outside of 0 to 255."));
+		}
+
+		command[0] = COMMAND_POWER_DOWN;
+		command[1] = (byte) ((wakeUpSources | connection.getPowerDownWakeUpSource()) & ~0x04); // Bit 2 is RFU
+		command[2] = (byte) (generateIrq ? 0x01 : 0x00);
+
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, 3);
+		if (writeStatus != Pn532TransferResult.OK) {
+			log("powerDown() writeCommand returned " + writeStatus);
+			return false;
+		}
+
+		int responseStatus = connection.readResponse(buffer, 1);
+		if (responseStatus < 0) {
+			log("powerDown() readResponse returned " + Pn532TransferResult.fromValue(responseStatus));
+			return false;
+		} else if (responseStatus < 1 || (buffer[0] & 0x3F) != 0) {
+			lastStatus = responseStatus < 1 ? 0 : buffer[0] & 0x3F;
+			log("powerDown() returned status " + String.format("%02X", lastStatus));
+			return false;
+		}
+
+		log("powerDown() successful.");
+		return true;
+	}
+
+	/**
+	 * Waits up to {@code timeout} milliseconds for the PN532 to pull its IRQ pin low after {@link #powerDown(int, boolean)}
+	 * with {@code generateIrq} set. Without an IRQ pin this just sleeps, so the host does nothing until the timeout.
+	 *
+	 * @return true if the PN532 signalled that it woke up, false if the timeout was reached.
+	 */
+	public boolean waitForWakeup(int timeout) throws InterruptedException {
+		if (!connection.hasIrq()) {
+			Thread.sleep(timeout);
+			return false;
+		}
+
+		return connection.waitForIrq(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+	}
+
+	/**
+	 * Brings the PN532 out of power down through the host interface, so it answers the next command.
+	 */
+	public void wakeupFromPowerDown() throws InterruptedException, IOException {
+		connection.wakeupFromPowerDown();
+	}
+
+	/**
+	 * Turns the RF field on or off with RFConfiguration. The PN532 turns it back on by itself for the next command that needs it.
+	 *
+	 * @param autoRfca whether to check for an external field before switching it on (RF collision avoidance).
+	 */
+	public boolean setRfField(boolean on, boolean autoRfca) throws InterruptedException, IOException {
+		command[2] = (byte) ((on ? 0x01 : 0x00) | (autoRfca ? 0x02 : 0x00));
+		return rfConfiguration("setRfField()", RF_CONFIG_FIELD, 1);
+	}
+
+	/**
+	 * Sets the timeouts of RFConfiguration's various timings item. Both are codes where 0 means no timeout and {@code n}
+	 * (1 to 16) means 100µs * 2^(n - 1), so 0x0B (102.4ms) and 0x0A (51.2ms) are the defaults.
+	 *
+	 * @param atrResTimeout how long to wait for ATR_RES (DEP targets).
+	 * @param retryTimeout how long each try of an InCommunicateThru or passive activation waits for the target.
+	 */
+	public boolean setTimings(int atrResTimeout, int retryTimeout) throws InterruptedException, IOException {
+		if (atrResTimeout < 0 || atrResTimeout > 0x10 || retryTimeout < 0 || retryTimeout > 0x10) {
+			throw new IllegalArgumentException(prefixMessage("setTimings() called with a timeout code outside of 0 to 16."));
+		}
+
+		command[2] = 0x00; // RFU
+		command[3] = (byte) atrResTimeout;
+		command[4] = (byte) retryTimeout;
+		return rfConfiguration("setTimings()", RF_CONFIG_TIMINGS, 3);
+	}
+
+	/**
+	 * Sets how many times InDataExchange and InCommunicateThru retry when the target doesn't answer. Defaults to 0.
+	 */
+	public boolean setMaxRetryCom(int retries) throws InterruptedException, IOException {
+		checkRetries("setMaxRetryCom()", retries);
+
+		command[2] = (byte) retries;
+		return rfConfiguration("setMaxRetryCom()", RF_CONFIG_MAX_RETRY_COM, 1);
+	}
+
+	/**
+	 * Sets the activation retry counts. The PN532 defaults {@code passiveActivation} to {@link Pn532#RETRIES_FOREVER}, which
+	 * makes InListPassiveTarget wait for a card until the host gives up; a small value makes it answer "no target" within
+	 * milliseconds instead.
+	 *
+	 * @param atr retries of ATR_REQ (DEP targets), default {@link Pn532#RETRIES_FOREVER}.
+	 * @param psl retries of PSL_REQ and QUERY_REQ, default 1.
+	 * @param passiveActivation retries of passive activation (InListPassiveTarget), {@link Pn532#RETRIES_FOREVER} for forever.
+	 */
+	public boolean setMaxRetries(int atr, int psl, int passiveActivation) throws InterruptedException, IOException {
+		checkRetries("setMaxRetries()", atr);
+		checkRetries("setMaxRetries()", psl);
+		checkRetries("setMaxRetries()", passiveActivation);
+
+		command[2] = (byte) atr;
+		command[3] = (byte) psl;
+		command[4] = (byte) passiveActivation;
+		return rfConfiguration("setMaxRetries()", RF_CONFIG_MAX_RETRIES, 3);
+	}
+
+	// command[2] to command[2 + length - 1] must already be set
+	private boolean rfConfiguration(String method, byte item, int length) throws InterruptedException, IOException {
+		log(method);
+
+		command[0] = COMMAND_RF_CONFIGURATION;
+		command[1] = item;
+
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, 2 + length);
+		if (writeStatus != Pn532TransferResult.OK) {
+			log(method + " writeCommand returned " + writeStatus);
+			return false;
+		}
+
+		int responseStatus = connection.readResponse(buffer, 0);
+		if (responseStatus < 0) {
+			log(method + " readResponse returned " + Pn532TransferResult.fromValue(responseStatus));
+			return false;
+		} else {
+			log(method + " successful.");
+			return true;
+		}
+	}
+
+	private void checkRetries(String method, int retries) {
+		if (retries < 0 || retries > RETRIES_FOREVER) {
+			throw new IllegalArgumentException(prefixMessage(method + " called with retries outside of 0 to 255."));
+		}
+	}
+
+	/**
+	 * @return the length of the UID if a card was found, 0 if none was found before the passive activation retries ran out
+	 *     (see {@link #setMaxRetries(int, int, int)}), or a {@link Pn532TransferResult} value otherwise.
+	 */
 	public int readPassiveTargetId(byte[] result) throws InterruptedException, IOException {
 		log("readPassiveTargetId()");
 
-		var command = new byte[3];
 		command[0] = COMMAND_IN_LIST_PASSIVE_TARGET;
-		command[1] = 1; // Max 1 cards at once (we can set this to 2 later) - comment from C++ code
+		command[1] = 1; // Max 1 cards at once, readPassiveTargets() handles 2
 		command[2] = MIFARE_ISO14443A_BAUD_RATE;
 
-		Pn532TransferResult writeStatus = connection.writeCommand(command);
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, 3);
 		if (writeStatus != Pn532TransferResult.OK) {
 			log("readPassiveTargetId() writeCommand returned " + writeStatus);
 			return writeStatus.getValue();
@@ -151,7 +347,10 @@ public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 		 * b6..    NFCIDLen NFCID
 		 */
 
-		if (buffer[0] != 1) {
+		if (buffer[0] == 0) {
+			log("readPassiveTargetId() found no tags.");
+			return 0;
+		} else if (buffer[0] != 1) {
 			log("readPassiveTargetId() failed with " + buffer[0] + " tags found.");
 			return Pn532TransferResult.UNDEFINED.getValue();
 		}
@@ -167,10 +366,274 @@ public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 			result[i] = buffer[6 + i];
 		}
 
-		log("readPassiveTargetId() returned %s", () -> Pn532Utility.getByteHexString(result, 0, uidLength));
+		if (Pn532Utility.isLogEnabled()) {
+			log("readPassiveTargetId() returned %s", () -> Pn532Utility.getByteHexString(result, 0, uidLength));
+		}
 		return uidLength;
 	}
 
+	/**
+	 * Lists up to 2 ISO14443A targets at once, so two cards in the field are both returned in a single round trip.
+	 *
+	 * @param targets cleared, then filled with the targets found.
+	 * @return the number of targets found if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int readPassiveTargets(List<Pn532Target> targets) throws InterruptedException, IOException {
+		log("readPassiveTargets()");
+
+		if (targets == null) {
+			throw new IllegalArgumentException(prefixMessage("readPassiveTargets() called with null targets."));
+		}
+
+		targets.clear();
+
+		command[0] = COMMAND_IN_LIST_PASSIVE_TARGET;
+		command[1] = MAX_PASSIVE_TARGETS;
+		command[2] = MIFARE_ISO14443A_BAUD_RATE;
+
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, 3);
+		if (writeStatus != Pn532TransferResult.OK) {
+			log("readPassiveTargets() writeCommand returned " + writeStatus);
+			return writeStatus.getValue();
+		}
+
+		int responseStatus = connection.readResponse(buffer, 0, buffer.length, getReadTimeout());
+		if (responseStatus < 0) {
+			log("readPassiveTargets() readResponse returned " + Pn532TransferResult.fromValue(responseStatus));
+			return responseStatus;
+		} else if (responseStatus < 1) {
+			log("readPassiveTargets() received an empty response.");
+			return Pn532TransferResult.INVALID_FRAME.getValue();
+		}
+
+		/*
+		 * Each target follows Tags Found (b0) in the format described in readPassiveTargetId(), with the ATS (starting with its
+		 * own length byte) appended when SEL_RES says the target is ISO14443-4 compliant.
+		 */
+
+		int found = buffer[0];
+		int i = 1;
+		for (int j = 0; j < found; j++) {
+			if (i + 5 > responseStatus) {
+				log("readPassiveTargets() response ended before target " + (j + 1) + " of " + found + ".");
+				return Pn532TransferResult.INVALID_FRAME.getValue();
+			}
+
+			int length = 5 + (buffer[i + 4] & 0xFF);
+			if ((buffer[i + 3] & 0x20) != 0 && i + length < responseStatus) {
+				length += buffer[i + length] & 0xFF;
+			}
+
+			if (i + length > responseStatus) {
+				log("readPassiveTargets() target " + (j + 1) + " runs past the end of the response.");
+				return Pn532TransferResult.INVALID_FRAME.getValue();
+			}
+
+			targets.add(Pn532Target.parse(Pn532Target.TYPE_GENERIC_106, buffer, i, length));
+			i += length;
+		}
+
+		if (Pn532Utility.isLogEnabled()) {
+			log("readPassiveTargets() returned %s", targets::toString);
+		}
+		return found;
+	}
+
+	/**
+	 * Calls {@link #readPassiveTargets(List)} and updates {@code inventory} with the result, so the caller gets the UIDs
+	 * currently in the field as well as which ones arrived and left since the previous call. {@code inventory} is left
+	 * unchanged if the read fails.
+	 *
+	 * @return the number of targets found if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int readInventory(Pn532Inventory inventory) throws InterruptedException, IOException {
+		if (inventory == null) {
+			throw new IllegalArgumentException(prefixMessage("readInventory() called with null inventory."));
+		}
+
+		int found = readPassiveTargets(inventoryTargets);
+		if (found >= 0) {
+			inventory.update(inventoryTargets);
+		}
+
+		return found;
+	}
+
+	/**
+	 * Sends InAutoPoll, which makes the PN532 cycle through {@code targetTypes} itself and only respond once something is found
+	 * or {@code pollCount} rounds have passed, so there's no host round trip per poll. Blocks until the response arrives.
+	 * With {@link Pn532#AUTO_POLL_ENDLESS} that's at most {@link Pn532#AUTO_POLL_ENDLESS_TIMEOUT}: if nothing was found by
+	 * then, the InAutoPoll is aborted and 0 is returned like after the last of a fixed number of rounds, so a caller that
+	 * wants to stop (or queue another command) never waits longer than that.
+	 *
+	 * @param pollCount the number of polling rounds (1 to 254), or {@link Pn532#AUTO_POLL_ENDLESS} to poll until a target is
+	 *     found or {@link Pn532#AUTO_POLL_ENDLESS_TIMEOUT} passes.
+	 * @param period the time spent polling each type, in units of {@link Pn532#AUTO_POLL_PERIOD_MS} (1 to 15).
+	 * @param targetTypes the types to poll for, see the TYPE_ constants in {@link Pn532Target}. Up to {@link Pn532#AUTO_POLL_MAX_TYPES}.
+	 * @param targets cleared, then filled with the targets found (up to 2).
+	 * @return the number of targets found if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int autoPoll(int pollCount, int period, byte[] targetTypes, List<Pn532Target> targets) throws InterruptedException, IOException {
+		log("autoPoll()");
+
+		if (pollCount < 1 || pollCount > AUTO_POLL_ENDLESS) {
+			throw new IllegalArgumentException(prefixMessage("autoPoll() called with pollCount outside of 1 to 255."));
+		} else if (period < 1 || period > 15) {
+			throw new IllegalArgumentException(prefixMessage("autoPoll() called with period outside of 1 to 15."));
+		} else if (targetTypes == null || targetTypes.length == 0 || targetTypes.length > AUTO_POLL_MAX_TYPES) {
+			throw new IllegalArgumentException(prefixMessage("autoPoll() called with 0 or more than " + AUTO_POLL_MAX_TYPES + " targetTypes."));
+		} else if (targets == null) {
+			throw new IllegalArgumentException(prefixMessage("autoPoll() called with null targets."));
+		}
+
+		targets.clear();
+
+		command[0] = COMMAND_IN_AUTO_POLL;
+		command[1] = (byte) pollCount;
+		command[2] = (byte) period;
+		System.arraycopy(targetTypes, 0, command, 3, targetTypes.length);
+
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, 3 + targetTypes.length);
+		if (writeStatus != Pn532TransferResult.OK) {
+			log("autoPoll() writeCommand returned " + writeStatus);
+			return writeStatus.getValue();
+		}
+
+		// The PN532 answers once the last round is done, so wait for that on top of the usual read timeout
+		boolean endless = pollCount == AUTO_POLL_ENDLESS;
+		int timeout = endless ? AUTO_POLL_ENDLESS_TIMEOUT : pollCount * targetTypes.length * period * AUTO_POLL_PERIOD_MS + getReadTimeout();
+		int responseStatus = connection.readResponse(buffer, 0, buffer.length, timeout);
+		if (endless && responseStatus == Pn532TransferResult.TIMEOUT.getValue()) {
+			// Still polling, so stop it or the PN532 would ignore the next command
+			Pn532TransferResult abortStatus = connection.abortCommand();
+			if (abortStatus != Pn532TransferResult.OK) {
+				log("autoPoll() abortCommand returned " + abortStatus);
+				return abortStatus.getValue();
+			}
+
+			log("autoPoll() found nothing within " + AUTO_POLL_ENDLESS_TIMEOUT + "ms.");
+			return 0;
+		} else if (responseStatus < 0) {
+			log("autoPoll() readResponse returned " + Pn532TransferResult.fromValue(responseStatus));
+			return responseStatus;
+		} else if (responseStatus < 1) {
+			log("autoPoll() received an empty response.");
+			return Pn532TransferResult.INVALID_FRAME.getValue();
+		}
+
+		/*
+		 * byte    Description
+		 * ------- ------------------------------------------
+		 * b0      Targets Found
+		 * b1      Type 1
+		 * b2      Target Data 1 Length
+		 * b3..    Target Data 1 (starts with Tg)
+		 * ...     Type 2, Target Data 2 Length, Target Data 2
+		 */
+
+		int found = buffer[0];
+		int i = 1;
+		for (int j = 0; j < found; j++) {
+			if (i + 2 > responseStatus) {
+				log("autoPoll() response ended before target " + (j + 1) + " of " + found + ".");
+				return Pn532TransferResult.INVALID_FRAME.getValue();
+			}
+
+			byte type = buffer[i++];
+			int length = buffer[i++] & 0xFF;
+			if (i + length > responseStatus) {
+				log("autoPoll() target data length of '" + length + "' runs past the end of the response.");
+				return Pn532TransferResult.INVALID_FRAME.getValue();
+			}
+
+			var target = Pn532Target.parse(type, buffer, i, length);
+			if (target == null) {
+				log("autoPoll() couldn't parse target data for type " + String.format("%02X", type) + ".");
+				return Pn532TransferResult.INVALID_FRAME.getValue();
+			}
+
+			targets.add(target);
+			i += length;
+		}
+
+		if (Pn532Utility.isLogEnabled()) {
+			log("autoPoll() returned %s", targets::toString);
+		}
+		return found;
+	}
+
+	/**
+	 * Sends {@code data} to an activated target with InDataExchange and copies the target's answer to {@code response}.
+	 * Up to {@link Pn532Connection#MAX_COMMAND_LENGTH} - 2 bytes go out in one frame; the connection switches to an
+	 * extended frame by itself when the data doesn't fit in a normal one.
+	 *
+	 * @param target the target number (Tg) from {@link #readPassiveTargets(List)}, usually 1.
+	 * @return the number of bytes the target answered with if successful, {@link Pn532TransferResult#STATUS_ERROR} if the PN532
+	 *     reported an error (see {@link #getLastStatus()}), or another {@link Pn532TransferResult} value otherwise.
+	 */
+	public int inDataExchange(int target, byte[] data, int dataOffset, int dataLength, byte[] response, int responseOffset, int maxLength)
+			throws InterruptedException, IOException {
+		log("inDataExchange()");
+
+		command[0] = COMMAND_IN_DATA_EXCHANGE;
+		command[1] = (byte) target;
+		return transceive("inDataExchange()", 2, data, dataOffset, dataLength, response, responseOffset, maxLength);
+	}
+
+	/**
+	 * Sends {@code data} as is to the activated target with InCommunicateThru (the PN532 only adds the CRC and handles
+	 * timing), for tag commands the PN532 doesn't know about, like the NTAG/Ultralight ones. See
+	 * {@link #inDataExchange(int, byte[], int, int, byte[], int, int)} for the rest.
+	 */
+	public int inCommunicateThru(byte[] data, int dataOffset, int dataLength, byte[] response, int responseOffset, int maxLength)
+			throws InterruptedException, IOException {
+		log("inCommunicateThru()");
+
+		command[0] = COMMAND_IN_COMMUNICATE_THRU;
+		return transceive("inCommunicateThru()", 1, data, dataOffset, dataLength, response, responseOffset, maxLength);
+	}
+
+	// command[0] to command[headerLength - 1] must already be set
+	private int transceive(String method, int headerLength, byte[] data, int dataOffset, int dataLength, byte[] response, int responseOffset,
+			int maxLength) throws InterruptedException, IOException {
+		if (data == null || dataOffset < 0 || dataLength < 0 || dataOffset + dataLength > data.length) {
+			throw new IllegalArgumentException(prefixMessage(method + " called with dataOffset and dataLength outside of data."));
+		} else if (dataLength > command.length - headerLength) {
+			throw new IllegalArgumentException(prefixMessage(method + " called with more than " + (command.length - headerLength) + " bytes of data."));
+		} else if (response == null || responseOffset < 0 || maxLength < 0 || responseOffset + maxLength > response.length) {
+			throw new IllegalArgumentException(prefixMessage(method + " called with responseOffset and maxLength outside of response."));
+		}
+
+		System.arraycopy(data, dataOffset, command, headerLength, dataLength);
+
+		Pn532TransferResult writeStatus = connection.writeCommand(command, 0, headerLength + dataLength);
+		if (writeStatus != Pn532TransferResult.OK) {
+			log(method + " writeCommand returned " + writeStatus);
+			return writeStatus.getValue();
+		}
+
+		int responseStatus = connection.readResponse(buffer, 0, Math.min(buffer.length, maxLength + 1), getReadTimeout());
+		if (responseStatus < 0) {
+			log(method + " readResponse returned " + Pn532TransferResult.fromValue(responseStatus));
+			return responseStatus;
+		} else if (responseStatus < 1) {
+			log(method + " received an empty response.");
+			return Pn532TransferResult.INVALID_FRAME.getValue();
+		}
+
+		int status = buffer[0] & 0x3F; // Bit 6 is MI (more information) and bit 7 is NAD, neither is an error
+		if (status != 0) {
+			lastStatus = status;
+			if (Pn532Utility.isLogEnabled()) {
+				log(method + " failed with status " + String.format("%02X", status) + ".");
+			}
+			return Pn532TransferResult.STATUS_ERROR.getValue();
+		}
+
+		System.arraycopy(buffer, 1, response, responseOffset, responseStatus - 1);
+		return responseStatus - 1;
+	}
+
 	@Override
 	public void close() {
 		connection.close();
@@ -180,7 +643,7 @@ public class Pn532<T extends IO<T, ?, ?>> implements AutoCloseable {
 		return connection.prefixMessage(message);
 	}
 
-	private void log(String message) {
+	void log(String message) {
 		connection.log(message);
 	}
 
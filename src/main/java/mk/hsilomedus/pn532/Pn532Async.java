@@ -0,0 +1,197 @@
+package mk.hsilomedus.pn532;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.pi4j.io.IO;
+
+import mk.hsilomedus.pn532.Pn532Utility.InterruptableIoRunnable;
+
+/**
+ * Wraps a {@link Pn532} so commands return {@link CompletableFuture}s instead of blocking. Commands are queued in order and
+ * run one at a time on a thread owned by this connection, so any number of application threads can issue commands to any
+ * number of readers and compose the results. Failures complete the future exceptionally, with a {@link Pn532TransferException}
+ * when the PN532 returned something other than {@link Pn532TransferResult#OK}, or the underlying IOException otherwise.
+ */
+public final class Pn532Async<T extends IO<T, ?, ?>> implements AutoCloseable {
+
+	private static final int CLOSE_TIMEOUT = 5000;
+	private static final int MAX_UID_LENGTH = 10;
+
+	private final Pn532<T> pn532;
+	private final ThreadPoolExecutor io;
+	private final byte[] uidBuffer = new byte[MAX_UID_LENGTH]; // Only touched on the I/O thread
+
+	public Pn532Async(Pn532Connection<T> connection) {
+		this.pn532 = new Pn532<>(connection);
+
+		String name = "pn532-io-" + connection.getDisplayName();
+		this.io = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			var thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public String getDisplayName() {
+		return pn532.getDisplayName();
+	}
+
+	/**
+	 * @return the number of commands waiting behind the one currently running.
+	 */
+	public int getQueueSize() {
+		return io.getQueue().size();
+	}
+
+	public CompletableFuture<Void> initialize() {
+		return submit(() -> {
+			pn532.initialize();
+			return null;
+		});
+	}
+
+	/**
+	 * @return the firmware version, see {@link Pn532#getFirmwareVersion()}.
+	 */
+	public CompletableFuture<Long> getFirmwareVersion() {
+		return submit(() -> {
+			long version = pn532.getFirmwareVersion();
+			if (version < 0) {
+				throw new Pn532TransferException(pn532.prefixMessage("getFirmwareVersion()"), Pn532TransferResult.fromValue((int) version));
+			}
+			return version;
+		});
+	}
+
+	public CompletableFuture<Void> samConfig() {
+		return submit(() -> {
+			if (!pn532.samConfig()) {
+				throw new Pn532TransferException(pn532.prefixMessage("samConfig()"), Pn532TransferResult.UNDEFINED);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * @return the UID of the card in the field. No card completes with an empty array once the passive activation retries
+	 *     run out (see {@link #setMaxRetries(int, int, int)}), or exceptionally with {@link Pn532TransferResult#TIMEOUT} if
+	 *     they're left at the default of retrying forever.
+	 */
+	public CompletableFuture<byte[]> readPassiveTargetId() {
+		return submit(() -> {
+			int length = pn532.readPassiveTargetId(uidBuffer);
+			check("readPassiveTargetId()", length);
+			return Arrays.copyOfRange(uidBuffer, 0, length);
+		});
+	}
+
+	/**
+	 * See {@link Pn532#setMaxRetries(int, int, int)}.
+	 */
+	public CompletableFuture<Void> setMaxRetries(int atr, int psl, int passiveActivation) {
+		return submit(() -> {
+			if (!pn532.setMaxRetries(atr, psl, passiveActivation)) {
+				throw new Pn532TransferException(pn532.prefixMessage("setMaxRetries()"), Pn532TransferResult.UNDEFINED);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * @return up to 2 targets, see {@link Pn532#readPassiveTargets(List)}.
+	 */
+	public CompletableFuture<List<Pn532Target>> readPassiveTargets() {
+		return submit(() -> {
+			var targets = new ArrayList<Pn532Target>(2);
+			check("readPassiveTargets()", pn532.readPassiveTargets(targets));
+			return targets;
+		});
+	}
+
+	/**
+	 * @return the targets found, see {@link Pn532#autoPoll(int, int, byte[], List)}. Commands queued behind this one wait
+	 *     until the PN532 responds, or up to {@link Pn532#AUTO_POLL_ENDLESS_TIMEOUT} with {@link Pn532#AUTO_POLL_ENDLESS}.
+	 */
+	public CompletableFuture<List<Pn532Target>> autoPoll(int pollCount, int period, byte... targetTypes) {
+		var types = targetTypes.clone();
+		return submit(() -> {
+			var targets = new ArrayList<Pn532Target>(2);
+			check("autoPoll()", pn532.autoPoll(pollCount, period, types, targets));
+			return targets;
+		});
+	}
+
+	/**
+	 * Lets queued commands finish (up to 5 seconds, after which they're interrupted and failed), then closes the connection.
+	 */
+	@Override
+	public void close() {
+		io.shutdown();
+		try {
+			if (!io.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				failAll();
+			}
+		} catch (InterruptedException e) {
+			failAll();
+			Thread.currentThread().interrupt();
+		}
+
+		pn532.close();
+	}
+
+	private void failAll() {
+		for (var runnable : io.shutdownNow()) {
+			((Command<?>) runnable).future.completeExceptionally(new IllegalStateException(pn532.prefixMessage("closed before the command ran.")));
+		}
+	}
+
+	private void check(String message, int result) throws Pn532TransferException {
+		if (result < 0) {
+			throw new Pn532TransferException(pn532.prefixMessage(message), Pn532TransferResult.fromValue(result));
+		}
+	}
+
+	private <R> CompletableFuture<R> submit(InterruptableIoRunnable<R> runnable) {
+		var command = new Command<>(runnable);
+		try {
+			io.execute(command);
+		} catch (RejectedExecutionException e) {
+			command.future.completeExceptionally(new IllegalStateException(pn532.prefixMessage("command submitted after close()."), e));
+		}
+
+		return command.future;
+	}
+
+	private static final class Command<R> implements Runnable {
+
+		private final InterruptableIoRunnable<R> runnable;
+		private final CompletableFuture<R> future = new CompletableFuture<>();
+
+		Command(InterruptableIoRunnable<R> runnable) {
+			this.runnable = runnable;
+		}
+
+		@Override
+		public void run() {
+			if (future.isDone()) { // Cancelled while queued
+				return;
+			}
+
+			try {
+				future.complete(runnable.run());
+			} catch (InterruptedException e) {
+				future.completeExceptionally(e);
+				Thread.currentThread().interrupt();
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -3,16 +3,32 @@ package mk.hsilomedus.pn532;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 import com.pi4j.context.Context;
 import com.pi4j.io.IO;
+import com.pi4j.io.gpio.digital.DigitalInput;
+import com.pi4j.io.gpio.digital.DigitalInputProvider;
+import com.pi4j.io.gpio.digital.DigitalState;
+import com.pi4j.io.gpio.digital.DigitalStateChangeListener;
+import com.pi4j.io.gpio.digital.PullResistance;
 
 // Don't know how to do this without the ?
 public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 
 	public static final int DEFAULT_ACK_TIMEOUT = 1000;
 	public static final int DEFAULT_READ_TIMEOUT = 1000;
+	public static final Pn532WaitStrategy DEFAULT_WAIT_STRATEGY = Pn532WaitStrategy.backoff(3, 100_000, 5_000_000);
+
+	public static final String PROVIDER_DI_PIGPIO = "pigpio-digital-input";
+	public static final String PROVIDER_DI_LINUXFS = "linuxfs-digital-input";
+
+	public static final String DEFAULT_PROVIDER_DI = PROVIDER_DI_PIGPIO;
+	public static final int NO_IRQ_PIN = -1;
 
 	private static final byte PREAMBLE = 0x00;
 	private static final byte START_CODE_1 = 0x00;
@@ -23,14 +39,48 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 	private static final byte PN532_TO_HOST = (byte) 0xD5;
 
 	private static final byte[] PN532_ACK = { 0x00, 0x00, (byte) 0xFF, 0x00, (byte) 0xFF, 0x00 };
+	private static final byte[] EMPTY = new byte[0];
+
+	/** Largest LEN of a normal frame ({@code 00 00 FF LEN LCS}), anything longer is sent as an extended frame. */
+	private static final int MAX_NORMAL_LENGTH = 255;
+	private static final int DEFAULT_EXPECTED_RESPONSE_LENGTH = 16; // Covers a target with a 10 byte UID
+	/** Largest LEN of an extended frame ({@code 00 00 FF FF FF LENm LENl LCS}). */
+	private static final int MAX_EXTENDED_LENGTH = 265;
+
+	/** Largest extended frame: LEN covers TFI plus up to 264 bytes of data, and there are 10 framing bytes around it. */
+	static final int MAX_FRAME_LENGTH = MAX_EXTENDED_LENGTH + 10;
+	/** Largest command (command code plus parameters), sent in an extended frame when it doesn't fit in a normal one. */
+	public static final int MAX_COMMAND_LENGTH = MAX_EXTENDED_LENGTH - 1;
+	/** Largest response payload (excluding TFI and response code). */
+	public static final int MAX_RESPONSE_LENGTH = MAX_EXTENDED_LENGTH - 2;
 
 	private int ackTimeout = DEFAULT_ACK_TIMEOUT;
 	private int readTimeout = DEFAULT_READ_TIMEOUT;
+	private Pn532WaitStrategy waitStrategy = DEFAULT_WAIT_STRATEGY;
 
 	protected final String provider;
 	protected final String id;
 	protected final String name;
 	private final String displaySuffix;
+	private final String providerDi;
+	private final int irqPin;
+
+	private Lock busLock = null;
+
+	private DigitalInput irqInput = null;
+	// Not a monitor, waiting in one would pin a virtual thread (see Pn532ReaderManager) to its carrier
+	private final ReentrantLock irqLock = new ReentrantLock();
+	private final Condition irqLow = irqLock.newCondition();
+	private final DigitalStateChangeListener irqListener = event -> {
+		if (event.state() == DigitalState.LOW) {
+			irqLock.lock();
+			try {
+				irqLow.signalAll();
+			} finally {
+				irqLock.unlock();
+			}
+		}
+	};
 
 	private String modelName = "PN5xx";
 	private String firmwareVersion = "";
@@ -39,6 +89,16 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 	protected T io; // WARNING: If you use this to read or write directly, SPI won't work correctly since it reverses the bytes
 	protected byte lastCommand = 0;
 
+	// Reused for every frame so a steady-state poll cycle doesn't allocate
+	private final ByteBuffer txBuffer = ByteBuffer.allocate(MAX_FRAME_LENGTH);
+	private final byte[] rxBuffer = new byte[MAX_FRAME_LENGTH];
+	private final ByteBuffer abortBuffer = ByteBuffer.wrap(PN532_ACK.clone());
+	// The longest response seen for each command, what expectFrame() is told to expect rather than the caller's buffer size
+	private final int[] responseLengths = new int[256];
+
+	private final Pn532Metrics metrics = new Pn532Metrics();
+	private volatile Pn532FrameTrace frameTrace = null;
+
 	public int getAckTimeout() {
 		return ackTimeout;
 	}
@@ -55,6 +115,41 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 		readTimeout = value;
 	}
 
+	public Pn532WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * Sets how read loops wait between readiness checks when no IRQ pin is configured. Defaults to
+	 * {@link Pn532Connection#DEFAULT_WAIT_STRATEGY}, use {@code Pn532WaitStrategy.fixed(10_000_000)} for the original 10ms sleeps.
+	 */
+	public void setWaitStrategy(Pn532WaitStrategy value) {
+		if (value == null) {
+			throw new IllegalArgumentException(prefixMessage("setWaitStrategy() called with null value."));
+		}
+
+		waitStrategy = value;
+	}
+
+	/**
+	 * @return the connection's latency and error metrics, also registered as a JMX MBean between {@link #begin()} and {@link #close()}.
+	 */
+	public Pn532Metrics getMetrics() {
+		return metrics;
+	}
+
+	public Pn532FrameTrace getFrameTrace() {
+		return frameTrace;
+	}
+
+	/**
+	 * Records every frame sent and received in {@code value}, or stops recording if null. Unlike logging, this keeps the
+	 * raw bytes in a preallocated buffer, so it's cheap enough to leave on.
+	 */
+	public void setFrameTrace(Pn532FrameTrace value) {
+		frameTrace = value;
+	}
+
 	public String getDisplayName() {
 		return modelName + (firmwareVersion.isEmpty() ? "" : "-" + firmwareVersion) + " " + displaySuffix;
 	}
@@ -68,10 +163,21 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 	}
 
 	protected Pn532Connection(String provider, String id, String name, String displaySuffix) {
+		this(provider, id, name, displaySuffix, DEFAULT_PROVIDER_DI, NO_IRQ_PIN);
+	}
+
+	/**
+	 * @param providerDi the digital input provider used for the IRQ pin. Options are {@link Pn532Connection#PROVIDER_DI_PIGPIO}
+	 *     or {@link Pn532Connection#PROVIDER_DI_LINUXFS}.
+	 * @param irqPin the GPIO connected to the PN532's IRQ (P70_IRQ) pin, or {@link Pn532Connection#NO_IRQ_PIN} to poll the device instead.
+	 */
+	protected Pn532Connection(String provider, String id, String name, String displaySuffix, String providerDi, int irqPin) {
 		this.provider = provider;
 		this.id = "pn5xx-" + id;
 		this.name = "PN5xx " + name;
 		this.displaySuffix = displaySuffix;
+		this.providerDi = providerDi;
+		this.irqPin = irqPin;
 	}
 
 	public void begin() throws IOException {
@@ -85,6 +191,21 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 			pi4j = Pn532ContextHelper.getContext();
 			Pn532Utility.wrapInitializationExceptions(() -> io = getInterface());
 
+			if (irqPin != NO_IRQ_PIN) {
+				Pn532Utility.wrapInitializationExceptions(() -> {
+					DigitalInputProvider diProvider = pi4j.provider(providerDi);
+					irqInput = diProvider.create(DigitalInput.newConfigBuilder(pi4j)
+							.id(id + "-irq")
+							.name(name + " IRQ")
+							.address(irqPin)
+							.pull(PullResistance.PULL_UP)
+							.build());
+					irqInput.addListener(irqListener);
+				});
+			}
+
+			metrics.register(id);
+
 			log("begin() successful.");
 		}
 	}
@@ -104,8 +225,28 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 		log("wakeup() successful.");
 	}
 
+	/**
+	 * Wakes the PN532 up after PowerDown. Defaults to the same sequence as {@link #wakeup()}.
+	 */
+	public void wakeupFromPowerDown() throws InterruptedException, IOException {
+		log("wakeupFromPowerDown()");
+
+		if (io == null) {
+			throw new IllegalStateException(prefixMessage("wakeupFromPowerDown() called without calling begin()."));
+		}
+
+		Pn532Utility.wrapIoExceptionInterruptable(() -> {
+			wakeupFromPowerDownInternal();
+			return null;
+		});
+
+		log("wakeupFromPowerDown() successful.");
+	}
+
 	public Pn532TransferResult writeCommand(byte[] header, byte[] body) throws InterruptedException, IOException {
-		log("writeCommand(header: %s, body: %s)", () -> Pn532Utility.getByteHexString(header), () -> Pn532Utility.getByteHexString(body));
+		if (Pn532Utility.isLogEnabled()) { // Checked here so the capturing lambdas aren't allocated when not logging
+			log("writeCommand(header: %s, body: %s)", () -> Pn532Utility.getByteHexString(header), () -> Pn532Utility.getByteHexString(body));
+		}
 
 		if (io == null) {
 			throw new IllegalStateException(prefixMessage("writeCommand() called without calling begin()."));
@@ -113,68 +254,176 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 			throw new IllegalArgumentException(prefixMessage("writeCommand() called with null header."));
 		} else if (body == null) {
 			throw new IllegalArgumentException(prefixMessage("writeCommand() called with null body."));
+		} else if (header.length == 0) {
+			throw new IllegalArgumentException(prefixMessage("writeCommand() called with empty header."));
 		}
 
-		return Pn532Utility.wrapIoExceptionInterruptable(() -> {
-			preWrite();
+		return writeFrame(header, 0, header.length, body, 0, body.length);
+	}
+
+	public Pn532TransferResult writeCommand(byte[] header) throws InterruptedException, IOException {
+		return writeCommand(header, EMPTY);
+	}
+
+	/**
+	 * Writes the command stored in {@code buffer[offset]} to {@code buffer[offset + length - 1]}, the first byte being the command code.
+	 * Unlike {@link #writeCommand(byte[], byte[])} the caller can reuse the same buffer for every command.
+	 */
+	public Pn532TransferResult writeCommand(byte[] buffer, int offset, int length) throws InterruptedException, IOException {
+		if (Pn532Utility.isLogEnabled()) {
+			log("writeCommand(%s)", () -> Pn532Utility.getByteHexString(buffer, offset, length));
+		}
+
+		if (io == null) {
+			throw new IllegalStateException(prefixMessage("writeCommand() called without calling begin()."));
+		} else if (buffer == null) {
+			throw new IllegalArgumentException(prefixMessage("writeCommand() called with null buffer."));
+		} else if (offset < 0 || length <= 0 || offset + length > buffer.length) {
+			throw new IllegalArgumentException(prefixMessage("writeCommand() called with offset and length outside of buffer."));
+		}
+
+		return writeFrame(buffer, offset, length, EMPTY, 0, 0);
+	}
+
+	/**
+	 * Sends an ACK frame, which makes the PN532 abort the command it's running, such as an InAutoPoll still waiting for a
+	 * target. The PN532 doesn't answer it, and is ready for the next command straight away.
+	 */
+	public Pn532TransferResult abortCommand() throws InterruptedException, IOException {
+		log("abortCommand()");
+
+		if (io == null) {
+			throw new IllegalStateException(prefixMessage("abortCommand() called without calling begin()."));
+		}
+
+		try {
+			var buffer = abortBuffer;
+			buffer.clear();
+			trace(true, buffer.array(), buffer.limit());
+
+			if (!lockBus(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeout))) {
+				log("abortCommand() timed out waiting for the bus.");
+				return Pn532TransferResult.TIMEOUT;
+			}
+			try {
+				preWrite();
+				ioWrite(buffer);
+				postWrite();
+			} finally {
+				unlockBus();
+			}
+			metrics.recordWrite(PN532_ACK.length);
+
+			log("abortCommand() successful.");
+			return Pn532TransferResult.OK;
+		} catch (com.pi4j.exception.Pi4JException e) {
+			metrics.recordIoError(lastCommand);
+			throw Pn532Utility.getCheckedIoException(e);
+		} catch (IOException e) {
+			metrics.recordIoError(lastCommand);
+			throw e;
+		}
+	}
+
+	private Pn532TransferResult writeFrame(byte[] header, int headerOffset, int headerLength, byte[] body, int bodyOffset, int bodyLength)
+			throws InterruptedException, IOException {
+		if (headerLength + bodyLength > MAX_COMMAND_LENGTH) {
+			throw new IllegalArgumentException(prefixMessage("writeCommand() called with more than " + MAX_COMMAND_LENGTH + " bytes."));
+		}
 
-			var buffer = ByteBuffer.allocate(header.length + body.length + 8);
+		// Not using Pn532Utility.wrapIoExceptionInterruptable() since the capturing lambda allocates on every command
+		long start = System.nanoTime();
+		try {
+			var buffer = txBuffer;
+			buffer.clear();
 
 			buffer.put(PREAMBLE);
 			buffer.put(START_CODE_1);
 			buffer.put(START_CODE_2);
 
-			byte length = (byte) (header.length + body.length + 1);
-			buffer.put(length);
-			buffer.put((byte) (~length + 1));
+			int length = headerLength + bodyLength + 1;
+			if (length <= MAX_NORMAL_LENGTH) {
+				buffer.put((byte) length);
+				buffer.put((byte) (~length + 1));
+			} else {
+				buffer.put((byte) 0xFF); // Extended frame marker
+				buffer.put((byte) 0xFF);
+				buffer.put((byte) (length >> 8));
+				buffer.put((byte) length);
+				buffer.put((byte) (~((length >> 8) + length) + 1));
+			}
 
 			buffer.put(HOST_TO_PN532);
-			buffer.put(header);
-			buffer.put(body);
+			buffer.put(header, headerOffset, headerLength);
+			buffer.put(body, bodyOffset, bodyLength);
 
 			byte sum = HOST_TO_PN532;
-			for (byte element : header) {
-				sum += element;
+			for (int i = headerOffset; i < headerOffset + headerLength; i++) {
+				sum += header[i];
 			}
-			for (byte element : body) {
-				sum += element;
+			for (int i = bodyOffset; i < bodyOffset + bodyLength; i++) {
+				sum += body[i];
 			}
 			buffer.put((byte) (~sum + 1));
 
 			buffer.put(POSTAMBLE);
+			buffer.flip();
 
-			log("writeCommand() sending %s", () -> Pn532Utility.getByteHexString(buffer.array()));
-			ioWrite(buffer);
-			lastCommand = header[0];
+			if (Pn532Utility.isLogEnabled()) {
+				log("writeCommand() sending %s", () -> Pn532Utility.getByteHexString(buffer.array(), 0, buffer.limit()));
+			}
+			trace(true, buffer.array(), buffer.limit());
 
-			postWrite();
+			if (!lockBus(start + TimeUnit.MILLISECONDS.toNanos(ackTimeout))) {
+				log("writeCommand() timed out waiting for the bus.");
+				metrics.recordAck(header[headerOffset], Pn532TransferResult.TIMEOUT, System.nanoTime() - start);
+				return Pn532TransferResult.TIMEOUT;
+			}
+			try {
+				preWrite();
+				ioWrite(buffer);
+				postWrite();
+			} finally {
+				unlockBus();
+			}
+			lastCommand = header[headerOffset];
+			metrics.recordWrite(buffer.limit());
 
 			log("writeCommand() calling readAckFrame()");
-			return readAckFrame();
-		});
-	}
-
-	public Pn532TransferResult writeCommand(byte[] header) throws InterruptedException, IOException {
-		return writeCommand(header, new byte[0]);
+			var result = readAckFrame();
+			metrics.recordAck(lastCommand, result, System.nanoTime() - start);
+			return result;
+		} catch (com.pi4j.exception.Pi4JException e) {
+			metrics.recordIoError(header[headerOffset]);
+			throw Pn532Utility.getCheckedIoException(e);
+		} catch (IOException e) {
+			metrics.recordIoError(header[headerOffset]);
+			throw e;
+		}
 	}
 
 	protected Pn532TransferResult readAckFrame() throws InterruptedException, IOException {
-		var buffer = new byte[PN532_ACK.length];
+		var buffer = rxBuffer;
 
-		long end = System.currentTimeMillis() + ackTimeout;
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeout);
+		expectFrame(PN532_ACK.length);
 		if (!preRead(end)) {
 			log("readAckFrame() pre-read timed out.");
 			return Pn532TransferResult.TIMEOUT;
 		}
 
-		if (!read(buffer, 0, buffer.length, end)) {
-			log("readAckFrame() read timed out.");
-			return Pn532TransferResult.TIMEOUT;
+		try {
+			if (!read(buffer, 0, PN532_ACK.length, end)) {
+				log("readAckFrame() read timed out.");
+				return Pn532TransferResult.TIMEOUT;
+			}
+		} finally {
+			postRead();
 		}
+		trace(false, buffer, PN532_ACK.length);
+		metrics.recordRead(PN532_ACK.length);
 
-		postRead();
-
-		if (!Arrays.equals(buffer, PN532_ACK)) {
+		if (!Arrays.equals(buffer, 0, PN532_ACK.length, PN532_ACK, 0, PN532_ACK.length)) {
 			log("readAckFrame() was invalid.");
 			return Pn532TransferResult.INVALID_ACK;
 		}
@@ -184,92 +433,154 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 	}
 
 	/**
+	 * Reads a response frame into the connection's own frame buffer and copies only the payload to
+	 * {@code buffer[offset]}, so no memory is allocated.
+	 *
 	 * @return the number of bytes read if successful, or a {@link Pn532TransferResult} value otherwise.
 	 */
-	public int readResponse(byte[] buffer, int maxLength, int timeout) throws InterruptedException, IOException {
-		log("readResponse(..., " + maxLength + ", " + timeout + ")");
+	public int readResponse(byte[] buffer, int offset, int maxLength, int timeout) throws InterruptedException, IOException {
+		if (Pn532Utility.isLogEnabled()) {
+			log("readResponse(..., " + offset + ", " + maxLength + ", " + timeout + ")");
+		}
 
 		if (io == null) {
 			throw new IllegalStateException(prefixMessage("readResponse() called without calling begin()."));
 		} else if (buffer == null) {
 			throw new IllegalArgumentException(prefixMessage("readResponse() called with null buffer."));
-		} else if (buffer.length < maxLength) {
-			throw new IllegalArgumentException(prefixMessage("readResponse() called with buffer.length less than maxLength."));
+		} else if (offset < 0 || maxLength < 0 || buffer.length - offset < maxLength) {
+			throw new IllegalArgumentException(prefixMessage("readResponse() called with buffer.length - offset less than maxLength."));
 		}
 
-		return Pn532Utility.wrapIoExceptionInterruptable(() -> {
-			var response = new byte[maxLength + 9];
+		// Not using Pn532Utility.wrapIoExceptionInterruptable() since the capturing lambda allocates on every response
+		long start = System.nanoTime();
+		try {
+			int result = readFrame(buffer, offset, maxLength, timeout);
+			metrics.recordResponse(lastCommand, result, System.nanoTime() - start);
+			return result;
+		} catch (com.pi4j.exception.Pi4JException e) {
+			metrics.recordIoError(lastCommand);
+			throw Pn532Utility.getCheckedIoException(e);
+		} catch (IOException e) {
+			metrics.recordIoError(lastCommand);
+			throw e;
+		}
+	}
 
-			long end = System.currentTimeMillis() + timeout;
-			if (!preRead(end)) {
-				log("readResponse() pre-read timed out.");
-				return Pn532TransferResult.TIMEOUT.getValue();
-			}
+	private int readFrame(byte[] buffer, int offset, int maxLength, int timeout) throws InterruptedException, IOException {
+		var response = rxBuffer;
+
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		// Header, PN532_TO_HOST and command, the data this command usually responds with, checksum and POSTAMBLE
+		int payloadLength = Math.min(maxLength, Math.max(responseLengths[lastCommand & 0xFF], DEFAULT_EXPECTED_RESPONSE_LENGTH)) + 2;
+		expectFrame(Math.min((payloadLength <= MAX_NORMAL_LENGTH ? 5 : 8) + payloadLength + 2, MAX_FRAME_LENGTH));
+		if (!preRead(end)) {
+			log("readResponse() pre-read timed out.");
+			return Pn532TransferResult.TIMEOUT.getValue();
+		}
 
+		int i = 0;
+		int length;
+		int received = 0;
+		try {
 			if (!read(response, 0, 5, end)) {
 				log("readResponse() first read timed out.");
 				return Pn532TransferResult.TIMEOUT.getValue();
 			}
+			received = 5;
 
-			int i = 0;
 			if (response[i++] != PREAMBLE || response[i++] != START_CODE_1 || response[i++] != START_CODE_2) {
 				log("readResponse() received bad starting bytes.");
 				return Pn532TransferResult.INVALID_FRAME.getValue();
 			}
 
-			byte length = response[i++];
-
-			byte lengthCheck = (byte) (length + response[i++]);
-			if (lengthCheck != 0) {
-				log("readResponse() received bad length checksum.");
-				return Pn532TransferResult.INVALID_FRAME.getValue();
+			length = response[i++] & 0xFF;
+
+			if (length == 0xFF && response[i] == (byte) 0xFF) { // Extended frame, LENm LENl LCS follow
+				preSubsequentRead();
+				if (!read(response, 5, 3, end)) {
+					log("readResponse() extended length read timed out.");
+					return Pn532TransferResult.TIMEOUT.getValue();
+				}
+				received = 8;
+
+				i = 5;
+				length = ((response[i] & 0xFF) << 8) | (response[i + 1] & 0xFF);
+				byte lengthCheck = (byte) (response[i] + response[i + 1] + response[i + 2]);
+				i += 3;
+				if (lengthCheck != 0 || length > MAX_EXTENDED_LENGTH) {
+					log("readResponse() received bad extended length checksum.");
+					return Pn532TransferResult.INVALID_FRAME.getValue();
+				}
+			} else {
+				byte lengthCheck = (byte) (length + response[i++]);
+				if (lengthCheck != 0) {
+					log("readResponse() received bad length checksum.");
+					return Pn532TransferResult.INVALID_FRAME.getValue();
+				}
 			}
 
 			length -= 2; // -2 for PN532_TO_HOST and command
-			if (length > maxLength) {
+			if (length < 0) {
+				log("readResponse() received length too short for a response.");
+				return Pn532TransferResult.INVALID_FRAME.getValue();
+			} else if (length > maxLength) {
 				log("readResponse() received length greater than maxLength.");
 				return Pn532TransferResult.INSUFFICIENT_SPACE.getValue();
 			}
+			responseLengths[lastCommand & 0xFF] = Math.max(responseLengths[lastCommand & 0xFF], length);
 
 			preSubsequentRead();
 
 			// +4 for checksum and POSTAMBLE and previous -2
-			if (!read(response, 5, length + 4, end)) {
+			if (!read(response, i, length + 4, end)) {
 				log("readResponse() second read timed out.");
 				return Pn532TransferResult.TIMEOUT.getValue();
 			}
+			received += length + 4;
+		} finally {
+			postRead(); // Also on failure, so SPI releases CS and the bus
+			trace(false, response, received);
+			metrics.recordRead(received);
+		}
 
-			postRead();
+		byte command = (byte) (lastCommand + 1);
+		if (response[i++] != PN532_TO_HOST || response[i++] != command) {
+			log("readResponse() received bad transfer direction or command.");
+			return Pn532TransferResult.INVALID_FRAME.getValue();
+		}
 
-			byte command = (byte) (lastCommand + 1);
-			if (response[i++] != PN532_TO_HOST || response[i++] != command) {
-				log("readResponse() received bad transfer direction or command.");
-				return Pn532TransferResult.INVALID_FRAME.getValue();
-			}
+		byte sum = PN532_TO_HOST;
+		sum += command;
 
-			byte sum = PN532_TO_HOST;
-			sum += command;
+		for (int j = i; j < i + length; j++) {
+			sum += response[j];
+		}
 
-			for (int j = 0; j < length; j++) {
-				buffer[j] = response[i++];
-				sum += buffer[j];
-			}
+		byte check = (byte) (sum + response[i + length]);
+		if (check != 0) {
+			log("readResponse() received bad checksum.");
+			return Pn532TransferResult.INVALID_FRAME.getValue();
+		}
 
-			byte check = (byte) (sum + response[i++]);
-			if (check != 0) {
-				log("readResponse() received bad checksum.");
-				return Pn532TransferResult.INVALID_FRAME.getValue();
-			}
+		if (response[i + length + 1] != POSTAMBLE) {
+			log("readResponse() received bad postamble.");
+			return Pn532TransferResult.INVALID_FRAME.getValue();
+		}
 
-			if (response[i] != POSTAMBLE) {
-				log("readResponse() received bad postamble.");
-				return Pn532TransferResult.INVALID_FRAME.getValue();
-			}
+		System.arraycopy(response, i, buffer, offset, length);
 
+		if (Pn532Utility.isLogEnabled()) {
 			final int lengthFinal = length;
-			log("readResponse() returned " + length + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, 0, lengthFinal));
-			return (int) length;
-		});
+			log("readResponse() returned " + length + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, offset, lengthFinal));
+		}
+		return length;
+	}
+
+	/**
+	 * @return the number of bytes read if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int readResponse(byte[] buffer, int maxLength, int timeout) throws InterruptedException, IOException {
+		return readResponse(buffer, 0, maxLength, timeout);
 	}
 
 	/**
@@ -281,26 +592,84 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 
 	public void close() {
 		log("close()");
+		if (irqInput != null) {
+			irqInput.removeListener(irqListener);
+		}
 		if (io != null && ioIsOpen()) {
 			ioClose();
 		}
+		// Out of the registry, so a new connection to the same device can be created, see Pn532Supervisor
+		release(id);
+		if (irqInput != null) {
+			release(irqInput.id());
+		}
+		metrics.unregister();
 		log("close() successful.");
 	}
 
+	/**
+	 * Removes the IO with {@code ioId} from the Pi4J registry, if it's there. Doesn't throw, since it's used while closing.
+	 */
+	protected void release(String ioId) {
+		if (pi4j == null) {
+			return;
+		}
+
+		try {
+			if (pi4j.registry().exists(ioId)) {
+				pi4j.shutdown(ioId);
+			}
+		} catch (RuntimeException e) {
+			log("release() of " + ioId + " failed: " + e.getMessage());
+		}
+	}
+
 	protected abstract T getInterface();
 
 	protected abstract void wakeupInternal() throws InterruptedException, IOException;
 
-	protected abstract boolean read(byte[] buffer, int startIndex, int length, long timeoutEnd) throws InterruptedException, IOException;
+	protected void wakeupFromPowerDownInternal() throws InterruptedException, IOException {
+		wakeupInternal();
+	}
 
+	/**
+	 * @return the {@link Pn532#powerDown(int, boolean)} wake-up source of this connection's host interface, which has to be
+	 *     enabled for the host to be able to wake the PN532 up.
+	 */
+	protected int getPowerDownWakeUpSource() {
+		return 0;
+	}
+
+	/**
+	 * @param deadline the {@link System#nanoTime()} value to give up at.
+	 * @return false if the deadline passed before {@code length} bytes were read.
+	 */
+	protected abstract boolean read(byte[] buffer, int startIndex, int length, long deadline) throws InterruptedException, IOException;
+
+	/**
+	 * Called with the bus locked, before the frame is written.
+	 */
 	protected void preWrite() throws InterruptedException, IOException {
 	}
 
 	protected void postWrite() throws IOException {
 	}
 
-	protected boolean preRead(long timeoutEnd) throws InterruptedException, IOException {
-		return true;
+	/**
+	 * Called before {@link #preRead(long)} with the number of bytes the coming frame is expected to have, so a connection
+	 * that can read ahead knows how much to read at once. For a response that's sized from the longest one seen for the
+	 * command so far (at least 16 bytes of data), not from the caller's buffer, so the frame can turn out longer.
+	 */
+	protected void expectFrame(int length) {
+	}
+
+	/**
+	 * Waits until the device is ready to be read. If this returns true, {@link #postRead()} is always called once reading is done.
+	 *
+	 * @param deadline the {@link System#nanoTime()} value to give up at.
+	 */
+	protected boolean preRead(long deadline) throws InterruptedException, IOException {
+		return waitForIrq(deadline);
 	}
 
 	protected void preSubsequentRead() throws IOException {
@@ -315,16 +684,99 @@ public abstract class Pn532Connection<T extends IO<T, ?, ?>> {
 
 	protected abstract void ioClose();
 
+	/**
+	 * Waits between readiness checks in a read loop using the configured {@link Pn532WaitStrategy}.
+	 *
+	 * @param attempt the number of checks that have already failed in this loop, starting at 0.
+	 * @return false if {@code deadline} has passed and the loop should give up.
+	 */
+	protected boolean idle(int attempt, long deadline) throws InterruptedException {
+		waitStrategy.idle(attempt, deadline);
+		return System.nanoTime() - deadline < 0;
+	}
+
+	/**
+	 * @return the key identifying the physical bus this connection is on. Connections with the same key share a lock,
+	 *     so their transactions are serialized. Defaults to {@link #id}, meaning the bus isn't shared.
+	 */
+	protected String getBusKey() {
+		return id;
+	}
+
+	/**
+	 * Locks the bus this connection is on for the duration of a transaction. If this returns true, transports must call
+	 * {@link #unlockBus()} in a finally. Gives up at {@code deadline}, since a transaction hung on another thread (one
+	 * abandoned by {@link Pn532Supervisor}, for example) can hold the lock for good. Callers treat that as a timeout.
+	 *
+	 * @param deadline the {@link System#nanoTime()} value to give up at.
+	 */
+	protected final boolean lockBus(long deadline) throws InterruptedException {
+		if (busLock == null) {
+			busLock = Pn532ContextHelper.getBusLock(getBusKey());
+		}
+
+		return busLock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	protected final void unlockBus() {
+		busLock.unlock();
+	}
+
+	private void trace(boolean tx, byte[] buffer, int length) {
+		var trace = frameTrace;
+		if (trace != null) {
+			trace.record(tx, buffer, 0, length);
+		}
+	}
+
+	protected boolean hasIrq() {
+		return irqInput != null;
+	}
+
+	/**
+	 * Blocks until the PN532 pulls its IRQ pin low to signal it has data ready. Returns immediately if no IRQ pin is configured,
+	 * in which case readiness has to be polled.
+	 *
+	 * @return false if the timeout was reached before the IRQ pin went low.
+	 */
+	protected boolean waitForIrq(long deadline) throws InterruptedException {
+		if (irqInput == null) {
+			return true;
+		}
+
+		irqLock.lock(); // The listener signals under the same lock, so a falling edge can't be missed between checks
+		try {
+			while (irqInput.isHigh()) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+
+				irqLow.awaitNanos(remaining);
+			}
+		} finally {
+			irqLock.unlock();
+		}
+
+		return true;
+	}
+
 	void log(String message) {
-		Pn532Utility.log(prefixMessage(message));
+		if (Pn532Utility.isLogEnabled()) {
+			Pn532Utility.log(prefixMessage(message));
+		}
 	}
 
 	void log(String message, Supplier<String> arg1) {
-		Pn532Utility.log(prefixMessage(message), arg1);
+		if (Pn532Utility.isLogEnabled()) {
+			Pn532Utility.log(prefixMessage(message), arg1);
+		}
 	}
 
 	void log(String message, Supplier<String> arg1, Supplier<String> arg2) {
-		Pn532Utility.log(prefixMessage(message), arg1, arg2);
+		if (Pn532Utility.isLogEnabled()) {
+			Pn532Utility.log(prefixMessage(message), arg1, arg2);
+		}
 	}
 
 	String prefixMessage(String message) {
@@ -1,14 +1,20 @@
 package mk.hsilomedus.pn532;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 import com.pi4j.Pi4J;
 import com.pi4j.context.Context;
 
 public final class Pn532ContextHelper {
 
-	// Synchronization could be done more efficiently but I don't think it matters
-	private static Context context;
+	// Only initialize() and shutdown() lock, getContext() just reads the volatile
+	private static volatile Context context;
 	static final Object mutex = new Object();
 
+	private static final ConcurrentHashMap<String, Lock> busLocks = new ConcurrentHashMap<>();
+
 	private Pn532ContextHelper() {
 		throw new UnsupportedOperationException("Utility class.");
 	}
@@ -27,13 +33,20 @@ public final class Pn532ContextHelper {
 	}
 
 	public static Context getContext() {
-		synchronized (mutex) {
-			if (context == null) {
-				throw new IllegalStateException("PN532ContextHelper.getContext() cannot be called before calling initialize() or after calling shutdown().");
-			}
-
-			return context;
+		var current = context;
+		if (current == null) {
+			throw new IllegalStateException("PN532ContextHelper.getContext() cannot be called before calling initialize() or after calling shutdown().");
 		}
+
+		return current;
+	}
+
+	/**
+	 * @return the lock shared by every connection on the bus identified by {@code key}, so their transactions don't interleave
+	 *     while connections on other buses run in parallel.
+	 */
+	static Lock getBusLock(String key) {
+		return busLocks.computeIfAbsent(key, k -> new ReentrantLock());
 	}
 
 	/**
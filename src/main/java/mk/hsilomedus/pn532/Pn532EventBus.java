@@ -0,0 +1,519 @@
+package mk.hsilomedus.pn532;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+/**
+ * Carries events from readers to subscribers running on their own threads, so a slow subscriber (a database lookup, for
+ * example) doesn't hold up polling. Each reader publishes through its own {@link Publisher}, a listener that writes into a
+ * preallocated ring owned by that reader. Several threads may publish through the same one (a supervisor's worker and
+ * watchdog, or every worker of a reader manager). Each subscriber has its own cursor into every ring and takes events in
+ * batches. Publishing and consuming don't lock or allocate; only adding publishers and subscribers does.
+ *
+ * <p>When a subscriber falls a whole ring behind, the {@link OverflowPolicy} decides whether the reader overwrites, drops,
+ * or waits.
+ */
+public final class Pn532EventBus implements AutoCloseable {
+
+	public enum OverflowPolicy {
+		/** The reader never waits; subscribers that fall behind skip the events that were overwritten, see {@link Subscription#getLost()}. */
+		OVERWRITE,
+		/** The reader drops new events while the slowest subscriber is a whole ring behind, see {@link Publisher#getDropped()}. */
+		DROP,
+		/** The reader waits for the slowest subscriber. Nothing is lost, but a stuck subscriber stops polling. */
+		BLOCK
+	}
+
+	public enum EventType {
+		UID_RECEIVED,
+		CARD_ARRIVED,
+		CARD_DEPARTED,
+		MESSAGE
+	}
+
+	public static final int DEFAULT_CAPACITY = 1024;
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	public static final Pn532WaitStrategy DEFAULT_WAIT_STRATEGY = Pn532WaitStrategy.backoff(64, 50_000, 10_000_000);
+
+	private static final int MAX_UID_LENGTH = 10;
+	private static final long BLOCK_PARK_NANOS = 50_000;
+	private static final long IDLE_DEADLINE_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final int CLOSE_TIMEOUT = 5000;
+	private static final VarHandle SEQUENCE;
+
+	static {
+		try {
+			SEQUENCE = MethodHandles.lookup().findVarHandle(Event.class, "sequence", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final int capacity;
+	private final OverflowPolicy policy;
+
+	// Copy on write under this, so readers and subscribers iterate without locking
+	private volatile Publisher[] publishers = new Publisher[0];
+	private volatile Subscription[] subscriptions = new Subscription[0];
+	private volatile boolean closed = false;
+
+	/**
+	 * Defaults to {@link Pn532EventBus#DEFAULT_CAPACITY} and {@link OverflowPolicy#OVERWRITE}.
+	 */
+	public Pn532EventBus() {
+		this(DEFAULT_CAPACITY, OverflowPolicy.OVERWRITE);
+	}
+
+	/**
+	 * @param capacity the number of events each reader's ring holds, a power of 2.
+	 */
+	public Pn532EventBus(int capacity, OverflowPolicy policy) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("PN532EventBus constructed with capacity that isn't a power of 2.");
+		} else if (policy == null) {
+			throw new IllegalArgumentException("PN532EventBus constructed with null policy.");
+		}
+
+		this.capacity = capacity;
+		this.policy = policy;
+	}
+
+	/**
+	 * @return a new publisher to pass to one reader as its listener. Subscribers see its events from here on.
+	 */
+	public synchronized Publisher publisher() {
+		if (closed) {
+			throw new IllegalStateException("PN532EventBus.publisher() called after close().");
+		}
+
+		var publisher = new Publisher();
+		for (var subscription : subscriptions) {
+			subscription.addCursor(publisher, 0);
+		}
+		publishers = append(publishers, publisher);
+		return publisher;
+	}
+
+	/**
+	 * Same as {@link #subscribe(String, Handler, int, Pn532WaitStrategy)} with {@link Pn532EventBus#DEFAULT_BATCH_SIZE} and
+	 * {@link Pn532EventBus#DEFAULT_WAIT_STRATEGY}.
+	 */
+	public Subscription subscribe(String name, Handler handler) {
+		return subscribe(name, handler, DEFAULT_BATCH_SIZE, DEFAULT_WAIT_STRATEGY);
+	}
+
+	/**
+	 * Starts a thread that passes every event published from now on to {@code handler}.
+	 *
+	 * @param batchSize the most events handled before the subscriber's position is published back to the readers.
+	 * @param waitStrategy how the thread waits while there are no events.
+	 */
+	public synchronized Subscription subscribe(String name, Handler handler, int batchSize, Pn532WaitStrategy waitStrategy) {
+		if (closed) {
+			throw new IllegalStateException("PN532EventBus.subscribe() called after close().");
+		} else if (handler == null) {
+			throw new IllegalArgumentException("PN532EventBus.subscribe() called with null handler.");
+		} else if (batchSize < 1) {
+			throw new IllegalArgumentException("PN532EventBus.subscribe() called with batchSize less than 1.");
+		} else if (waitStrategy == null) {
+			throw new IllegalArgumentException("PN532EventBus.subscribe() called with null waitStrategy.");
+		}
+
+		var subscription = new Subscription(name, handler, batchSize, waitStrategy);
+		for (var publisher : publishers) {
+			subscription.addCursor(publisher, publisher.claimed.get());
+		}
+		subscriptions = append(subscriptions, subscription);
+		subscription.thread.start();
+		return subscription;
+	}
+
+	/**
+	 * Stops every subscriber, waiting up to 5 seconds each for the current batch, and releases blocked readers. Events
+	 * published after this are dropped.
+	 */
+	@Override
+	public void close() {
+		Subscription[] current;
+		synchronized (this) {
+			closed = true;
+			current = subscriptions;
+		}
+
+		for (var subscription : current) {
+			subscription.stop();
+		}
+	}
+
+	private static <E> E[] append(E[] values, E value) {
+		var result = Arrays.copyOf(values, values.length + 1);
+		result[values.length] = value;
+		return result;
+	}
+
+	@FunctionalInterface
+	public interface Handler {
+		/**
+		 * @param event the subscriber's own event object, reused for every event, so copy what needs to be kept.
+		 * @param endOfBatch true for the last event currently available.
+		 */
+		void onEvent(Event event, boolean endOfBatch) throws Exception;
+	}
+
+	/**
+	 * One event. In the ring it's a preallocated slot; handlers get a copy owned by their subscription.
+	 */
+	public static final class Event {
+
+		// The sequence it holds, or writing(sequence) while that one is being written. Starts out as an empty sequence -1.
+		private volatile long sequence = -1;
+
+		private EventType type;
+		private String displayName;
+		private String message;
+		private final byte[] uid = new byte[MAX_UID_LENGTH];
+		private int uidLength;
+		private long timestamp;
+
+		public EventType getType() {
+			return type;
+		}
+
+		public String getDisplayName() {
+			return displayName;
+		}
+
+		/**
+		 * @return the message of a {@link EventType#MESSAGE} event, null for the others.
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * @return the buffer holding the UID, valid up to {@link #getUidLength()}. Reused for the next event.
+		 */
+		public byte[] getUid() {
+			return uid;
+		}
+
+		public int getUidLength() {
+			return uidLength;
+		}
+
+		/**
+		 * @return the {@link System#nanoTime()} the event was published at.
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		private void copyFrom(Event other) {
+			type = other.type;
+			displayName = other.displayName;
+			message = other.message;
+			uidLength = other.uidLength;
+			System.arraycopy(other.uid, 0, uid, 0, uidLength);
+			timestamp = other.timestamp;
+		}
+	}
+
+	/**
+	 * A reader's listener. Threads publishing through it concurrently claim sequences atomically, so they don't need to be
+	 * coordinated, but their events interleave in the order they were claimed.
+	 */
+	public final class Publisher implements Pn532SamThreadListener {
+
+		private final Event[] slots = new Event[capacity];
+		private final int mask = capacity - 1;
+
+		private final AtomicLong claimed = new AtomicLong(); // Sequence of the next event, events before it may still be being written
+		private volatile Cursor[] gating = new Cursor[0]; // Subscribers' positions in this ring
+		private final AtomicLong dropped = new AtomicLong();
+
+		Publisher() {
+			for (int i = 0; i < slots.length; i++) {
+				slots[i] = new Event();
+			}
+		}
+
+		@Override
+		public void receiveMessage(String message) {
+			publish(EventType.MESSAGE, null, message, null);
+		}
+
+		@Override
+		public void uidReceived(String displayName, byte[] uid) {
+			publish(EventType.UID_RECEIVED, displayName, null, uid);
+		}
+
+		@Override
+		public void uidReceived(String displayName, byte[] buffer, int offset, int length) {
+			publish(EventType.UID_RECEIVED, displayName, null, buffer, offset, length); // Straight into the slot
+		}
+
+		@Override
+		public void cardArrived(String displayName, byte[] uid) {
+			publish(EventType.CARD_ARRIVED, displayName, null, uid);
+		}
+
+		@Override
+		public void cardDeparted(String displayName, byte[] uid) {
+			publish(EventType.CARD_DEPARTED, displayName, null, uid);
+		}
+
+		/**
+		 * @return the number of events dropped with {@link OverflowPolicy#DROP} or after {@link Pn532EventBus#close()}.
+		 */
+		public long getDropped() {
+			return dropped.get();
+		}
+
+		/**
+		 * Publishes an event. {@code uid} is copied, up to 10 bytes.
+		 *
+		 * @return false if the event was dropped, or overwritten by a newer one before it was written.
+		 */
+		public boolean publish(EventType type, String displayName, String message, byte[] uid) {
+			return publish(type, displayName, message, uid, 0, uid == null ? 0 : uid.length);
+		}
+
+		/**
+		 * Same as {@link #publish(EventType, String, String, byte[])} with the UID in {@code uid[offset]} to
+		 * {@code uid[offset + length - 1]}.
+		 */
+		public boolean publish(EventType type, String displayName, String message, byte[] uid, int offset, int length) {
+			if (uid != null && (offset < 0 || length < 0 || offset > uid.length - length)) {
+				throw new IllegalArgumentException("PN532EventBus.Publisher.publish() called with offset and length outside of uid.");
+			}
+
+			long sequence = closed ? -1 : claim();
+			if (sequence < 0) {
+				dropped.incrementAndGet();
+				return false;
+			}
+
+			var slot = slots[(int) sequence & mask];
+			if (!lockSlot(slot, sequence)) {
+				return false; // Only with OVERWRITE, when another thread lapped this one, subscribers count it as lost
+			}
+			VarHandle.storeStoreFence(); // The fields below can't be seen before the slot is marked as being written
+
+			slot.type = type;
+			slot.displayName = displayName;
+			slot.message = message;
+			slot.uidLength = uid == null ? 0 : Math.min(length, MAX_UID_LENGTH);
+			if (uid != null) {
+				System.arraycopy(uid, offset, slot.uid, 0, slot.uidLength);
+			}
+			slot.timestamp = System.nanoTime();
+
+			slot.sequence = sequence;
+			return true;
+		}
+
+		// Returns the claimed sequence, or -1 if the event should be dropped
+		private long claim() {
+			if (policy == OverflowPolicy.DROP) {
+				// Only claims when there's room, an unused claim would leave a gap subscribers wait on
+				while (true) {
+					long sequence = claimed.get();
+					if (sequence - capacity > minimumGating()) {
+						return -1;
+					} else if (claimed.compareAndSet(sequence, sequence + 1)) {
+						return sequence;
+					}
+				}
+			}
+
+			long sequence = claimed.getAndIncrement();
+			while (policy == OverflowPolicy.BLOCK && sequence - capacity > minimumGating()) {
+				if (closed) {
+					return -1; // The gap doesn't matter, subscribers are stopping
+				}
+				LockSupport.parkNanos(BLOCK_PARK_NANOS);
+			}
+			return sequence;
+		}
+
+		// Marks the slot as being written, after any older write to it finished. Returns false if a newer one got there first.
+		private boolean lockSlot(Event slot, long sequence) {
+			while (true) {
+				long current = slot.sequence;
+				if (sequenceOf(current) > sequence) {
+					return false;
+				} else if (isWriting(current)) {
+					Thread.onSpinWait(); // Another thread is a whole ring behind this one, it's nearly done
+				} else if (SEQUENCE.compareAndSet(slot, current, writing(sequence))) {
+					return true;
+				}
+			}
+		}
+
+		private long minimumGating() {
+			long minimum = Long.MAX_VALUE;
+			for (var cursor : gating) {
+				minimum = Math.min(minimum, cursor.next.get() - 1);
+			}
+			return minimum;
+		}
+	}
+
+	private static long writing(long sequence) {
+		return -sequence - 2;
+	}
+
+	private static boolean isWriting(long value) {
+		return value < -1;
+	}
+
+	private static long sequenceOf(long value) {
+		return isWriting(value) ? -value - 2 : value;
+	}
+
+	/**
+	 * A subscriber's position in one reader's ring.
+	 */
+	private static final class Cursor {
+		private final Publisher publisher;
+		private final AtomicLong next; // Sequence of the next event to read, published back at the end of every batch
+
+		Cursor(Publisher publisher, long next) {
+			this.publisher = publisher;
+			this.next = new AtomicLong(next);
+		}
+	}
+
+	public final class Subscription implements Runnable {
+
+		private final Handler handler;
+		private final int batchSize;
+		private final Pn532WaitStrategy waitStrategy;
+		private final Thread thread;
+		private final Event event = new Event();
+		private final AtomicLong lost = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+
+		private volatile Cursor[] cursors = new Cursor[0];
+		private volatile boolean running = true;
+
+		Subscription(String name, Handler handler, int batchSize, Pn532WaitStrategy waitStrategy) {
+			this.handler = handler;
+			this.batchSize = batchSize;
+			this.waitStrategy = waitStrategy;
+			this.thread = new Thread(this, name);
+			this.thread.setDaemon(true);
+		}
+
+		/**
+		 * @return the number of events skipped because they were overwritten before this subscriber got to them.
+		 */
+		public long getLost() {
+			return lost.get();
+		}
+
+		/**
+		 * @return the number of events the handler threw on, each logged through {@link Pn532Utility}. The subscriber carries
+		 *     on with the next event.
+		 */
+		public long getErrors() {
+			return errors.get();
+		}
+
+		@Override
+		public void run() {
+			int attempt = 0;
+			while (running) {
+				int handled = 0;
+				for (var cursor : cursors) {
+					handled += drain(cursor);
+				}
+
+				if (handled > 0) {
+					attempt = 0;
+					continue;
+				}
+
+				try {
+					waitStrategy.idle(attempt++, System.nanoTime() + IDLE_DEADLINE_NANOS);
+				} catch (InterruptedException e) {
+					return; // Stopped
+				}
+			}
+		}
+
+		// Called while holding the event bus's monitor, which serializes it with adding publishers
+		void addCursor(Publisher publisher, long next) {
+			var cursor = new Cursor(publisher, next);
+			cursors = append(cursors, cursor);
+			publisher.gating = append(publisher.gating, cursor);
+		}
+
+		void stop() {
+			running = false;
+			thread.interrupt();
+			try {
+				thread.join(CLOSE_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private int drain(Cursor cursor) {
+			var publisher = cursor.publisher;
+			long next = cursor.next.get();
+			long available = publisher.claimed.get() - 1;
+			if (available < next) {
+				return 0;
+			}
+
+			int handled = 0;
+			long end = Math.min(available, next + batchSize - 1);
+			while (next <= end) {
+				// Lapped, the oldest events that are still there start here. With the other policies, sequences claimed a whole
+				// ring ahead belong to readers still waiting for room.
+				if (policy == OverflowPolicy.OVERWRITE && available - next >= capacity) {
+					long skipTo = available - capacity + 1;
+					lost.addAndGet(skipTo - next);
+					next = skipTo;
+					end = Math.min(available, next + batchSize - 1);
+				}
+
+				var slot = publisher.slots[(int) next & publisher.mask];
+				long current = slot.sequence;
+				boolean read = false;
+				if (current == next) {
+					event.copyFrom(slot);
+					VarHandle.loadLoadFence(); // The copy has to be complete before checking it wasn't overwritten meanwhile
+					read = slot.sequence == next;
+				} else if (sequenceOf(current) <= next) {
+					break; // Claimed but not written yet, continue from here next time
+				}
+
+				if (read) {
+					try {
+						handler.onEvent(event, next == end);
+					} catch (Exception e) {
+						errors.incrementAndGet();
+						Pn532Utility.log(() -> "PN532EventBus subscriber " + thread.getName() + " handler threw on " + event.getType() + ": " + e);
+					}
+					handled++;
+				} else {
+					lost.incrementAndGet(); // Overwritten before or while reading it
+				}
+
+				next++;
+				available = publisher.claimed.get() - 1;
+			}
+
+			cursor.next.lazySet(next);
+			return handled;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package mk.hsilomedus.pn532;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors that run blocking reader work. This is the Java 11 version; the multi-release jar contains a
+ * Java 21 version in META-INF/versions/21 that uses virtual threads instead.
+ */
+final class Pn532Executors {
+
+	private Pn532Executors() {
+		throw new UnsupportedOperationException("Utility class.");
+	}
+
+	/**
+	 * @return a fixed pool of {@code threads} platform threads with a FIFO queue, so readers are served in turn.
+	 */
+	static ExecutorService newWorkerExecutor(int threads, String name) {
+		var count = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, name + "-" + count.getAndIncrement()));
+	}
+}
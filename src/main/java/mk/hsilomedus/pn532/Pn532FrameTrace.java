@@ -0,0 +1,89 @@
+package mk.hsilomedus.pn532;
+
+/**
+ * Fixed-size ring buffer of the raw frames a connection sends and receives, stored in binary with their
+ * {@link System#nanoTime()} timestamps. Everything is allocated up front, so recording costs a copy of the frame and can
+ * stay on in production; once full the oldest frames are overwritten. Use {@link #dump()} to get the trace as hex.
+ *
+ * @see Pn532Connection#setFrameTrace(Pn532FrameTrace)
+ */
+public final class Pn532FrameTrace {
+
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private final byte[] data;
+	private final long[] timestamps;
+	private final int[] lengths; // Negative for RX
+	private final int frameLength;
+
+	private long recorded = 0;
+
+	/**
+	 * Defaults to {@link Pn532FrameTrace#DEFAULT_CAPACITY}.
+	 */
+	public Pn532FrameTrace() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of frames kept. Each one takes the size of the largest (extended) frame, 275 bytes.
+	 */
+	public Pn532FrameTrace(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("PN532FrameTrace constructed with capacity less than 1.");
+		}
+
+		this.frameLength = Pn532Connection.MAX_FRAME_LENGTH;
+		this.data = new byte[capacity * frameLength];
+		this.timestamps = new long[capacity];
+		this.lengths = new int[capacity];
+	}
+
+	public int getCapacity() {
+		return timestamps.length;
+	}
+
+	/**
+	 * @return the number of frames currently held, at most {@link #getCapacity()}.
+	 */
+	public synchronized int size() {
+		return (int) Math.min(recorded, timestamps.length);
+	}
+
+	public synchronized void clear() {
+		recorded = 0;
+	}
+
+	synchronized void record(boolean tx, byte[] buffer, int offset, int length) {
+		if (length <= 0) {
+			return;
+		}
+
+		int slot = (int) (recorded++ % timestamps.length);
+		int copied = Math.min(length, frameLength);
+		System.arraycopy(buffer, offset, data, slot * frameLength, copied);
+		timestamps[slot] = System.nanoTime();
+		lengths[slot] = tx ? copied : -copied;
+	}
+
+	/**
+	 * @return one line per frame, oldest first: the time in microseconds since the first frame held, TX or RX, and the bytes in hex.
+	 */
+	public synchronized String dump() {
+		int size = size();
+		int first = (int) ((recorded - size) % timestamps.length);
+
+		var output = new StringBuilder(size * (frameLength / 4));
+		for (int i = 0; i < size; i++) {
+			int slot = (first + i) % timestamps.length;
+			int length = Math.abs(lengths[slot]);
+
+			output.append('+').append((timestamps[slot] - timestamps[first]) / 1000).append("us ");
+			output.append(lengths[slot] > 0 ? "TX " : "RX ");
+			output.append(Pn532Utility.getByteHexString(data, slot * frameLength, length));
+			output.append(System.lineSeparator());
+		}
+
+		return output.toString();
+	}
+}
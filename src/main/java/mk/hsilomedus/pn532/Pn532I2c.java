@@ -21,6 +21,13 @@ public class Pn532I2c extends Pn532Connection<I2C> {
 	private final int bus;
 	private final int device;
 
+	// +1 for the status byte in front of every read
+	private final byte[] readBuffer = new byte[MAX_FRAME_LENGTH + 1];
+
+	private int expectedLength = 0; // Bytes of the frame read by the first read
+	private int bufferedLength = 0; // Bytes of the frame in readBuffer after the status byte
+	private boolean nackPending = false;
+
 	/**
 	 * Defaults to {@link Pn532I2c#DEFAULT_PROVIDER}, {@link Pn532I2c#DEFAULT_BUS}, and {@link Pn532I2c#DEFAULT_DEVICE}.
 	 */
@@ -32,9 +39,17 @@ public class Pn532I2c extends Pn532Connection<I2C> {
 	 * @param provider the provider to use. Options are {@link Pn532I2c#PROVIDER_LINUXFS} or {@link Pn532I2c#PROVIDER_PIGPIO}.
 	 */
 	public Pn532I2c(String provider, int bus, int device) {
+		this(provider, bus, device, DEFAULT_PROVIDER_DI, NO_IRQ_PIN);
+	}
+
+	/**
+	 * @param provider the provider to use. Options are {@link Pn532I2c#PROVIDER_LINUXFS} or {@link Pn532I2c#PROVIDER_PIGPIO}.
+	 * @param irqPin the GPIO connected to the PN532's IRQ pin, used to wait for data instead of polling the status byte.
+	 */
+	public Pn532I2c(String provider, int bus, int device, String providerDi, int irqPin) {
 		super(provider, "i2c-" + bus + "-0x" + Integer.toHexString(device),
 				"I2C " + bus + " 0x" + Integer.toHexString(device),
-				"I2C Bus " + bus + ", Device 0x" + Integer.toHexString(device));
+				"I2C Bus " + bus + ", Device 0x" + Integer.toHexString(device), providerDi, irqPin);
 
 		this.bus = bus;
 		this.device = device;
@@ -52,33 +67,131 @@ public class Pn532I2c extends Pn532Connection<I2C> {
 		return i2cProvider.create(config);
 	}
 
+	@Override
+	protected String getBusKey() {
+		return "i2c-" + bus; // Not including the provider, it's the same physical bus either way
+	}
+
 	@Override
 	protected void wakeupInternal() throws InterruptedException {
 		Thread.sleep(500);
 	}
 
+	// The PN532 wakes up when it sees its address, so the next command does it without the power on delay
+	@Override
+	protected void wakeupFromPowerDownInternal() {
+	}
+
+	@Override
+	protected int getPowerDownWakeUpSource() {
+		return Pn532.WAKEUP_I2C;
+	}
+
+	@Override
+	protected void expectFrame(int length) {
+		expectedLength = length;
+		bufferedLength = 0;
+		nackPending = false;
+	}
+
+	/**
+	 * Polls the status byte on its own until the PN532 is ready, then reads as many bytes as the frame is expected to have
+	 * in one transaction, so the rest of the frame is usually already in the buffer. Only if the frame is longer is it read
+	 * again from the start after a NACK.
+	 */
 	@Override
-	protected boolean read(byte[] buffer, int startIndex, int length, long timeoutEnd) throws InterruptedException, IOException {
+	protected boolean read(byte[] buffer, int startIndex, int length, long deadline) throws InterruptedException, IOException {
+		if (startIndex + length <= bufferedLength) {
+			nackPending = false;
+			System.arraycopy(readBuffer, 1 + startIndex, buffer, startIndex, length);
+			if (Pn532Utility.isLogEnabled()) {
+				log("read() had %s bytes buffered: %s", () -> String.valueOf(length), () -> Pn532Utility.getByteHexString(buffer, startIndex, length));
+			}
+			return true;
+		}
+
+		if (nackPending) {
+			nackPending = false;
+			if (!writeNack(deadline)) {
+				return false;
+			}
+		}
+
 		// I2C ignores startIndex and re-reads everything
-		var bufferTemp = new byte[startIndex + length + 1];
+		int readLength = Math.min(Math.max(startIndex + length, expectedLength), MAX_FRAME_LENGTH) + 1;
+		boolean ready = hasIrq() && bufferedLength == 0; // preRead() waited for the IRQ before the first read of a frame
+		int attempt = 0;
 		while (true) {
-			if (io.read(bufferTemp, bufferTemp.length) == bufferTemp.length && (bufferTemp[0] & 1) != 0) {
-				System.arraycopy(bufferTemp, 1 + startIndex, buffer, startIndex, length);
-				log("read() received " + length + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, startIndex, length));
-				return true;
+			if (ready || isReady(deadline)) {
+				int read;
+				if (!lockBus(deadline)) { // Each read is its own I2C transaction, so don't hold the bus while waiting
+					log("read() timed out waiting for the bus.");
+					return false;
+				}
+				try {
+					read = io.read(readBuffer, readLength);
+				} finally {
+					unlockBus();
+				}
+
+				if (read == readLength && (readBuffer[0] & 1) != 0) {
+					bufferedLength = readLength - 1;
+					System.arraycopy(readBuffer, 1 + startIndex, buffer, startIndex, length);
+					if (Pn532Utility.isLogEnabled()) {
+						log("read() received %s bytes: %s", () -> String.valueOf(length), () -> Pn532Utility.getByteHexString(buffer, startIndex, length));
+					}
+					return true;
+				}
+				ready = false;
 			}
 
-			Thread.sleep(10);
-			if (System.currentTimeMillis() > timeoutEnd) {
+			if (!idle(attempt++, deadline)) {
 				return false;
 			}
 		}
 	}
 
+	// Reads just the status byte, so polling a busy PN532 doesn't move a whole frame's worth of bytes each time. Also false
+	// if the bus couldn't be locked before the deadline, the caller's idle() then times out.
+	private boolean isReady(long deadline) throws InterruptedException {
+		int status;
+		if (!lockBus(deadline)) {
+			return false;
+		}
+		try {
+			status = io.read();
+		} finally {
+			unlockBus();
+		}
+		return status >= 0 && (status & 1) != 0;
+	}
+
+	// The NACK is only sent if the next read isn't already buffered
+	@Override
+	protected void preSubsequentRead() {
+		nackPending = true;
+	}
+
 	@Override
-	protected void preSubsequentRead() throws IOException {
-		log("preSubsequentRead() sending %s", () -> Pn532Utility.getByteHexString(PN532_NACK));
-		io.write(PN532_NACK);
+	protected void postRead() {
+		bufferedLength = 0;
+		nackPending = false;
+	}
+
+	private boolean writeNack(long deadline) throws InterruptedException, IOException {
+		if (Pn532Utility.isLogEnabled()) {
+			log("writeNack() sending %s", () -> Pn532Utility.getByteHexString(PN532_NACK));
+		}
+		if (!lockBus(deadline)) {
+			log("writeNack() timed out waiting for the bus.");
+			return false;
+		}
+		try {
+			io.write(PN532_NACK);
+		} finally {
+			unlockBus();
+		}
+		return true;
 	}
 
 	@Override
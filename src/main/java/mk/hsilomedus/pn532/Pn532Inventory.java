@@ -0,0 +1,95 @@
+package mk.hsilomedus.pn532;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The set of UIDs in the field as of the last {@link Pn532#readInventory(Pn532Inventory)} call, along with what was added
+ * and removed compared to the call before it. The PN532 reports at most 2 targets, so lists are compared linearly.
+ */
+public final class Pn532Inventory {
+
+	private List<byte[]> current = new ArrayList<>(2);
+	private List<byte[]> previous = new ArrayList<>(2);
+	private final List<byte[]> added = new ArrayList<>(2);
+	private final List<byte[]> removed = new ArrayList<>(2);
+
+	/**
+	 * @return the UIDs currently in the field. Do not modify the arrays.
+	 */
+	public List<byte[]> getCurrent() {
+		return Collections.unmodifiableList(current);
+	}
+
+	/**
+	 * @return the UIDs that are in the field now but weren't on the previous update. Do not modify the arrays.
+	 */
+	public List<byte[]> getAdded() {
+		return Collections.unmodifiableList(added);
+	}
+
+	/**
+	 * @return the UIDs that were in the field on the previous update but aren't now. Do not modify the arrays.
+	 */
+	public List<byte[]> getRemoved() {
+		return Collections.unmodifiableList(removed);
+	}
+
+	public boolean hasChanged() {
+		return !added.isEmpty() || !removed.isEmpty();
+	}
+
+	/**
+	 * Forgets everything, so the next update reports all UIDs as added.
+	 */
+	public void clear() {
+		current.clear();
+		previous.clear();
+		added.clear();
+		removed.clear();
+	}
+
+	void update(List<Pn532Target> targets) {
+		var swap = previous;
+		previous = current;
+		current = swap;
+
+		current.clear();
+		added.clear();
+		removed.clear();
+
+		for (var target : targets) {
+			if (target.getUidLength() == 0) {
+				continue;
+			}
+
+			var uid = target.getUid();
+			if (contains(current, uid)) {
+				continue;
+			}
+
+			current.add(uid);
+			if (!contains(previous, uid)) {
+				added.add(uid);
+			}
+		}
+
+		for (var uid : previous) {
+			if (!contains(current, uid)) {
+				removed.add(uid);
+			}
+		}
+	}
+
+	private static boolean contains(List<byte[]> uids, byte[] uid) {
+		for (var element : uids) {
+			if (Arrays.equals(element, uid)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
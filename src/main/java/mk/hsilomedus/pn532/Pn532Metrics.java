@@ -0,0 +1,414 @@
+package mk.hsilomedus.pn532;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for one connection: ACK wait (write to ACK), response wait, bytes transferred, and
+ * the {@link Pn532TransferResult} of every command by command code. Recording only touches preallocated atomics, so it's
+ * lock-free, doesn't allocate, and can stay on in production. Reading is done through {@link #snapshot()} or JMX.
+ */
+public final class Pn532Metrics implements Pn532MetricsMXBean {
+
+	private static final Pn532TransferResult[] RESULTS = Pn532TransferResult.values();
+	private static final int COMMANDS = 256;
+
+	private final AtomicLongArray results = new AtomicLongArray(COMMANDS * RESULTS.length);
+	private final AtomicLongArray ioErrors = new AtomicLongArray(COMMANDS);
+	private final Histogram ackLatency = new Histogram();
+	private final Histogram responseLatency = new Histogram();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	private ObjectName objectName = null;
+
+	Pn532Metrics() {
+	}
+
+	void recordWrite(int bytes) {
+		bytesWritten.addAndGet(bytes);
+	}
+
+	void recordRead(int bytes) {
+		bytesRead.addAndGet(bytes);
+	}
+
+	/**
+	 * Only a failed ACK counts as the command's result, otherwise the response that follows does.
+	 */
+	void recordAck(byte command, Pn532TransferResult result, long nanos) {
+		ackLatency.record(nanos);
+		if (result != Pn532TransferResult.OK) {
+			results.incrementAndGet(index(command, result));
+		}
+	}
+
+	void recordResponse(byte command, int result, long nanos) {
+		responseLatency.record(nanos);
+		if (result >= 0) {
+			results.incrementAndGet(index(command, Pn532TransferResult.OK));
+		} else {
+			results.incrementAndGet(index(command, Pn532TransferResult.fromValue(result)));
+		}
+	}
+
+	void recordIoError(byte command) {
+		ioErrors.incrementAndGet(command & 0xFF);
+	}
+
+	/**
+	 * @return a copy of the current values. Counters are read one at a time, so values recorded during the copy may be
+	 *     partially included.
+	 */
+	public Snapshot snapshot() {
+		var resultCounts = new long[results.length()];
+		for (int i = 0; i < resultCounts.length; i++) {
+			resultCounts[i] = results.get(i);
+		}
+
+		var ioErrorCounts = new long[ioErrors.length()];
+		for (int i = 0; i < ioErrorCounts.length; i++) {
+			ioErrorCounts[i] = ioErrors.get(i);
+		}
+
+		return new Snapshot(bytesWritten.get(), bytesRead.get(), ackLatency.snapshot(), responseLatency.snapshot(), resultCounts, ioErrorCounts);
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < results.length(); i++) {
+			results.set(i, 0);
+		}
+		for (int i = 0; i < ioErrors.length(); i++) {
+			ioErrors.set(i, 0);
+		}
+		ackLatency.reset();
+		responseLatency.reset();
+		bytesWritten.set(0);
+		bytesRead.set(0);
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	@Override
+	public long getAckCount() {
+		return ackLatency.count.get();
+	}
+
+	@Override
+	public long getAckLatencyMean() {
+		return ackLatency.snapshot().getMean();
+	}
+
+	@Override
+	public long getAckLatencyMax() {
+		return ackLatency.max.get();
+	}
+
+	@Override
+	public long getAckLatency99thPercentile() {
+		return ackLatency.snapshot().getPercentile(99);
+	}
+
+	@Override
+	public long getResponseCount() {
+		return responseLatency.count.get();
+	}
+
+	@Override
+	public long getResponseLatencyMean() {
+		return responseLatency.snapshot().getMean();
+	}
+
+	@Override
+	public long getResponseLatencyMax() {
+		return responseLatency.max.get();
+	}
+
+	@Override
+	public long getResponseLatency99thPercentile() {
+		return responseLatency.snapshot().getPercentile(99);
+	}
+
+	@Override
+	public long getTimeouts() {
+		return snapshot().getTotal(Pn532TransferResult.TIMEOUT);
+	}
+
+	@Override
+	public long getInvalidAcks() {
+		return snapshot().getTotal(Pn532TransferResult.INVALID_ACK);
+	}
+
+	@Override
+	public long getInvalidFrames() {
+		return snapshot().getTotal(Pn532TransferResult.INVALID_FRAME);
+	}
+
+	@Override
+	public long getInsufficientSpace() {
+		return snapshot().getTotal(Pn532TransferResult.INSUFFICIENT_SPACE);
+	}
+
+	@Override
+	public long getIoErrors() {
+		return snapshot().getTotalIoErrors();
+	}
+
+	@Override
+	public Map<String, Long> getCountsByCommand() {
+		return snapshot().getCountsByCommand();
+	}
+
+	/**
+	 * Registers with the platform MBean server. Failures (a connection with the same id already registered, for example)
+	 * are logged rather than thrown since metrics shouldn't stop a reader from working.
+	 */
+	synchronized void register(String id) {
+		if (objectName != null) {
+			return;
+		}
+
+		try {
+			var name = new ObjectName("mk.hsilomedus.pn532:type=Pn532Connection,name=" + ObjectName.quote(id));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+			objectName = name;
+		} catch (JMException e) {
+			Pn532Utility.log(id + " metrics registration failed: " + e.getMessage());
+		}
+	}
+
+	synchronized void unregister() {
+		if (objectName == null) {
+			return;
+		}
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			Pn532Utility.log(objectName + " metrics unregistration failed: " + e.getMessage());
+		}
+		objectName = null;
+	}
+
+	private static int index(byte command, Pn532TransferResult result) {
+		return (command & 0xFF) * RESULTS.length + result.ordinal();
+	}
+
+	/**
+	 * Power-of-2 buckets: bucket {@code i} counts values from {@code 2^(i-1)} to {@code 2^i - 1}, bucket 0 counts 0.
+	 */
+	private static final class Histogram {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		void record(long value) {
+			if (value < 0) {
+				value = 0;
+			}
+
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value)); // At most 63 since value isn't negative
+			count.incrementAndGet();
+			sum.addAndGet(value);
+
+			long current = max.get();
+			while (value > current && !max.compareAndSet(current, value)) {
+				current = max.get();
+			}
+		}
+
+		HistogramSnapshot snapshot() {
+			var counts = new long[buckets.length()];
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = buckets.get(i);
+			}
+
+			return new HistogramSnapshot(count.get(), sum.get(), max.get(), counts);
+		}
+
+		void reset() {
+			for (int i = 0; i < buckets.length(); i++) {
+				buckets.set(i, 0);
+			}
+			count.set(0);
+			sum.set(0);
+			max.set(0);
+		}
+	}
+
+	public static final class HistogramSnapshot {
+
+		private final long count;
+		private final long sum;
+		private final long max;
+		private final long[] buckets;
+
+		HistogramSnapshot(long count, long sum, long max, long[] buckets) {
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+			this.buckets = buckets;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getMean() {
+			return count == 0 ? 0 : sum / count;
+		}
+
+		/**
+		 * @return the upper bound of the bucket the {@code percentile} (0 to 100) falls in, capped at {@link #getMax()}.
+		 */
+		public long getPercentile(double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("Pn532Metrics.HistogramSnapshot.getPercentile() called with percentile outside of 0 to 100.");
+			}
+
+			long total = 0;
+			for (long bucket : buckets) {
+				total += bucket;
+			}
+			if (total == 0) {
+				return 0;
+			}
+
+			long target = (long) Math.ceil(total * percentile / 100);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= target && seen > 0) {
+					return i == 0 ? 0 : Math.min(max, i == 63 ? Long.MAX_VALUE : (1L << i) - 1);
+				}
+			}
+
+			return max;
+		}
+
+		/**
+		 * @return the count in each power-of-2 bucket, see {@link #getPercentile(double)}.
+		 */
+		public long[] getBuckets() {
+			return buckets.clone();
+		}
+	}
+
+	public static final class Snapshot {
+
+		private final long bytesWritten;
+		private final long bytesRead;
+		private final HistogramSnapshot ackLatency;
+		private final HistogramSnapshot responseLatency;
+		private final long[] results;
+		private final long[] ioErrors;
+
+		Snapshot(long bytesWritten, long bytesRead, HistogramSnapshot ackLatency, HistogramSnapshot responseLatency, long[] results,
+				long[] ioErrors) {
+			this.bytesWritten = bytesWritten;
+			this.bytesRead = bytesRead;
+			this.ackLatency = ackLatency;
+			this.responseLatency = responseLatency;
+			this.results = results;
+			this.ioErrors = ioErrors;
+		}
+
+		public long getBytesWritten() {
+			return bytesWritten;
+		}
+
+		public long getBytesRead() {
+			return bytesRead;
+		}
+
+		/**
+		 * @return the time from starting a write to the ACK being read (or failing), in nanoseconds.
+		 */
+		public HistogramSnapshot getAckLatency() {
+			return ackLatency;
+		}
+
+		/**
+		 * @return the time from starting to wait for a response to it being read (or failing), in nanoseconds.
+		 */
+		public HistogramSnapshot getResponseLatency() {
+			return responseLatency;
+		}
+
+		/**
+		 * @param command the command code, for example 0x4A for InListPassiveTarget.
+		 * @return how many times {@code command} ended with {@code result}.
+		 */
+		public long getCount(byte command, Pn532TransferResult result) {
+			return results[index(command, result)];
+		}
+
+		public long getTotal(Pn532TransferResult result) {
+			long total = 0;
+			for (int i = result.ordinal(); i < results.length; i += RESULTS.length) {
+				total += results[i];
+			}
+			return total;
+		}
+
+		/**
+		 * @return how many times {@code command} failed with an IOException rather than a {@link Pn532TransferResult}.
+		 */
+		public long getIoErrors(byte command) {
+			return ioErrors[command & 0xFF];
+		}
+
+		public long getTotalIoErrors() {
+			long total = 0;
+			for (long value : ioErrors) {
+				total += value;
+			}
+			return total;
+		}
+
+		/**
+		 * @return the non-zero counts keyed by command code in hex and result (or IO_ERROR), for example {@code "4A TIMEOUT"}.
+		 */
+		public Map<String, Long> getCountsByCommand() {
+			var counts = new TreeMap<String, Long>();
+			for (int command = 0; command < COMMANDS; command++) {
+				for (var result : RESULTS) {
+					long count = results[command * RESULTS.length + result.ordinal()];
+					if (count != 0) {
+						counts.put(String.format("%02X %s", command, result), count);
+					}
+				}
+
+				if (ioErrors[command] != 0) {
+					counts.put(String.format("%02X IO_ERROR", command), ioErrors[command]);
+				}
+			}
+			return counts;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package mk.hsilomedus.pn532;
+
+import java.util.Map;
+
+/**
+ * JMX view of a connection's {@link Pn532Metrics}, registered as
+ * {@code mk.hsilomedus.pn532:type=Pn532Connection,name=<connection id>} while the connection is open.
+ * Latencies are in nanoseconds; percentiles are the upper bound of the power-of-2 bucket they fall in.
+ */
+public interface Pn532MetricsMXBean {
+
+	long getBytesWritten();
+
+	long getBytesRead();
+
+	long getAckCount();
+
+	long getAckLatencyMean();
+
+	long getAckLatencyMax();
+
+	long getAckLatency99thPercentile();
+
+	long getResponseCount();
+
+	long getResponseLatencyMean();
+
+	long getResponseLatencyMax();
+
+	long getResponseLatency99thPercentile();
+
+	long getTimeouts();
+
+	long getInvalidAcks();
+
+	long getInvalidFrames();
+
+	long getInsufficientSpace();
+
+	long getIoErrors();
+
+	/**
+	 * @return non-zero counts keyed by command code in hex and result, for example {@code "4A TIMEOUT"}.
+	 */
+	Map<String, Long> getCountsByCommand();
+
+	void reset();
+}
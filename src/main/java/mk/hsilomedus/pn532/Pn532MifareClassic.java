@@ -0,0 +1,421 @@
+package mk.hsilomedus.pn532;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pi4j.io.IO;
+
+/**
+ * Reads and writes MIFARE Classic 1K/4K blocks through {@link Pn532#inDataExchange}. Each sector is authenticated once per
+ * operation and then read or written block by block, so a 4 block sector costs 1 authentication and 4 exchanges. The key that
+ * authenticated each sector is remembered per UID in a bounded cache, so reading the same card again tries that key
+ * first instead of going through the candidate keys. Timing and exchange counts of the last operation are available
+ * through {@link #getLastElapsedNanos()}, {@link #getLastExchanges()}, and {@link #getLastAuthentications()}.
+ * Not thread safe, like {@link Pn532}.
+ */
+public final class Pn532MifareClassic<T extends IO<T, ?, ?>> {
+
+	public static final int BLOCK_SIZE = 16;
+	public static final int SECTOR_COUNT_1K = 16;
+	public static final int SECTOR_COUNT_4K = 40;
+	public static final int DEFAULT_CACHE_CAPACITY = 64;
+
+	private static final byte COMMAND_READ = 0x30;
+	private static final byte COMMAND_WRITE = (byte) 0xA0;
+	private static final int STATUS_AUTHENTICATION_ERROR = 0x14;
+	private static final int TARGET = 1; // readPassiveTargetId() only activates 1 target
+	private static final int MAX_UID_LENGTH = 10;
+
+	private final Pn532<T> pn532;
+	private final List<Key> keys = new ArrayList<>(Key.DEFAULTS);
+	private final LinkedHashMap<ByteBuffer, Key[]> keyCache;
+
+	private final byte[] command = new byte[2 + 6 + 4 + BLOCK_SIZE]; // Large enough for authenticate and write
+	private final byte[] response = new byte[BLOCK_SIZE];
+	private final byte[] selectedUid = new byte[MAX_UID_LENGTH];
+
+	private int authenticatedSector = -1; // Only within one operation, the card can be reselected or removed in between
+
+	private long lastElapsedNanos = 0;
+	private int lastExchanges = 0;
+	private int lastAuthentications = 0;
+
+	/**
+	 * Defaults to {@link Pn532MifareClassic#DEFAULT_CACHE_CAPACITY}.
+	 */
+	public Pn532MifareClassic(Pn532<T> pn532) {
+		this(pn532, DEFAULT_CACHE_CAPACITY);
+	}
+
+	/**
+	 * @param cacheCapacity the number of UIDs whose sector keys are remembered. The least recently used UID is dropped first.
+	 */
+	public Pn532MifareClassic(Pn532<T> pn532, int cacheCapacity) {
+		if (pn532 == null) {
+			throw new IllegalArgumentException("PN532MifareClassic constructed with null pn532.");
+		} else if (cacheCapacity < 1) {
+			throw new IllegalArgumentException("PN532MifareClassic constructed with cacheCapacity less than 1.");
+		}
+
+		this.pn532 = pn532;
+		this.keyCache = new LinkedHashMap<>(cacheCapacity * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Key[]> eldest) {
+				return size() > cacheCapacity;
+			}
+		};
+	}
+
+	/**
+	 * Sets the keys tried, in order, for sectors without a cached key. Defaults to {@link Key#DEFAULTS}.
+	 */
+	public void setKeys(Key... value) {
+		if (value == null || value.length == 0) {
+			throw new IllegalArgumentException(pn532.prefixMessage("MIFARE setKeys() called with no keys."));
+		}
+
+		keys.clear();
+		keys.addAll(Arrays.asList(value));
+	}
+
+	/**
+	 * @return the key that last authenticated {@code sector} of {@code uid}, or null if none is cached.
+	 */
+	public Key getCachedKey(byte[] uid, int sector) {
+		if (uid == null) {
+			throw new IllegalArgumentException(pn532.prefixMessage("MIFARE getCachedKey() called with null uid."));
+		}
+		checkSector(sector);
+
+		var sectorKeys = keyCache.get(ByteBuffer.wrap(uid));
+		return sectorKeys == null ? null : sectorKeys[sector];
+	}
+
+	public void clearCache() {
+		keyCache.clear();
+	}
+
+	public long getLastElapsedNanos() {
+		return lastElapsedNanos;
+	}
+
+	/**
+	 * @return the number of InDataExchange round trips made by the last operation, including authentications.
+	 */
+	public int getLastExchanges() {
+		return lastExchanges;
+	}
+
+	public int getLastAuthentications() {
+		return lastAuthentications;
+	}
+
+	/**
+	 * Reads every block of {@code sector}, including the sector trailer (the PN532 returns its keys masked), into {@code buffer}.
+	 *
+	 * @return the number of bytes read if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int readSector(byte[] uid, int sector, byte[] buffer, int offset) throws InterruptedException, IOException {
+		checkSector(sector);
+		return readBlocks(uid, getFirstBlock(sector), getBlockCount(sector), buffer, offset);
+	}
+
+	/**
+	 * Reads {@code count} blocks starting at {@code firstBlock}, authenticating each sector the range crosses once.
+	 *
+	 * @param uid the UID of the card activated by the last {@link Pn532#readPassiveTargetId(byte[])} call.
+	 * @return the number of bytes read ({@code count} * 16) if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int readBlocks(byte[] uid, int firstBlock, int count, byte[] buffer, int offset) throws InterruptedException, IOException {
+		checkRange(uid, firstBlock, count, buffer, offset);
+		start();
+
+		int result = count * BLOCK_SIZE;
+		for (int block = firstBlock; block < firstBlock + count; block++) {
+			int status = authenticate(uid, getSector(block));
+			if (status < 0) {
+				result = status;
+				break;
+			}
+
+			command[0] = COMMAND_READ;
+			command[1] = (byte) block;
+			status = exchange(2, BLOCK_SIZE);
+			if (status < 0) {
+				result = status;
+				break;
+			} else if (status != BLOCK_SIZE) {
+				reset();
+				pn532.log("MIFARE readBlocks() received " + status + " bytes for block " + block + ".");
+				result = Pn532TransferResult.INVALID_FRAME.getValue();
+				break;
+			}
+
+			System.arraycopy(response, 0, buffer, offset + (block - firstBlock) * BLOCK_SIZE, BLOCK_SIZE);
+		}
+
+		finish();
+		return result;
+	}
+
+	/**
+	 * Writes the data blocks of {@code sector} (every block but the sector trailer, and not block 0) from {@code buffer}.
+	 *
+	 * @return the number of bytes written if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int writeSector(byte[] uid, int sector, byte[] buffer, int offset) throws InterruptedException, IOException {
+		checkSector(sector);
+
+		int firstBlock = sector == 0 ? 1 : getFirstBlock(sector);
+		int count = getFirstBlock(sector) + getBlockCount(sector) - 1 - firstBlock;
+		return writeBlocks(uid, firstBlock, count, buffer, offset);
+	}
+
+	/**
+	 * Writes {@code count} blocks starting at {@code firstBlock}, authenticating each sector the range crosses once.
+	 * Block 0 and sector trailers can't be written through this method, since a bad trailer locks the sector for good.
+	 *
+	 * @return the number of bytes written ({@code count} * 16) if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int writeBlocks(byte[] uid, int firstBlock, int count, byte[] buffer, int offset) throws InterruptedException, IOException {
+		checkRange(uid, firstBlock, count, buffer, offset);
+		for (int block = firstBlock; block < firstBlock + count; block++) {
+			if (block == 0 || isTrailer(block)) {
+				throw new IllegalArgumentException(pn532.prefixMessage("MIFARE writeBlocks() called with block 0 or a sector trailer in range."));
+			}
+		}
+		start();
+
+		int result = count * BLOCK_SIZE;
+		for (int block = firstBlock; block < firstBlock + count; block++) {
+			int status = authenticate(uid, getSector(block));
+			if (status < 0) {
+				result = status;
+				break;
+			}
+
+			command[0] = COMMAND_WRITE;
+			command[1] = (byte) block;
+			System.arraycopy(buffer, offset + (block - firstBlock) * BLOCK_SIZE, command, 2, BLOCK_SIZE);
+			status = exchange(2 + BLOCK_SIZE, 0);
+			if (status < 0) {
+				result = status;
+				break;
+			}
+		}
+
+		finish();
+		return result;
+	}
+
+	public static int getSector(int block) {
+		return block < 128 ? block / 4 : 32 + (block - 128) / 16;
+	}
+
+	public static int getFirstBlock(int sector) {
+		return sector < 32 ? sector * 4 : 128 + (sector - 32) * 16;
+	}
+
+	public static int getBlockCount(int sector) {
+		return sector < 32 ? 4 : 16;
+	}
+
+	public static boolean isTrailer(int block) {
+		int sector = getSector(block);
+		return block == getFirstBlock(sector) + getBlockCount(sector) - 1;
+	}
+
+	private int authenticate(byte[] uid, int sector) throws InterruptedException, IOException {
+		if (sector == authenticatedSector) {
+			return 0;
+		}
+
+		var cacheKey = ByteBuffer.wrap(uid.clone());
+		var sectorKeys = keyCache.get(cacheKey);
+		var cached = sectorKeys == null ? null : sectorKeys[sector];
+
+		boolean reselect = false;
+		int status = Pn532TransferResult.STATUS_ERROR.getValue();
+		for (int i = cached == null ? 0 : -1; i < keys.size(); i++) {
+			var key = i < 0 ? cached : keys.get(i);
+			if (i >= 0 && key.equals(cached)) {
+				continue; // Already tried
+			}
+
+			if (reselect) { // A failed authentication halts the card, it has to be selected again
+				status = reselect(uid);
+				if (status < 0) {
+					return status;
+				}
+			}
+
+			status = authenticate(uid, sector, key);
+			if (status >= 0) {
+				if (sectorKeys == null) {
+					sectorKeys = new Key[SECTOR_COUNT_4K];
+					keyCache.put(cacheKey, sectorKeys);
+				}
+				sectorKeys[sector] = key;
+
+				authenticatedSector = sector;
+				return status;
+			} else if (status != Pn532TransferResult.STATUS_ERROR.getValue() || pn532.getLastStatus() != STATUS_AUTHENTICATION_ERROR) {
+				return status; // Not a wrong key, so the next one won't do any better
+			}
+
+			reselect = true;
+		}
+
+		if (sectorKeys != null) {
+			sectorKeys[sector] = null;
+		}
+		pn532.log("MIFARE authenticate() found no key for sector " + sector + ".");
+		return status;
+	}
+
+	private int authenticate(byte[] uid, int sector, Key key) throws InterruptedException, IOException {
+		lastAuthentications++;
+
+		command[0] = key.getType();
+		command[1] = (byte) getFirstBlock(sector);
+		System.arraycopy(key.value, 0, command, 2, 6);
+		System.arraycopy(uid, uid.length - 4, command, 8, 4); // The last 4 bytes for 7 byte UIDs, like libnfc
+
+		return exchange(12, 0);
+	}
+
+	private int reselect(byte[] uid) throws InterruptedException, IOException {
+		reset(); // Selecting drops the Crypto1 state
+		lastExchanges++;
+		int length = pn532.readPassiveTargetId(selectedUid);
+		if (length < 0) {
+			return length;
+		} else if (!Arrays.equals(selectedUid, 0, length, uid, 0, uid.length)) {
+			pn532.log("MIFARE reselect() found a different card.");
+			return Pn532TransferResult.UNDEFINED.getValue();
+		}
+
+		return 0;
+	}
+
+	private int exchange(int length, int maxLength) throws InterruptedException, IOException {
+		lastExchanges++;
+		int status = pn532.inDataExchange(TARGET, command, 0, length, response, 0, Math.max(maxLength, BLOCK_SIZE));
+		if (status < 0) {
+			reset(); // The card drops authentication on any error
+		}
+
+		return status;
+	}
+
+	private void checkSector(int sector) {
+		if (sector < 0 || sector >= SECTOR_COUNT_4K) {
+			throw new IllegalArgumentException(pn532.prefixMessage("MIFARE called with sector outside of 0 to " + (SECTOR_COUNT_4K - 1) + "."));
+		}
+	}
+
+	private void checkRange(byte[] uid, int firstBlock, int count, byte[] buffer, int offset) {
+		if (uid == null || uid.length < 4 || uid.length > MAX_UID_LENGTH) {
+			throw new IllegalArgumentException(pn532.prefixMessage("MIFARE called with a UID that isn't 4 to 10 bytes."));
+		} else if (firstBlock < 0 || count < 0 || firstBlock + count > getFirstBlock(SECTOR_COUNT_4K)) {
+			throw new IllegalArgumentException(pn532.prefixMessage("MIFARE called with blocks outside of 0 to 255."));
+		} else if (buffer == null || offset < 0 || offset + count * BLOCK_SIZE > buffer.length) {
+			throw new IllegalArgumentException(pn532.prefixMessage("MIFARE called with buffer too small for " + count + " blocks."));
+		}
+	}
+
+	private void start() {
+		reset();
+		lastElapsedNanos = System.nanoTime();
+		lastExchanges = 0;
+		lastAuthentications = 0;
+	}
+
+	private void finish() {
+		reset();
+		lastElapsedNanos = System.nanoTime() - lastElapsedNanos;
+	}
+
+	private void reset() {
+		authenticatedSector = -1;
+	}
+
+	/**
+	 * A MIFARE Classic key: which of the sector's 2 keys it is (A or B) and its 6 byte value.
+	 */
+	public static final class Key {
+
+		public static final Key DEFAULT = a(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF); // Transport configuration
+		public static final Key MAD = a(0xA0, 0xA1, 0xA2, 0xA3, 0xA4, 0xA5);
+		public static final Key NDEF = a(0xD3, 0xF7, 0xD3, 0xF7, 0xD3, 0xF7);
+		public static final List<Key> DEFAULTS = List.of(DEFAULT, MAD, NDEF);
+
+		private static final byte TYPE_A = 0x60;
+		private static final byte TYPE_B = 0x61;
+
+		private final byte type;
+		private final byte[] value;
+
+		private Key(byte type, byte[] value) {
+			if (value == null || value.length != 6) {
+				throw new IllegalArgumentException("PN532MifareClassic.Key constructed with a value that isn't 6 bytes.");
+			}
+
+			this.type = type;
+			this.value = value.clone();
+		}
+
+		public static Key a(byte[] value) {
+			return new Key(TYPE_A, value);
+		}
+
+		public static Key b(byte[] value) {
+			return new Key(TYPE_B, value);
+		}
+
+		private static Key a(int... value) {
+			var bytes = new byte[value.length];
+			for (int i = 0; i < value.length; i++) {
+				bytes[i] = (byte) value[i];
+			}
+			return a(bytes);
+		}
+
+		public boolean isKeyA() {
+			return type == TYPE_A;
+		}
+
+		byte getType() {
+			return type;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			} else if (!(object instanceof Key)) {
+				return false;
+			}
+
+			var other = (Key) object;
+			return type == other.type && Arrays.equals(value, other.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * type + Arrays.hashCode(value);
+		}
+
+		@Override
+		public String toString() {
+			return "Key" + (isKeyA() ? "A" : "B") + "[...]"; // Not printing key values into logs
+		}
+	}
+}
@@ -0,0 +1,411 @@
+package mk.hsilomedus.pn532;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor over the NDEF records in Type 2 tag memory (the TLV area starting at page 4), reading in place without copying.
+ * {@link #next()} moves to the next record, after which the accessors describe it as offsets into the buffer;
+ * {@link #getPayload()} and {@link #getType()} only create a view when called. Short and long records are supported, as
+ * are chunked records, whose continuation chunks report the type of the first chunk.
+ *
+ * <p>Parsing can start before the whole tag is read: pass how many bytes are valid so far, and {@link #next()} returns
+ * {@link Result#NEED_MORE} instead of reading past them. Call {@link #setAvailable(int)} as more pages arrive (see
+ * {@link Pn532Ntag#readAll(java.util.function.IntConsumer)}) and {@link #next()} again.
+ *
+ * <p>One parser can be reused for any number of tags through the reset methods.
+ */
+public final class Pn532NdefParser {
+
+	public enum Result {
+		/** A record is available through the accessors. */
+		RECORD,
+		/** The next TLV or record runs past the available bytes. */
+		NEED_MORE,
+		/** A Terminator TLV or the end of the buffer was reached. */
+		END,
+		/** The data isn't valid TLV/NDEF, nothing more can be read. */
+		MALFORMED
+	}
+
+	public static final int TNF_EMPTY = 0x00;
+	public static final int TNF_WELL_KNOWN = 0x01;
+	public static final int TNF_MEDIA = 0x02;
+	public static final int TNF_ABSOLUTE_URI = 0x03;
+	public static final int TNF_EXTERNAL = 0x04;
+	public static final int TNF_UNKNOWN = 0x05;
+	public static final int TNF_UNCHANGED = 0x06;
+
+	/** Where the TLV area starts in Type 2 tag memory read from page 0. */
+	public static final int TYPE_2_TLV_OFFSET = 16;
+
+	private static final int TLV_NULL = 0x00;
+	private static final int TLV_NDEF = 0x03;
+	private static final int TLV_TERMINATOR = 0xFE;
+
+	private static final int FLAG_MB = 0x80;
+	private static final int FLAG_ME = 0x40;
+	private static final int FLAG_CF = 0x20;
+	private static final int FLAG_SR = 0x10;
+	private static final int FLAG_IL = 0x08;
+
+	private ByteBuffer buffer = null;
+	private byte[] array = null; // Array behind buffer when reset with one, so resets with the same array don't allocate
+	private int end = 0;
+	private int available = 0;
+
+	private int position = 0;
+	private int messageEnd = -1; // -1 while outside of an NDEF TLV
+	private boolean done = false;
+
+	private int header = 0;
+	private int typeOffset = 0;
+	private int typeLength = 0;
+	private int idOffset = 0;
+	private int idLength = 0;
+	private int payloadOffset = 0;
+	private int payloadLength = 0;
+
+	private boolean inChunk = false;
+	private int chunkTnf = 0;
+	private int chunkTypeOffset = 0;
+	private int chunkTypeLength = 0;
+
+	/**
+	 * Starts parsing TLVs at {@code memory[offset]}, with {@code memory[offset]} to {@code memory[available - 1]} valid so far.
+	 * For memory read from page 0 of a Type 2 tag, {@code offset} is {@link Pn532NdefParser#TYPE_2_TLV_OFFSET}.
+	 * {@code available} can be less than {@code offset} (0 before anything is read), {@link #next()} then returns
+	 * {@link Result#NEED_MORE} until {@link #setAvailable(int)} passes it.
+	 */
+	public Pn532NdefParser reset(byte[] memory, int offset, int available) {
+		if (memory == null) {
+			throw new IllegalArgumentException("PN532NdefParser.reset() called with null memory.");
+		}
+
+		if (memory != array) {
+			array = memory;
+			buffer = ByteBuffer.wrap(memory);
+		}
+		return reset(offset, memory.length, available);
+	}
+
+	/**
+	 * Starts parsing TLVs at {@code buffer.position()}, with everything up to {@code buffer.limit()} valid. The buffer's
+	 * position and limit aren't changed, so {@link #setAvailable(int)} can extend the valid region up to its capacity.
+	 */
+	public Pn532NdefParser reset(ByteBuffer value) {
+		if (value == null) {
+			throw new IllegalArgumentException("PN532NdefParser.reset() called with null buffer.");
+		}
+
+		array = null;
+		buffer = value;
+		return reset(value.position(), value.capacity(), value.limit());
+	}
+
+	/**
+	 * Starts parsing a bare NDEF message (no TLV around it) at {@code buffer.position()} up to {@code buffer.limit()}, as
+	 * returned by ISO-DEP (Type 4) tags or written to files.
+	 */
+	public Pn532NdefParser resetMessage(ByteBuffer value) {
+		reset(value);
+		end = value.limit();
+		messageEnd = value.limit();
+		return this;
+	}
+
+	private Pn532NdefParser reset(int offset, int capacity, int valid) {
+		if (offset < 0 || offset > capacity || valid < 0 || valid > capacity) {
+			throw new IllegalArgumentException("PN532NdefParser.reset() called with offset and available outside of the buffer.");
+		}
+
+		end = capacity;
+		available = valid;
+		position = offset;
+		messageEnd = -1;
+		done = false;
+		inChunk = false;
+		header = 0;
+		typeOffset = typeLength = idOffset = idLength = payloadOffset = payloadLength = 0;
+		return this;
+	}
+
+	/**
+	 * @param value the index in the buffer up to which bytes are now valid. Can only grow.
+	 */
+	public void setAvailable(int value) {
+		if (value < available || value > end) {
+			throw new IllegalArgumentException("PN532NdefParser.setAvailable() called with a value less than before or past the buffer.");
+		}
+
+		available = value;
+	}
+
+	/**
+	 * Stops parsing at {@code value} rather than at the end of the buffer, for a buffer larger than what it holds (like
+	 * {@link Pn532Ntag#getMemory()}, up to {@link Pn532Ntag#getMemoryLength()}). A TLV or record running past it is
+	 * {@link Result#MALFORMED}, and reaching it is {@link Result#END}.
+	 *
+	 * @param value the index in the buffer where the data ends. Can only shrink, and not below what is available.
+	 */
+	public void setEnd(int value) {
+		if (value < available || value > end) {
+			throw new IllegalArgumentException("PN532NdefParser.setEnd() called with a value less than available or past the end.");
+		}
+
+		end = value;
+	}
+
+	/**
+	 * Moves to the next record. On {@link Result#NEED_MORE} nothing is consumed, so the call can be repeated once more
+	 * bytes are available.
+	 */
+	public Result next() {
+		if (buffer == null) {
+			throw new IllegalStateException("PN532NdefParser.next() called without calling reset().");
+		} else if (done) {
+			return Result.END;
+		}
+
+		while (true) {
+			if (messageEnd < 0) {
+				var result = nextTlv();
+				if (result != null) {
+					return result;
+				}
+			} else if (position >= messageEnd) {
+				if (position > messageEnd) {
+					return malformed();
+				}
+				messageEnd = -1; // Message done, there may be another NDEF TLV after it
+				if (position >= end) {
+					done = true;
+					return Result.END;
+				}
+			} else {
+				return nextRecord();
+			}
+		}
+	}
+
+	// Returns null once inside an NDEF TLV, so the caller moves on to records
+	private Result nextTlv() {
+		while (true) {
+			if (position >= end) {
+				done = true;
+				return Result.END;
+			} else if (position >= available) {
+				return Result.NEED_MORE;
+			}
+
+			int tag = get(position);
+			if (tag == TLV_NULL) {
+				position++;
+				continue;
+			} else if (tag == TLV_TERMINATOR) {
+				done = true;
+				return Result.END;
+			}
+
+			int length;
+			int valueOffset;
+			if (position + 2 > available) {
+				return position + 2 > end ? malformed() : Result.NEED_MORE;
+			} else if (get(position + 1) == 0xFF) { // 3 byte length format
+				if (position + 4 > available) {
+					return position + 4 > end ? malformed() : Result.NEED_MORE;
+				}
+				length = (get(position + 2) << 8) | get(position + 3);
+				valueOffset = position + 4;
+			} else {
+				length = get(position + 1);
+				valueOffset = position + 2;
+			}
+
+			if (valueOffset + length > end) {
+				return malformed();
+			}
+
+			position = valueOffset;
+			if (tag == TLV_NDEF) {
+				messageEnd = valueOffset + length;
+				inChunk = false;
+				return null;
+			}
+
+			position += length; // Lock Control, Memory Control, and proprietary TLVs are skipped
+		}
+	}
+
+	private Result nextRecord() {
+		if (position + 3 > available) {
+			return position + 3 > messageEnd ? malformed() : Result.NEED_MORE;
+		}
+
+		int flags = get(position);
+		int i = position + 1;
+		int newTypeLength = get(i++);
+
+		long newPayloadLength;
+		if ((flags & FLAG_SR) != 0) {
+			newPayloadLength = get(i++);
+		} else {
+			if (i + 4 > available) {
+				return i + 4 > messageEnd ? malformed() : Result.NEED_MORE;
+			}
+			newPayloadLength = ((long) get(i) << 24) | (get(i + 1) << 16) | (get(i + 2) << 8) | get(i + 3);
+			i += 4;
+		}
+
+		int newIdLength = 0;
+		if ((flags & FLAG_IL) != 0) {
+			if (i + 1 > available) {
+				return i + 1 > messageEnd ? malformed() : Result.NEED_MORE;
+			}
+			newIdLength = get(i++);
+		}
+
+		long recordEnd = i + newTypeLength + newIdLength + newPayloadLength;
+		if (recordEnd > messageEnd) {
+			return malformed();
+		} else if (recordEnd > available) {
+			return Result.NEED_MORE;
+		}
+
+		int tnf = flags & 0x07;
+		if (inChunk ? tnf != TNF_UNCHANGED || newTypeLength != 0 : tnf == TNF_UNCHANGED) {
+			return malformed(); // Continuation chunks must be TNF_UNCHANGED with no type, and only they can be
+		}
+
+		header = flags;
+		typeOffset = i;
+		typeLength = newTypeLength;
+		idOffset = i + newTypeLength;
+		idLength = newIdLength;
+		payloadOffset = idOffset + newIdLength;
+		payloadLength = (int) newPayloadLength;
+		position = (int) recordEnd;
+
+		if (!inChunk && (flags & FLAG_CF) != 0) {
+			inChunk = true;
+			chunkTnf = tnf;
+			chunkTypeOffset = typeOffset;
+			chunkTypeLength = typeLength;
+		} else if (inChunk && (flags & FLAG_CF) == 0) {
+			inChunk = false; // Last chunk, accessors still report the first chunk's type below
+			header |= FLAG_CF << 8;
+		}
+
+		return Result.RECORD;
+	}
+
+	public boolean isMessageBegin() {
+		return (header & FLAG_MB) != 0;
+	}
+
+	public boolean isMessageEnd() {
+		return (header & FLAG_ME) != 0;
+	}
+
+	/**
+	 * @return true if the current record is a chunk of a larger payload, including the last chunk.
+	 */
+	public boolean isChunk() {
+		return inChunk || isLastChunk();
+	}
+
+	/**
+	 * @return true if the current record is the last chunk of a chunked payload.
+	 */
+	public boolean isLastChunk() {
+		return (header & (FLAG_CF << 8)) != 0;
+	}
+
+	/**
+	 * @return the TNF, taken from the first chunk for continuation chunks.
+	 */
+	public int getTnf() {
+		int tnf = header & 0x07;
+		return tnf == TNF_UNCHANGED ? chunkTnf : tnf;
+	}
+
+	/**
+	 * @return the index of the record type in the buffer, taken from the first chunk for continuation chunks.
+	 */
+	public int getTypeOffset() {
+		return isContinuation() ? chunkTypeOffset : typeOffset;
+	}
+
+	public int getTypeLength() {
+		return isContinuation() ? chunkTypeLength : typeLength;
+	}
+
+	public int getIdOffset() {
+		return idOffset;
+	}
+
+	public int getIdLength() {
+		return idLength;
+	}
+
+	public int getPayloadOffset() {
+		return payloadOffset;
+	}
+
+	public int getPayloadLength() {
+		return payloadLength;
+	}
+
+	/**
+	 * @return true if the record type equals {@code type}, without creating a view, for example {@code 'U'} for a URI record.
+	 */
+	public boolean isType(byte... type) {
+		int offset = getTypeOffset();
+		if (type.length != getTypeLength()) {
+			return false;
+		}
+
+		for (int i = 0; i < type.length; i++) {
+			if (buffer.get(offset + i) != type[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return a read-only view of the record type. The bytes aren't copied.
+	 */
+	public ByteBuffer getType() {
+		return view(getTypeOffset(), getTypeLength());
+	}
+
+	public ByteBuffer getId() {
+		return view(idOffset, idLength);
+	}
+
+	/**
+	 * @return a read-only view of the payload. The bytes aren't copied, so the view changes if the buffer is reused.
+	 */
+	public ByteBuffer getPayload() {
+		return view(payloadOffset, payloadLength);
+	}
+
+	private boolean isContinuation() {
+		return (header & 0x07) == TNF_UNCHANGED;
+	}
+
+	private ByteBuffer view(int offset, int length) {
+		var view = buffer.asReadOnlyBuffer();
+		view.limit(offset + length).position(offset);
+		return view.slice();
+	}
+
+	private int get(int index) {
+		return buffer.get(index) & 0xFF;
+	}
+
+	private Result malformed() {
+		done = true;
+		return Result.MALFORMED;
+	}
+}
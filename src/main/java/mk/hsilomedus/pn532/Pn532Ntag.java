@@ -0,0 +1,299 @@
+package mk.hsilomedus.pn532;
+
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+import com.pi4j.io.IO;
+
+/**
+ * Reads NTAG21x and MIFARE Ultralight memory with FAST_READ through {@link Pn532#inCommunicateThru}, pulling as many
+ * pages per exchange as fit in a frame instead of the 4 pages a READ returns. An NTAG215 takes 3 FAST_READs (plus
+ * GET_VERSION to detect it) rather than 34 READs. The memory image goes into a buffer owned by this object, reused by
+ * every read. Timing and exchange counts of the last operation are available like in {@link Pn532MifareClassic}.
+ * Not thread safe, like {@link Pn532}.
+ */
+public final class Pn532Ntag<T extends IO<T, ?, ?>> {
+
+	public static final int PAGE_SIZE = 4;
+	/** The most pages a FAST_READ response can carry in one (extended) frame, after the status byte. */
+	public static final int MAX_PAGES_PER_READ = (Pn532Connection.MAX_RESPONSE_LENGTH - 1) / PAGE_SIZE;
+
+	private static final byte COMMAND_GET_VERSION = 0x60;
+	private static final byte COMMAND_READ = 0x30;
+	private static final byte COMMAND_FAST_READ = 0x3A;
+	private static final int READ_PAGES = 4; // READ always returns 4 pages
+	private static final int VERSION_LENGTH = 8;
+
+	public enum Variant {
+		ULTRALIGHT(16, false),
+		ULTRALIGHT_EV1_MF0UL11(20, true),
+		ULTRALIGHT_EV1_MF0UL21(41, true),
+		NTAG213(45, true),
+		NTAG215(135, true),
+		NTAG216(231, true);
+
+		private final int pages;
+		private final boolean fastRead;
+
+		Variant(int pages, boolean fastRead) {
+			this.pages = pages;
+			this.fastRead = fastRead;
+		}
+
+		/**
+		 * @return the total number of pages, including the configuration pages at the end.
+		 */
+		public int getPages() {
+			return pages;
+		}
+
+		public boolean supportsFastRead() {
+			return fastRead;
+		}
+	}
+
+	private final Pn532<T> pn532;
+	private final byte[] memory = new byte[Variant.NTAG216.getPages() * PAGE_SIZE];
+	private final byte[] command = new byte[3];
+	private final byte[] version = new byte[VERSION_LENGTH];
+	private final byte[] scratch = new byte[READ_PAGES * PAGE_SIZE];
+	private final byte[] uid = new byte[10];
+
+	private int pagesPerRead = MAX_PAGES_PER_READ;
+	private IntConsumer progress = null;
+	private int memoryLength = 0;
+
+	private long lastElapsedNanos = 0;
+	private int lastExchanges = 0;
+
+	public Pn532Ntag(Pn532<T> pn532) {
+		if (pn532 == null) {
+			throw new IllegalArgumentException("PN532Ntag constructed with null pn532.");
+		}
+
+		this.pn532 = pn532;
+	}
+
+	public int getPagesPerRead() {
+		return pagesPerRead;
+	}
+
+	/**
+	 * Caps the pages requested by each FAST_READ. Defaults to {@link Pn532Ntag#MAX_PAGES_PER_READ}; lower it if a reader
+	 * or tag can't handle responses that large.
+	 */
+	public void setPagesPerRead(int value) {
+		if (value < 1 || value > MAX_PAGES_PER_READ) {
+			throw new IllegalArgumentException(pn532.prefixMessage("NTAG setPagesPerRead() called with value outside of 1 to " + MAX_PAGES_PER_READ + "."));
+		}
+
+		pagesPerRead = value;
+	}
+
+	public long getLastElapsedNanos() {
+		return lastElapsedNanos;
+	}
+
+	/**
+	 * @return the number of InCommunicateThru (and reselect) round trips made by the last operation.
+	 */
+	public int getLastExchanges() {
+		return lastExchanges;
+	}
+
+	/**
+	 * Sends GET_VERSION to the tag selected by the last {@link Pn532#readPassiveTargetId(byte[])} call. A tag that doesn't
+	 * answer it is taken to be an original Ultralight, and is selected again since the failed command halts it.
+	 *
+	 * @return the variant, or null if it couldn't be determined (see {@link #getLastElapsedNanos()} for the time taken).
+	 */
+	public Variant getVariant() throws InterruptedException, IOException {
+		start();
+		var variant = detect();
+		finish();
+		return variant;
+	}
+
+	/**
+	 * Detects the variant and reads its whole memory into the buffer returned by {@link #getMemory()}.
+	 *
+	 * @return the number of bytes read if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int readAll() throws InterruptedException, IOException {
+		return readAll(null);
+	}
+
+	/**
+	 * Same as {@link #readAll()}, calling {@code progress} after every exchange with the number of bytes from the start of
+	 * the memory that are valid so far. Pass them to {@link Pn532NdefParser#setAvailable(int)} to parse the first records
+	 * while the rest of the tag is still being read. {@link #getMemoryLength()} is already set on the first call.
+	 */
+	public int readAll(IntConsumer progress) throws InterruptedException, IOException {
+		start();
+		this.progress = progress;
+		memoryLength = 0;
+
+		int result;
+		var variant = detect();
+		if (variant == null) {
+			result = Pn532TransferResult.UNDEFINED.getValue();
+		} else {
+			memoryLength = variant.getPages() * PAGE_SIZE;
+			result = read(variant, 0, variant.getPages());
+			if (result < 0) {
+				memoryLength = 0;
+			}
+		}
+		this.progress = null;
+
+		finish();
+		return result;
+	}
+
+	/**
+	 * Reads {@code count} pages starting at {@code firstPage} into the buffer returned by {@link #getMemory()}, at
+	 * {@code firstPage * 4}. Uses FAST_READ unless {@code variant} is an original Ultralight.
+	 *
+	 * @return the number of bytes read if successful, or a {@link Pn532TransferResult} value otherwise.
+	 */
+	public int readPages(Variant variant, int firstPage, int count) throws InterruptedException, IOException {
+		if (variant == null) {
+			throw new IllegalArgumentException(pn532.prefixMessage("NTAG readPages() called with null variant."));
+		} else if (firstPage < 0 || count < 1 || firstPage + count > variant.getPages()) {
+			throw new IllegalArgumentException(pn532.prefixMessage("NTAG readPages() called with pages outside of 0 to " + (variant.getPages() - 1) + "."));
+		}
+
+		start();
+		memoryLength = 0;
+		int result = read(variant, firstPage, count);
+		if (result > 0 && firstPage == 0) {
+			memoryLength = result;
+		}
+		finish();
+		return result;
+	}
+
+	/**
+	 * @return the buffer holding the last pages read. It's reused by every read, so copy what needs to be kept. It's sized
+	 * for the largest variant and never cleared: only the first {@link #getMemoryLength()} bytes belong to the last tag.
+	 */
+	public byte[] getMemory() {
+		return memory;
+	}
+
+	/**
+	 * @return the number of bytes from the start of {@link #getMemory()} that belong to the last tag read: its whole
+	 * memory for {@link #readAll()}, the pages read for {@link #readPages(Variant, int, int)} from page 0, or 0 if the
+	 * read failed or didn't start at page 0. Use it as the end of a {@link Pn532NdefParser}, so bytes left over from a
+	 * larger tag aren't parsed.
+	 */
+	public int getMemoryLength() {
+		return memoryLength;
+	}
+
+	private Variant detect() throws InterruptedException, IOException {
+		command[0] = COMMAND_GET_VERSION;
+
+		lastExchanges++;
+		int length = pn532.inCommunicateThru(command, 0, 1, version, 0, VERSION_LENGTH);
+		if (length == Pn532TransferResult.STATUS_ERROR.getValue()) {
+			lastExchanges++;
+			if (pn532.readPassiveTargetId(uid) <= 0) {
+				pn532.log("NTAG detect() couldn't select the tag again after GET_VERSION failed.");
+				return null;
+			}
+			return Variant.ULTRALIGHT;
+		} else if (length != VERSION_LENGTH) {
+			pn532.log("NTAG detect() GET_VERSION returned " + length + ".");
+			return null;
+		}
+
+		/*
+		 * byte    Description
+		 * ------- ------------------------------------------
+		 * b0      Fixed header
+		 * b1      Vendor ID (04 for NXP)
+		 * b2      Product type (03 for Ultralight, 04 for NTAG)
+		 * b3..5   Product subtype, major and minor version
+		 * b6      Storage size
+		 * b7      Protocol type
+		 */
+
+		int type = version[2];
+		int size = version[6];
+		if (type == 0x04 && size == 0x0F) {
+			return Variant.NTAG213;
+		} else if (type == 0x04 && size == 0x11) {
+			return Variant.NTAG215;
+		} else if (type == 0x04 && size == 0x13) {
+			return Variant.NTAG216;
+		} else if (type == 0x03 && size == 0x0B) {
+			return Variant.ULTRALIGHT_EV1_MF0UL11;
+		} else if (type == 0x03 && size == 0x0E) {
+			return Variant.ULTRALIGHT_EV1_MF0UL21;
+		}
+
+		if (Pn532Utility.isLogEnabled()) {
+			pn532.log("NTAG detect() doesn't know GET_VERSION " + Pn532Utility.getByteHexString(version) + ".");
+		}
+		return null;
+	}
+
+	private int read(Variant variant, int firstPage, int count) throws InterruptedException, IOException {
+		int step = variant.supportsFastRead() ? pagesPerRead : READ_PAGES;
+		for (int page = firstPage; page < firstPage + count; page += step) {
+			int pages = Math.min(step, firstPage + count - page);
+			int offset = page * PAGE_SIZE;
+
+			int length;
+			lastExchanges++;
+			if (variant.supportsFastRead()) {
+				command[0] = COMMAND_FAST_READ;
+				command[1] = (byte) page;
+				command[2] = (byte) (page + pages - 1);
+				length = pn532.inCommunicateThru(command, 0, 3, memory, offset, pages * PAGE_SIZE);
+			} else {
+				command[0] = COMMAND_READ;
+				command[1] = (byte) page;
+				length = readFourPages(pages, offset);
+			}
+
+			if (length < 0) {
+				return length;
+			} else if (length != pages * PAGE_SIZE) {
+				pn532.log("NTAG read() received " + length + " bytes for " + pages + " pages at page " + page + ".");
+				return Pn532TransferResult.INVALID_FRAME.getValue();
+			}
+
+			if (progress != null && firstPage == 0) {
+				progress.accept(offset + length);
+			}
+		}
+
+		return count * PAGE_SIZE;
+	}
+
+	// READ always returns 4 pages (wrapping around at the end), so fewer than 4 go through scratch to avoid overwriting the next ones
+	private int readFourPages(int pages, int offset) throws InterruptedException, IOException {
+		if (pages == READ_PAGES) {
+			return pn532.inCommunicateThru(command, 0, 2, memory, offset, READ_PAGES * PAGE_SIZE);
+		}
+
+		int length = pn532.inCommunicateThru(command, 0, 2, scratch, 0, READ_PAGES * PAGE_SIZE);
+		if (length != READ_PAGES * PAGE_SIZE) {
+			return length;
+		}
+
+		System.arraycopy(scratch, 0, memory, offset, pages * PAGE_SIZE);
+		return pages * PAGE_SIZE;
+	}
+
+	private void start() {
+		lastElapsedNanos = System.nanoTime();
+		lastExchanges = 0;
+	}
+
+	private void finish() {
+		lastElapsedNanos = System.nanoTime() - lastElapsedNanos;
+	}
+}
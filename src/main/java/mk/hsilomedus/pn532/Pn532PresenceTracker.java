@@ -0,0 +1,184 @@
+package mk.hsilomedus.pn532;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+/**
+ * Turns the stream of UIDs from polling into card arrival and departure events. A card that's missed for fewer than
+ * {@code departureDelay} milliseconds (a bad read, or a card held at the edge of the field) is still considered present,
+ * and {@link Pn532SamThreadListener#uidReceived} is only repeated every {@code reportInterval} milliseconds while it stays.
+ * The number of tracked cards is bounded; when it's full, the card seen least recently is reported as departed.
+ * Not thread safe, each reader should have its own tracker.
+ */
+public final class Pn532PresenceTracker {
+
+	public static final int DEFAULT_DEPARTURE_DELAY = 500;
+	public static final int DEFAULT_REPORT_INTERVAL = 0;
+	public static final int DEFAULT_CAPACITY = 16;
+
+	private final long departureDelay;
+	private final long reportInterval;
+	private final int capacity;
+	private final LongSupplier clock;
+
+	// Access order, so the eldest entry is the card seen least recently
+	private final LinkedHashMap<ByteBuffer, Card> cards;
+	// Looks cards up without wrapping every UID polled, ByteBuffer equality only compares the remaining bytes
+	private final byte[] keyBytes = new byte[Pn532Uid.MAX_LENGTH];
+	private final ByteBuffer key = ByteBuffer.wrap(keyBytes);
+	// No card can depart before this, so expire() only walks the cards once one might. Only moves later in expire().
+	private long nextExpiry = 0;
+
+	/**
+	 * Defaults to {@link Pn532PresenceTracker#DEFAULT_DEPARTURE_DELAY}, {@link Pn532PresenceTracker#DEFAULT_REPORT_INTERVAL},
+	 * and {@link Pn532PresenceTracker#DEFAULT_CAPACITY}.
+	 */
+	public Pn532PresenceTracker() {
+		this(DEFAULT_DEPARTURE_DELAY, DEFAULT_REPORT_INTERVAL, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param departureDelay milliseconds a card must go unseen before it's reported as departed.
+	 * @param reportInterval milliseconds between repeated {@link Pn532SamThreadListener#uidReceived} calls for a card that stays
+	 *     in the field. 0 reports it only when it arrives.
+	 * @param capacity the maximum number of cards tracked at once.
+	 */
+	public Pn532PresenceTracker(int departureDelay, int reportInterval, int capacity) {
+		this(departureDelay, reportInterval, capacity, System::nanoTime);
+	}
+
+	/**
+	 * @param clock returns the time in nanoseconds, {@link System#nanoTime()} outside of tests.
+	 */
+	Pn532PresenceTracker(int departureDelay, int reportInterval, int capacity, LongSupplier clock) {
+		if (departureDelay < 0 || reportInterval < 0) {
+			throw new IllegalArgumentException("PN532PresenceTracker constructed with negative departureDelay or reportInterval.");
+		} else if (capacity < 1) {
+			throw new IllegalArgumentException("PN532PresenceTracker constructed with capacity less than 1.");
+		}
+
+		this.departureDelay = TimeUnit.MILLISECONDS.toNanos(departureDelay);
+		this.reportInterval = TimeUnit.MILLISECONDS.toNanos(reportInterval);
+		this.capacity = capacity;
+		this.clock = clock;
+		this.cards = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+	}
+
+	/**
+	 * Records that {@code uid} was read, calling {@link Pn532SamThreadListener#cardArrived} and
+	 * {@link Pn532SamThreadListener#uidReceived} if it's new, or just {@code uidReceived} if the report interval has passed.
+	 */
+	public void seen(String displayName, byte[] uid, Pn532SamThreadListener listener) {
+		if (uid == null) {
+			throw new IllegalArgumentException("PN532PresenceTracker.seen() called with null uid.");
+		}
+
+		seen(displayName, uid, 0, uid.length, listener);
+	}
+
+	/**
+	 * Same as {@link #seen(String, byte[], Pn532SamThreadListener)} with the UID in {@code buffer[offset]} to
+	 * {@code buffer[offset + length - 1]}, only copied when a card arrives. Reports go to
+	 * {@link Pn532SamThreadListener#uidReceived(String, byte[], int, int)}, so a card that stays in the field costs no
+	 * allocation with a listener that overrides it.
+	 */
+	public void seen(String displayName, byte[] buffer, int offset, int length, Pn532SamThreadListener listener) {
+		if (buffer == null || offset < 0 || length < 1 || offset > buffer.length - length) {
+			throw new IllegalArgumentException("PN532PresenceTracker.seen() called with offset and length outside of buffer.");
+		}
+
+		long now = clock.getAsLong();
+
+		var card = cards.get(key(buffer, offset, length));
+		if (card != null) {
+			card.lastSeen = now;
+			if (reportInterval > 0 && now - card.lastReported >= reportInterval) {
+				card.lastReported = now;
+				listener.uidReceived(displayName, card.uid, 0, card.uid.length);
+			}
+			return;
+		}
+
+		if (cards.size() >= capacity) {
+			var eldest = cards.entrySet().iterator().next();
+			cards.remove(eldest.getKey());
+			listener.cardDeparted(displayName, eldest.getValue().uid.clone());
+		}
+
+		card = new Card(Arrays.copyOfRange(buffer, offset, offset + length), now);
+		cards.put(ByteBuffer.wrap(card.uid), card);
+		if (cards.size() == 1) {
+			nextExpiry = now + departureDelay; // Otherwise a card seen earlier departs first
+		}
+		listener.cardArrived(displayName, card.uid.clone());
+		listener.uidReceived(displayName, card.uid, 0, card.uid.length);
+	}
+
+	/**
+	 * Calls {@link Pn532SamThreadListener#cardDeparted} for every card that hasn't been seen for the departure delay.
+	 * Call it after every poll, whether or not anything was read.
+	 */
+	public void expire(String displayName, Pn532SamThreadListener listener) {
+		long now = clock.getAsLong();
+		if (cards.isEmpty() || now - nextExpiry < 0) {
+			return; // The usual case on every poll, without creating an iterator
+		}
+
+		Iterator<Map.Entry<ByteBuffer, Card>> iterator = cards.entrySet().iterator();
+		Card earliest = null;
+		while (iterator.hasNext()) {
+			var card = iterator.next().getValue();
+			if (now - card.lastSeen >= departureDelay) {
+				iterator.remove();
+				listener.cardDeparted(displayName, card.uid.clone());
+			} else if (earliest == null) {
+				earliest = card; // Access order, so the first card left is the one seen least recently
+			}
+		}
+		if (earliest != null) {
+			nextExpiry = earliest.lastSeen + departureDelay;
+		}
+	}
+
+	/**
+	 * @return the number of cards currently considered present.
+	 */
+	public int size() {
+		return cards.size();
+	}
+
+	/**
+	 * Forgets every card without reporting departures, so cards still in the field arrive again.
+	 */
+	public void clear() {
+		cards.clear();
+	}
+
+	private ByteBuffer key(byte[] buffer, int offset, int length) {
+		if (length > keyBytes.length) {
+			return ByteBuffer.wrap(buffer, offset, length);
+		}
+
+		System.arraycopy(buffer, offset, keyBytes, 0, length);
+		return key.limit(length).position(0);
+	}
+
+	private static final class Card {
+		private final byte[] uid;
+		private long lastSeen;
+		private long lastReported;
+
+		Card(byte[] uid, long now) {
+			this.uid = uid;
+			this.lastSeen = now;
+			this.lastReported = now;
+		}
+	}
+}
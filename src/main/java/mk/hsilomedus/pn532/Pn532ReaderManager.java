@@ -0,0 +1,246 @@
+package mk.hsilomedus.pn532;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.pi4j.io.IO;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+/**
+ * Runs the same initialize, firmware, SAM config, and poll sequence as {@link Pn532SamThread} for many readers on a small
+ * number of threads rather than one thread per reader. Each step of each reader is a separate task: a single scheduler
+ * thread handles the delays between steps, and the blocking I/O runs on a worker executor with a FIFO queue, so readers
+ * take turns. On Java 21+ the workers are virtual threads.
+ */
+public final class Pn532ReaderManager implements AutoCloseable {
+
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_POLL_INTERVAL = 100;
+
+	private static final int CLOSE_TIMEOUT = 5000;
+	private static final int STOP_TIMEOUT = 1000;
+
+	private final Pn532SamThreadListener listener;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService workers;
+	private final List<Reader<?>> readers = new CopyOnWriteArrayList<>();
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Defaults to {@link Pn532ReaderManager#DEFAULT_THREADS}.
+	 */
+	public Pn532ReaderManager(Pn532SamThreadListener listener) {
+		this(listener, DEFAULT_THREADS);
+	}
+
+	/**
+	 * @param threads the number of worker threads doing I/O, which bounds how many readers can be mid-transaction at once.
+	 */
+	public Pn532ReaderManager(Pn532SamThreadListener listener, int threads) {
+		if (listener == null) {
+			throw new IllegalArgumentException("PN532ReaderManager constructed with null listener.");
+		} else if (threads < 1) {
+			throw new IllegalArgumentException("PN532ReaderManager constructed with less than 1 thread.");
+		}
+
+		this.listener = listener;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "pn532-scheduler"));
+		this.workers = Pn532Executors.newWorkerExecutor(threads, "pn532-worker");
+	}
+
+	/**
+	 * Same as {@link #addReader(Pn532Connection, int)} with {@link Pn532ReaderManager#DEFAULT_POLL_INTERVAL}.
+	 */
+	public <T extends IO<T, ?, ?>> void addReader(Pn532Connection<T> connection) {
+		addReader(connection, DEFAULT_POLL_INTERVAL);
+	}
+
+	/**
+	 * Starts initializing and then polling {@code connection}. The connection is closed when it fails or when the manager is closed.
+	 *
+	 * @param pollInterval the delay in milliseconds between the end of one poll and the start of the next.
+	 */
+	public <T extends IO<T, ?, ?>> void addReader(Pn532Connection<T> connection, int pollInterval) {
+		if (closed) {
+			throw new IllegalStateException("PN532ReaderManager.addReader() called after close().");
+		} else if (connection == null) {
+			throw new IllegalArgumentException("PN532ReaderManager.addReader() called with null connection.");
+		} else if (pollInterval < 0) {
+			throw new IllegalArgumentException("PN532ReaderManager.addReader() called with negative pollInterval.");
+		}
+
+		var reader = new Reader<>(new Pn532<>(connection), pollInterval);
+		readers.add(reader);
+		workers.execute(reader);
+	}
+
+	/**
+	 * Stops polling, waits for in-flight transactions to finish, and closes every reader's connection. Returns within about
+	 * 6 seconds even if a transaction hangs: the connection of a reader still stuck after that is closed on another thread,
+	 * like {@link Pn532Supervisor} does, which usually unblocks it.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+
+		scheduler.shutdownNow();
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				workers.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT);
+		for (var reader : readers) {
+			reader.stop(deadline);
+		}
+		readers.clear();
+	}
+
+	private enum State {
+		STARTUP,
+		POLL,
+		STOPPED
+	}
+
+	private final class Reader<T extends IO<T, ?, ?>> implements Runnable {
+
+		private final Pn532<T> pn532;
+		private final Pn532Startup startup;
+		private final int pollInterval;
+		private final byte[] buffer = new byte[10]; // UID should be max 10 bytes
+		private String displayName;
+
+		// Not synchronized, which would pin a virtual worker to its carrier thread while it blocks in I/O
+		private final ReentrantLock lock = new ReentrantLock();
+		private volatile State state = State.STARTUP; // Also written by stop() when it can't get the lock
+		private final AtomicBoolean connectionClosed = new AtomicBoolean();
+
+		Reader(Pn532<T> pn532, int pollInterval) {
+			this.pn532 = pn532;
+			// Bounded on the PN532's side, so an empty poll doesn't hold a worker until the read timeout
+			this.startup = new Pn532Startup(pn532, Pn532SamThread.DEFAULT_PASSIVE_ACTIVATION_RETRIES, this::println);
+			this.pollInterval = pollInterval;
+		}
+
+		@Override
+		public void run() {
+			lock.lock();
+			try {
+				step();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void step() {
+			if (closed || state == State.STOPPED) {
+				return;
+			}
+
+			try {
+				switch (state) {
+					case STARTUP:
+						int delay = startup.step();
+						if (startup.isDone()) {
+							displayName = pn532.getDisplayName(); // Set by the firmware version, built on every call
+							println("configured for SAM and running.");
+							next(State.POLL, delay);
+						} else {
+							next(State.STARTUP, delay);
+						}
+						break;
+					case POLL:
+						int length = pn532.readPassiveTargetId(buffer);
+						if (length > 0) {
+							listener.uidReceived(displayName, buffer, 0, length);
+						}
+						next(State.POLL, pollInterval);
+						break;
+					default:
+						break;
+				}
+			} catch (InterruptedException e) {
+				fail(state + " interrupted.");
+				Thread.currentThread().interrupt();
+			} catch (IOException e) {
+				fail(state == State.STARTUP ? e.getMessage() : state + " error: " + e.getMessage());
+			}
+		}
+
+		/**
+		 * Gives up on the lock at {@code deadline}, since a worker wedged in a native read holds it for good and interrupting
+		 * it doesn't help. The connection is then closed on another thread, in case closing blocks too.
+		 */
+		void stop(long deadline) {
+			boolean locked = false;
+			try {
+				locked = lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			state = State.STOPPED;
+			if (locked) {
+				try {
+					closeConnection();
+				} finally {
+					lock.unlock();
+				}
+			} else {
+				println("still busy after " + (CLOSE_TIMEOUT + STOP_TIMEOUT) + "ms, closing its connection from another thread.");
+				var closer = new Thread(this::closeConnection, "pn532-reader-close");
+				closer.setDaemon(true);
+				closer.start();
+			}
+		}
+
+		// Once, whether stop() or the worker it unblocked gets here first
+		private void closeConnection() {
+			if (connectionClosed.compareAndSet(false, true)) {
+				pn532.close();
+			}
+		}
+
+		private void next(State value, int delay) {
+			state = value;
+			if (closed) {
+				return;
+			}
+
+			try {
+				if (delay == 0) {
+					workers.execute(this); // Goes to the back of the queue, so other readers get a turn first
+				} else {
+					scheduler.schedule(() -> workers.execute(this), delay, TimeUnit.MILLISECONDS);
+				}
+			} catch (RejectedExecutionException e) {
+				// close() was called after the check above, it stops this reader
+			}
+		}
+
+		private void fail(String message) {
+			println(message);
+			stop(System.nanoTime()); // Already holds the lock
+			readers.remove(this);
+		}
+
+		private void println(String message) {
+			listener.receiveMessage(pn532.prefixMessage(message));
+		}
+	}
+}
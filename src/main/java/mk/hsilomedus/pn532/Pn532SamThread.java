@@ -1,16 +1,40 @@
 package mk.hsilomedus.pn532;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import com.pi4j.io.IO;
 
 public class Pn532SamThread<T extends IO<T, ?, ?>> extends Thread {
 
+	public static final int DEFAULT_AUTO_POLL_COUNT = 10;
+	public static final int DEFAULT_AUTO_POLL_PERIOD = 1;
+	public static final byte[] DEFAULT_AUTO_POLL_TYPES = { Pn532Target.TYPE_GENERIC_106 };
+	public static final int DEFAULT_PASSIVE_ACTIVATION_RETRIES = 3;
+	public static final int DEFAULT_IDLE_WAKE_INTERVAL = 1000;
+
+	private static final int AUTO_POLL_ERROR_DELAY = 100;
+	private static final int AUTO_POLL_MAX_ERROR_DELAY = 5000;
+
 	private final Pn532SamThreadListener listener;
 	private final Pn532Connection<T> connection;
 
-	private boolean closed = false;
+	private volatile boolean closed = false;
+
+	private boolean autoPoll = false;
+	private int autoPollCount = DEFAULT_AUTO_POLL_COUNT;
+	private int autoPollPeriod = DEFAULT_AUTO_POLL_PERIOD;
+	private byte[] autoPollTypes = DEFAULT_AUTO_POLL_TYPES;
+
+	private Pn532PresenceTracker presenceTracker = null;
+	private int passiveActivationRetries = DEFAULT_PASSIVE_ACTIVATION_RETRIES;
+
+	private long idleQuietPeriod = 0; // Nanoseconds, 0 when idle mode is off
+	private int idleWakeInterval = DEFAULT_IDLE_WAKE_INTERVAL;
+	private int idleWakeUpSources = Pn532.WAKEUP_RF_LEVEL;
+	private volatile long lastWakeLatency = -1;
 
 	public Pn532SamThread(Pn532SamThreadListener listener, Pn532Connection<T> connection) {
 		if (listener == null) {
@@ -23,55 +47,151 @@ public class Pn532SamThread<T extends IO<T, ?, ?>> extends Thread {
 		this.connection = connection;
 	}
 
+	/**
+	 * Switches the thread to InAutoPoll, so the PN532 polls for cards itself and the host only hears from it when one is found
+	 * (or after {@code pollCount} rounds). Must be called before {@link #start()}. See {@link Pn532#autoPoll}.
+	 *
+	 * <p>{@link #close()} takes effect once the current InAutoPoll returns, after {@code pollCount} rounds of {@code period}
+	 * per type, or {@link Pn532#AUTO_POLL_ENDLESS_TIMEOUT} with {@link Pn532#AUTO_POLL_ENDLESS}.
+	 */
+	public void setAutoPoll(int pollCount, int period, byte... targetTypes) {
+		if (isAlive()) {
+			throw new IllegalStateException("PN532SamThread.setAutoPoll() must be called before start().");
+		}
+
+		autoPoll = true;
+		autoPollCount = pollCount;
+		autoPollPeriod = period;
+		autoPollTypes = targetTypes.clone();
+	}
+
+	/**
+	 * Same as {@link #setAutoPoll(int, int, byte...)} with {@link Pn532SamThread#DEFAULT_AUTO_POLL_COUNT},
+	 * {@link Pn532SamThread#DEFAULT_AUTO_POLL_PERIOD}, and {@link Pn532SamThread#DEFAULT_AUTO_POLL_TYPES}.
+	 */
+	public void setAutoPoll() {
+		setAutoPoll(DEFAULT_AUTO_POLL_COUNT, DEFAULT_AUTO_POLL_PERIOD, DEFAULT_AUTO_POLL_TYPES);
+	}
+
+	/**
+	 * Sets how many times the PN532 retries passive activation per poll before answering "no target", see
+	 * {@link Pn532#setMaxRetries(int, int, int)}. Defaults to {@link Pn532SamThread#DEFAULT_PASSIVE_ACTIVATION_RETRIES}, which
+	 * keeps an empty poll to a few milliseconds; {@link Pn532#RETRIES_FOREVER} leaves the PN532 default, where an empty poll
+	 * lasts until the read timeout. Must be called before {@link #start()}. Not used with auto poll.
+	 */
+	public void setPassiveActivationRetries(int value) {
+		if (isAlive()) {
+			throw new IllegalStateException("PN532SamThread.setPassiveActivationRetries() must be called before start().");
+		} else if (value < 0 || value > Pn532.RETRIES_FOREVER) {
+			throw new IllegalArgumentException("PN532SamThread.setPassiveActivationRetries() called with value outside of 0 to 255.");
+		}
+
+		passiveActivationRetries = value;
+	}
+
+	/**
+	 * Reports cards through {@code presenceTracker}, so {@link Pn532SamThreadListener#uidReceived} is called when a card
+	 * arrives (and every report interval after that) rather than on every poll, along with
+	 * {@link Pn532SamThreadListener#cardArrived} and {@link Pn532SamThreadListener#cardDeparted}. Must be called before
+	 * {@link #start()}. With auto poll, departures are only noticed once the PN532 returns, see {@link #setAutoPoll}.
+	 */
+	public void setPresenceTracker(Pn532PresenceTracker presenceTracker) {
+		if (isAlive()) {
+			throw new IllegalStateException("PN532SamThread.setPresenceTracker() must be called before start().");
+		}
+
+		this.presenceTracker = presenceTracker;
+	}
+
+	/**
+	 * Same as {@link #setIdleMode(int, int, int)} with {@link Pn532SamThread#DEFAULT_IDLE_WAKE_INTERVAL} and
+	 * {@link Pn532#WAKEUP_RF_LEVEL}.
+	 */
+	public void setIdleMode(int quietPeriod) {
+		setIdleMode(quietPeriod, DEFAULT_IDLE_WAKE_INTERVAL, Pn532.WAKEUP_RF_LEVEL);
+	}
+
+	/**
+	 * Puts the PN532 into power down once no card has been read for {@code quietPeriod} milliseconds. While idle, the host
+	 * waits for the IRQ pin (or just sleeps without one) until a wake-up source fires or {@code wakeInterval} milliseconds
+	 * pass, then wakes the PN532 for one poll. A card found resumes normal polling, otherwise it goes straight back to power
+	 * down, so an empty field costs one poll per wake interval. Passive cards don't trigger {@link Pn532#WAKEUP_RF_LEVEL},
+	 * so {@code wakeInterval} bounds how long a card waits to be read; see {@link #getLastWakeLatency()}.
+	 * Must be called before {@link #start()}. Not used with auto poll.
+	 *
+	 * @param wakeUpSources the {@link Pn532#powerDown(int, boolean)} wake-up sources besides the host interface.
+	 */
+	public void setIdleMode(int quietPeriod, int wakeInterval, int wakeUpSources) {
+		if (isAlive()) {
+			throw new IllegalStateException("PN532SamThread.setIdleMode() must be called before start().");
+		} else if (quietPeriod < 1 || wakeInterval < 1) {
+			throw new IllegalArgumentException("PN532SamThread.setIdleMode() called with quietPeriod or wakeInterval less than 1.");
+		}
+
+		idleQuietPeriod = TimeUnit.MILLISECONDS.toNanos(quietPeriod);
+		idleWakeInterval = wakeInterval;
+		idleWakeUpSources = wakeUpSources;
+	}
+
+	/**
+	 * @return the nanoseconds from waking up out of idle mode to reading the UID of the card that ended it, or -1 if idle
+	 *     mode hasn't been ended by a card yet.
+	 */
+	public long getLastWakeLatency() {
+		return lastWakeLatency;
+	}
+
 	@Override
 	public void run() {
 		try (var pn532 = new Pn532<>(connection)) {
-			try {
-				pn532.initialize();
-			} catch (InterruptedException | IOException e) {
-				println(pn532, "begin() error: " + e.getMessage());
-				handleInterruptedException(e);
-				return;
-			}
+			var startup = new Pn532Startup(pn532, autoPoll ? Pn532Startup.KEEP_RETRIES : passiveActivationRetries,
+					message -> println(pn532, message));
+			while (!startup.isDone()) {
+				int delay;
+				try {
+					delay = startup.step();
+				} catch (InterruptedException | IOException e) {
+					println(pn532, e instanceof InterruptedException ? "initialization interrupted." : e.getMessage());
+					handleInterruptedException(e);
+					return;
+				}
 
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				println(pn532, "initialization Thread.sleep() interrupted.");
-				handleInterruptedException(e);
-				return;
+				if (delay > 0) {
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						println(pn532, "initialization Thread.sleep() interrupted.");
+						handleInterruptedException(e);
+						return;
+					}
+				}
 			}
+			println(pn532, "configured for SAM and running.");
 
-			long version;
-			try {
-				version = pn532.getFirmwareVersion();
-			} catch (InterruptedException | IOException e) {
-				println(pn532, "getFirmwareVersion() error: " + e.getMessage());
-				handleInterruptedException(e);
+			var displayName = pn532.getDisplayName(); // Set by the firmware version, built on every call
+			if (autoPoll) {
+				runAutoPoll(pn532, displayName);
 				return;
 			}
 
-			if (version < 0) {
-				println(pn532, "getFirmwareVersion() returned " + Pn532TransferResult.fromValue((int) version));
-				return;
-			}
-			println(pn532, "device found.");
+			var buffer = new byte[10]; // UID should be max 10 bytes
+			long lastCard = System.nanoTime();
+			long wokeAt = 0; // When the current poll woke up out of idle mode, 0 when it didn't
+			while (!closed) {
+				if (idleQuietPeriod > 0 && System.nanoTime() - lastCard >= idleQuietPeriod) {
+					try {
+						wokeAt = idle(pn532);
+					} catch (InterruptedException | IOException e) {
+						println(pn532, "idle error: " + e.getMessage());
+						handleInterruptedException(e);
+						return;
+					}
 
-			// Configure board to read RFID tags
-			try {
-				if (!pn532.samConfig()) {
-					println(pn532, "samConfig() failed.");
-					return;
+					if (wokeAt == 0) {
+						lastCard = System.nanoTime(); // Couldn't power down, try again after another quiet period
+					}
 				}
-			} catch (InterruptedException | IOException e) {
-				println(pn532, "samConfig() error: " + e.getMessage());
-				handleInterruptedException(e);
-				return;
-			}
-			println(pn532, "configured for SAM and running.");
 
-			var buffer = new byte[10]; // UID should be max 10 bytes
-			while (!closed) {
 				int length;
 				try {
 					length = pn532.readPassiveTargetId(buffer);
@@ -82,8 +202,19 @@ public class Pn532SamThread<T extends IO<T, ?, ?>> extends Thread {
 				}
 
 				if (length > 0) {
-					byte[] uid = Arrays.copyOfRange(buffer, 0, length);
-					listener.uidReceived(pn532.getDisplayName(), uid);
+					if (wokeAt != 0) {
+						lastWakeLatency = System.nanoTime() - wokeAt;
+						println(pn532, "woke up for a card in " + TimeUnit.NANOSECONDS.toMillis(lastWakeLatency) + "ms.");
+					}
+					lastCard = System.nanoTime();
+
+					uidReceived(displayName, buffer, length);
+				}
+				wokeAt = 0;
+				expire(displayName);
+
+				if (idleQuietPeriod > 0 && System.nanoTime() - lastCard >= idleQuietPeriod) {
+					continue; // Back to power down without the poll delay
 				}
 
 				try {
@@ -97,10 +228,81 @@ public class Pn532SamThread<T extends IO<T, ?, ?>> extends Thread {
 		}
 	}
 
+	// Returns the System.nanoTime() the PN532 was woken up at, or 0 if it couldn't be put into power down
+	private long idle(Pn532<T> pn532) throws InterruptedException, IOException {
+		if (!pn532.powerDown(idleWakeUpSources, true)) {
+			println(pn532, "powerDown() failed, polling without idling.");
+			return 0;
+		}
+
+		pn532.waitForWakeup(idleWakeInterval);
+		long wokeAt = System.nanoTime();
+		pn532.wakeupFromPowerDown();
+		return wokeAt;
+	}
+
+	private void runAutoPoll(Pn532<T> pn532, String displayName) {
+		var targets = new ArrayList<Pn532Target>(2);
+		int errorDelay = 0;
+		while (!closed) {
+			int found;
+			try {
+				found = pn532.autoPoll(autoPollCount, autoPollPeriod, autoPollTypes, targets);
+			} catch (InterruptedException | IOException e) {
+				println(pn532, "autoPoll() error: " + e.getMessage());
+				handleInterruptedException(e);
+				return;
+			}
+
+			int delay = 100;
+			if (found < 0) {
+				// The PN532 didn't pace this one, so back off instead of retrying (and logging) in a tight loop
+				errorDelay = Math.min(errorDelay == 0 ? AUTO_POLL_ERROR_DELAY : errorDelay * 2, AUTO_POLL_MAX_ERROR_DELAY);
+				delay = errorDelay;
+				println(pn532, "autoPoll() returned " + Pn532TransferResult.fromValue(found) + ", retrying in " + delay + "ms.");
+			} else {
+				errorDelay = 0;
+				for (var target : targets) {
+					if (target.getUidLength() > 0) {
+						uidReceived(displayName, target.getUid(), target.getUidLength());
+					}
+				}
+			}
+			expire(displayName);
+
+			if (found == 0) {
+				continue; // Nothing found in pollCount rounds, the PN532 already paced this attempt
+			}
+
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				println(pn532, "running Thread.sleep() interrupted.");
+				handleInterruptedException(e);
+				return;
+			}
+		}
+	}
+
 	public void close() {
 		closed = true;
 	}
 
+	// The UID stays in the poll buffer, listeners that override the buffer overload check it without a copy
+	private void uidReceived(String displayName, byte[] buffer, int length) {
+		if (presenceTracker == null) {
+			listener.uidReceived(displayName, buffer, 0, length);
+		} else {
+			presenceTracker.seen(displayName, buffer, 0, length, listener);
+		}
+	}
+
+	private void expire(String displayName) {
+		if (presenceTracker != null) {
+			presenceTracker.expire(displayName, listener);
+		}
+	}
+
 	private void println(Pn532<T> pn532, String message) {
 		listener.receiveMessage(pn532.prefixMessage(message));
 	}
@@ -116,10 +318,33 @@ public class Pn532SamThread<T extends IO<T, ?, ?>> extends Thread {
 
 		void uidReceived(String displayName, byte[] uid);
 
+		/**
+		 * Called by the poll loops instead of {@link #uidReceived(String, byte[])}, with the UID in {@code buffer[offset]} to
+		 * {@code buffer[offset + length - 1]}. The buffer is reused by the next poll, so copy what needs to be kept and don't
+		 * change it. The default copies the UID and calls {@link #uidReceived(String, byte[])}; override it to check the UID
+		 * in place without allocating, with {@link Pn532UidIndex#get(byte[], int, int)} or
+		 * {@link Pn532Uid#equals(byte[], int, int)} for example.
+		 */
+		default void uidReceived(String displayName, byte[] buffer, int offset, int length) {
+			uidReceived(displayName, Arrays.copyOfRange(buffer, offset, offset + length));
+		}
+
+		/**
+		 * Called when a card enters the field. Only called with a {@link Pn532PresenceTracker}.
+		 */
+		default void cardArrived(String displayName, byte[] uid) {
+		}
+
+		/**
+		 * Called when a card has left the field for the tracker's departure delay. Only called with a {@link Pn532PresenceTracker}.
+		 */
+		default void cardDeparted(String displayName, byte[] uid) {
+		}
+
 		static String getUidString(byte[] bytes) {
-			var uid = new StringBuilder();
+			var uid = new StringBuilder(bytes.length * 2);
 			for (byte value : bytes) {
-				uid.append(String.format("%02X", value));
+				Pn532Utility.appendHex(uid, value);
 			}
 			return uid.toString();
 		}
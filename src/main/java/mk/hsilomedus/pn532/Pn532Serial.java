@@ -1,6 +1,9 @@
 package mk.hsilomedus.pn532;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.pi4j.io.exception.IOException;
 import com.pi4j.io.serial.Serial;
@@ -10,6 +13,18 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 
 	public static final String DEFAULT_PROVIDER = "pigpio-serial";
 	public static final String DEFAULT_DEVICE = "/dev/ttyAMA0";
+	public static final int DEFAULT_BAUD_RATE = 115200;
+
+	private static final byte COMMAND_SET_SERIAL_BAUD_RATE = 0x10;
+	// Indexed by the BR code SetSerialBaudRate takes
+	private static final int[] BAUD_RATES = { 9600, 19200, 38400, 57600, 115200, 230400, 460800, 921600, 1288000 };
+	private static final byte[] PN532_ACK = { 0x00, 0x00, (byte) 0xFF, 0x00, (byte) 0xFF, 0x00 };
+	private static final int BAUD_RATE_SWITCH_DELAY = 5; // ms for the ACK to go out at the old rate before switching
+	private static final int PIGPIO_MAX_BAUD_RATE = 230400; // serOpen() rejects anything faster
+
+	private static final int RECEIVE_BUFFER_SIZE = 1024;
+	private static final long RECEIVE_POLL_NANOS = 100_000;
+	private static final int RECEIVE_STOP_TIMEOUT = 100;
 
 	// The serial connection will not wake up without this, I have no idea why
 	// Originally this was just the first 5 bytes. Now we're sending a lot more 0s and a COMMAND_SAM_CONFIG
@@ -19,6 +34,10 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 			0x00, 0x00, (byte) 0xFF, 0x03, (byte) 0xFD, (byte) 0xD4, 0x14, 0x01, 0x17, 0x00 };
 
 	private final String device;
+	private final boolean receiveThread;
+
+	private int baudRate = DEFAULT_BAUD_RATE;
+	private Receiver receiver = null;
 
 	/**
 	 * Defaults to {@link Pn532Serial#DEFAULT_PROVIDER} and {@link Pn532Serial#DEFAULT_DEVICE}.
@@ -28,9 +47,122 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 	}
 
 	public Pn532Serial(String provider, String device) {
-		super(provider, "serial-" + device, "Serial " + device, "Serial Device " + device);
+		this(provider, device, DEFAULT_PROVIDER_DI, NO_IRQ_PIN);
+	}
+
+	/**
+	 * @param irqPin the GPIO connected to the PN532's IRQ pin, used to wait for data instead of polling the serial port.
+	 */
+	public Pn532Serial(String provider, String device, String providerDi, int irqPin) {
+		this(provider, device, providerDi, irqPin, false);
+	}
+
+	/**
+	 * @param receiveThread whether a dedicated thread moves incoming bytes from the port into a buffer, waking reads as soon
+	 *     as data arrives instead of each read polling the port. Pi4J has no serial data events, so the thread does the
+	 *     polling, every 100µs while a response is being read, and reads wait on the buffer. It's parked otherwise.
+	 */
+	public Pn532Serial(String provider, String device, String providerDi, int irqPin, boolean receiveThread) {
+		super(provider, "serial-" + device, "Serial " + device, "Serial Device " + device, providerDi, irqPin);
 
 		this.device = device;
+		this.receiveThread = receiveThread;
+	}
+
+	public int getBaudRate() {
+		return baudRate;
+	}
+
+	@Override
+	public void begin() throws java.io.IOException {
+		super.begin();
+
+		if (receiveThread) {
+			receiver = new Receiver();
+		}
+	}
+
+	/**
+	 * Switches the link to {@code value} with SetSerialBaudRate, then reopens the port at that rate. The PN532 goes back to
+	 * 115200 when it's powered off, so call this again after a reset.
+	 *
+	 * <p>If the port can't be reopened at the new rate, it's reopened at the old one (or left closed if that fails too) and
+	 * an IOException is thrown. The PN532 has switched by then, so it has to be power cycled.
+	 *
+	 * @param value one of 9600, 19200, 38400, 57600, 115200, 230400, 460800, 921600, or 1288000, and no more than 230400
+	 *     with the pigpio provider.
+	 * @return true if the PN532 accepted the new rate.
+	 */
+	public boolean setBaudRate(int value) throws InterruptedException, java.io.IOException {
+		log("setBaudRate(" + value + ")");
+
+		int code = -1;
+		for (int i = 0; i < BAUD_RATES.length; i++) {
+			if (BAUD_RATES[i] == value) {
+				code = i;
+			}
+		}
+
+		if (code < 0) {
+			throw new IllegalArgumentException(prefixMessage("setBaudRate() called with unsupported baud rate " + value + "."));
+		} else if (!isBaudRateSupported(value)) {
+			throw new IllegalArgumentException(prefixMessage("setBaudRate() called with baud rate " + value + ", which " + provider + " can't open."));
+		} else if (io == null) {
+			throw new IllegalStateException(prefixMessage("setBaudRate() called without calling begin()."));
+		}
+
+		Pn532TransferResult writeStatus = writeCommand(new byte[] { COMMAND_SET_SERIAL_BAUD_RATE, (byte) code });
+		if (writeStatus != Pn532TransferResult.OK) {
+			log("setBaudRate() writeCommand returned " + writeStatus);
+			return false;
+		}
+
+		int responseStatus = readResponse(new byte[0], 0);
+		if (responseStatus < 0) {
+			log("setBaudRate() readResponse returned " + Pn532TransferResult.fromValue(responseStatus));
+			return false;
+		}
+
+		// The PN532 switches once it gets an ACK for its response, still at the old rate
+		io.write(PN532_ACK);
+		Thread.sleep(BAUD_RATE_SWITCH_DELAY);
+
+		int oldBaudRate = baudRate;
+		synchronized (Pn532ContextHelper.mutex) { // Same as begin(), pigpio can crash the JRE without this
+			try {
+				reopen(value);
+			} catch (java.io.IOException | RuntimeException e) {
+				try {
+					reopen(oldBaudRate);
+				} catch (java.io.IOException | RuntimeException e2) {
+					e.addSuppressed(e2);
+					io = null; // Closed, using it throws like before begin()
+				}
+				throw new java.io.IOException(prefixMessage("setBaudRate() couldn't reopen the port at " + value + ", the PN532 has to be power cycled: " + e.getMessage()), e);
+			}
+		}
+
+		log("setBaudRate() successful.");
+		return true;
+	}
+
+	/**
+	 * @return whether the provider can open the port at {@code value}. Only pigpio is known to have a limit.
+	 */
+	protected boolean isBaudRateSupported(int value) {
+		return !provider.startsWith("pigpio") || value <= PIGPIO_MAX_BAUD_RATE;
+	}
+
+	private void reopen(int value) throws java.io.IOException {
+		stopReceiver();
+		release(id);
+
+		baudRate = value;
+		Pn532Utility.wrapInitializationExceptions(() -> io = getInterface());
+
+		if (receiveThread) {
+			receiver = new Receiver();
+		}
 	}
 
 	@Override
@@ -39,7 +171,7 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 				.id(id)
 				.name(name)
 				.device(device)
-				.use_115200_N81()
+				.baud8N1(baudRate)
 				.build();
 		SerialProvider serialProvider = pi4j.provider(provider);
 		var serial = serialProvider.create(config);
@@ -53,12 +185,17 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 	protected void wakeupInternal() throws InterruptedException, IOException {
 		log("wakeupInternal() sending %s", () -> Pn532Utility.getByteHexString(WAKEUP));
 		io.write(WAKEUP);
-		io.drain();
+		drain();
 	}
 
 	@Override
-	protected boolean read(byte[] buffer, int startIndex, int length, long timeoutEnd) throws InterruptedException, IOException {
+	protected boolean read(byte[] buffer, int startIndex, int length, long deadline) throws InterruptedException, IOException {
+		if (receiver != null) {
+			return receiver.read(buffer, startIndex, length, deadline);
+		}
+
 		int readTotal = 0;
+		int attempt = 0;
 		while (true) {
 			int available = io.available();
 			if (available > 0) {
@@ -67,8 +204,10 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 
 				if (read > 0) {
 					readTotal += read;
-					final int readTotalFinal = readTotal;
-					log("read() has so far received " + readTotal + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, startIndex, readTotalFinal));
+					if (Pn532Utility.isLogEnabled()) {
+						final int readTotalFinal = readTotal;
+						log("read() has so far received " + readTotal + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, startIndex, readTotalFinal));
+					}
 
 					if (readTotal >= length) { // Shouldn't happen, but >= for safety
 						return true;
@@ -76,16 +215,39 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 				}
 			}
 
-			Thread.sleep(10);
-			if (System.currentTimeMillis() > timeoutEnd) {
+			if (!idle(attempt++, deadline)) {
 				return false;
 			}
 		}
 	}
 
+	@Override
+	protected int getPowerDownWakeUpSource() {
+		return Pn532.WAKEUP_HSU;
+	}
+
 	@Override
 	protected void preWrite() throws IOException {
-		io.drain();
+		drain();
+	}
+
+	@Override
+	protected boolean preRead(long deadline) throws InterruptedException, java.io.IOException {
+		if (!super.preRead(deadline)) {
+			return false;
+		}
+
+		if (receiver != null) {
+			receiver.resume();
+		}
+		return true;
+	}
+
+	@Override
+	protected void postRead() {
+		if (receiver != null) {
+			receiver.pause();
+		}
 	}
 
 	@Override
@@ -100,6 +262,152 @@ public class Pn532Serial extends Pn532Connection<Serial> {
 
 	@Override
 	protected void ioClose() {
+		stopReceiver();
 		io.close();
 	}
+
+	// Only the receive thread reads from io while it runs, so it drains both
+	private void drain() {
+		if (receiver != null) {
+			receiver.clear();
+		} else {
+			io.drain();
+		}
+	}
+
+	private void stopReceiver() {
+		if (receiver != null) {
+			receiver.stop();
+			receiver = null;
+		}
+	}
+
+	/**
+	 * Moves bytes from the port into a ring buffer on its own thread and wakes readers waiting for them. Only polls the port
+	 * between {@link #resume()} and {@link #pause()}, bytes arriving in between wait in the port.
+	 */
+	private final class Receiver implements Runnable {
+
+		private final byte[] ring = new byte[RECEIVE_BUFFER_SIZE];
+		private final ReentrantLock lock = new ReentrantLock(); // Covers reading from the port into the ring, and clearing both
+		private final Condition received = lock.newCondition();
+		private final Thread thread;
+
+		private int head = 0; // Index of the oldest byte
+		private int size = 0;
+		private volatile boolean running = true;
+		private volatile boolean reading = false;
+
+		Receiver() {
+			thread = new Thread(this, id + "-receiver");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				if (!reading) {
+					LockSupport.park(this);
+					continue;
+				}
+
+				int read = 0;
+				lock.lock();
+				try {
+					read = receive();
+				} catch (RuntimeException e) {
+					if (running) {
+						log("Receiver.run() error: " + e.getMessage());
+					}
+				} finally {
+					lock.unlock();
+				}
+
+				if (read <= 0) {
+					LockSupport.parkNanos(RECEIVE_POLL_NANOS);
+				}
+			}
+		}
+
+		void resume() {
+			reading = true;
+			LockSupport.unpark(thread);
+		}
+
+		void pause() {
+			reading = false;
+		}
+
+		boolean read(byte[] buffer, int startIndex, int length, long deadline) throws InterruptedException {
+			int readTotal = 0;
+			lock.lock();
+			try {
+				while (readTotal < length) {
+					if (size == 0) {
+						long remaining = deadline - System.nanoTime();
+						if (remaining <= 0) {
+							return false;
+						}
+						received.awaitNanos(remaining);
+						continue;
+					}
+
+					int count = Math.min(size, length - readTotal);
+					int first = Math.min(count, RECEIVE_BUFFER_SIZE - head);
+					System.arraycopy(ring, head, buffer, startIndex + readTotal, first);
+					System.arraycopy(ring, 0, buffer, startIndex + readTotal + first, count - first);
+
+					head = (head + count) % RECEIVE_BUFFER_SIZE;
+					size -= count;
+					readTotal += count;
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			if (Pn532Utility.isLogEnabled()) {
+				log("read() received " + length + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, startIndex, length));
+			}
+			return true;
+		}
+
+		void clear() {
+			lock.lock();
+			try {
+				io.drain();
+				head = 0;
+				size = 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void stop() {
+			running = false;
+			LockSupport.unpark(thread);
+			try {
+				thread.join(RECEIVE_STOP_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// Called with lock held, reads straight into the free space up to the end of the ring
+		private int receive() {
+			int tail = (head + size) % RECEIVE_BUFFER_SIZE;
+			int space = Math.min(RECEIVE_BUFFER_SIZE - size, RECEIVE_BUFFER_SIZE - tail);
+			int available = space > 0 ? io.available() : 0;
+			if (available <= 0) {
+				return 0;
+			}
+
+			int read = io.read(ring, tail, Math.min(available, space));
+			if (read > 0) {
+				size += read;
+				received.signalAll();
+			}
+			return read;
+		}
+	}
 }
\ No newline at end of file
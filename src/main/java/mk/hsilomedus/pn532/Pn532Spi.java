@@ -1,11 +1,15 @@
 package mk.hsilomedus.pn532;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import com.pi4j.io.exception.IOException;
 import com.pi4j.io.gpio.digital.DigitalOutput;
 import com.pi4j.io.gpio.digital.DigitalOutputProvider;
 import com.pi4j.io.spi.Spi;
+import com.pi4j.io.spi.SpiBus;
 import com.pi4j.io.spi.SpiProvider;
 
 public class Pn532Spi extends Pn532Connection<Spi> {
@@ -20,17 +24,40 @@ public class Pn532Spi extends Pn532Connection<Spi> {
 	public static final String DEFAULT_PROVIDER_DO = PROVIDER_DO_PIGPIO;
 	public static final int DEFAULT_CHANNEL = 0;
 	public static final int DEFAULT_CS_PIN = CS_PIN_CE0;
+	public static final long DEFAULT_CS_SETUP_DELAY = 100_000;
+	public static final long MAX_CS_SETUP_DELAY = 2_000_000;
 
 	private static final byte SPI_READY = 0x01;
 	private static final byte SPI_DATA_WRITE = 0x01;
 	private static final byte SPI_STATUS_READ = 0x02;
 	private static final byte SPI_DATA_READ = 0x03;
 
+	private static final int WAKEUP_DELAY = 2; // ms, CS has to stay low longer to bring the PN532 out of power down
+
+	// pigpio spiOpen() flags T and R: send and receive LSB first. Only supported by the auxiliary SPI controller.
+	private static final long FLAGS_LSB_FIRST = (1L << 14) | (1L << 15);
+
+	// The PN532 talks LSB first and the main SPI controller only does MSB first, so every byte is reversed in software
+	private static final byte[] REVERSED = new byte[256];
+
+	static {
+		for (int i = 0; i < REVERSED.length; i++) {
+			REVERSED[i] = (byte) (Integer.reverse(i) >>> 24);
+		}
+	}
+
 	private final String providerDo;
 	private final int channel;
 	private final int csPin;
+	private final boolean auxLsbFirst;
+
+	// Frames and reads go out as a single transfer with the SPI command byte in front, zeros are clocked out while reading
+	private final byte[] txTransfer = new byte[MAX_FRAME_LENGTH + 1];
+	private final byte[] rxTransfer = new byte[MAX_FRAME_LENGTH + 1];
 
 	private DigitalOutput csOutput;
+	private long csSetupDelay = DEFAULT_CS_SETUP_DELAY;
+	private boolean dataReadPending = false;
 
 	/**
 	 * Defaults to {@link Pn532Spi#DEFAULT_PROVIDER}, {@link Pn532Spi#DEFAULT_PROVIDER_DO},
@@ -46,12 +73,53 @@ public class Pn532Spi extends Pn532Connection<Spi> {
 	 *     and {@link Pn532Spi#CS_PIN_CE1}, but any GPIO can be used.
 	 */
 	public Pn532Spi(String provider, String providerDo, int channel, int csPin) {
-		super(provider, "spi-" + channel + "-" + csPin, "SPI " + channel + " " + csPin,
-				"SPI Channel " + channel + ", CS Pin " + csPin);
+		this(provider, providerDo, channel, csPin, DEFAULT_PROVIDER_DI, NO_IRQ_PIN);
+	}
+
+	/**
+	 * @param channel the SPI channel to use. Common values are 0 and 1.
+	 * @param csPin the Chip Select pin to use. Common values are {@link Pn532Spi#CS_PIN_CE0}
+	 *     and {@link Pn532Spi#CS_PIN_CE1}, but any GPIO can be used.
+	 * @param irqPin the GPIO connected to the PN532's IRQ pin, used to wait for data instead of polling the status register.
+	 */
+	public Pn532Spi(String provider, String providerDo, int channel, int csPin, String providerDi, int irqPin) {
+		this(provider, providerDo, channel, csPin, providerDi, irqPin, false);
+	}
+
+	/**
+	 * @param channel the SPI channel to use. Common values are 0 and 1.
+	 * @param csPin the Chip Select pin to use. Common values are {@link Pn532Spi#CS_PIN_CE0}
+	 *     and {@link Pn532Spi#CS_PIN_CE1}, but any GPIO can be used.
+	 * @param irqPin the GPIO connected to the PN532's IRQ pin, or {@link Pn532Connection#NO_IRQ_PIN}.
+	 * @param auxLsbFirst use the auxiliary SPI controller (SPI1) configured for LSB first transfers, so no bytes have to be
+	 *     reversed in software. Requires {@link Pn532Spi#DEFAULT_PROVIDER} (pigpio) and the PN532 wired to SPI1.
+	 */
+	public Pn532Spi(String provider, String providerDo, int channel, int csPin, String providerDi, int irqPin, boolean auxLsbFirst) {
+		super(provider, "spi-" + (auxLsbFirst ? "aux-" : "") + channel + "-" + csPin,
+				"SPI " + (auxLsbFirst ? "Aux " : "") + channel + " " + csPin,
+				"SPI " + (auxLsbFirst ? "Aux " : "") + "Channel " + channel + ", CS Pin " + csPin, providerDi, irqPin);
 
 		this.providerDo = providerDo;
 		this.channel = channel;
 		this.csPin = csPin;
+		this.auxLsbFirst = auxLsbFirst;
+	}
+
+	public long getCsSetupDelay() {
+		return csSetupDelay;
+	}
+
+	/**
+	 * Sets how long to wait after pulling CS low before clocking a command or read, in nanoseconds. Defaults to
+	 * {@link Pn532Spi#DEFAULT_CS_SETUP_DELAY}; the original C++ code waited 2ms, which {@link Pn532Spi#MAX_CS_SETUP_DELAY}
+	 * restores. Waking the PN532 up always holds CS low for 2ms.
+	 */
+	public void setCsSetupDelay(long value) {
+		if (value < 0 || value > MAX_CS_SETUP_DELAY) {
+			throw new IllegalArgumentException(prefixMessage("setCsSetupDelay() called with value outside of 0 to " + MAX_CS_SETUP_DELAY + "."));
+		}
+
+		csSetupDelay = value;
 	}
 
 	@Override
@@ -59,61 +127,140 @@ public class Pn532Spi extends Pn532Connection<Spi> {
 		DigitalOutputProvider doProvider = pi4j.provider(providerDo);
 		csOutput = doProvider.create(DigitalOutput.newConfigBuilder(pi4j).address(csPin).build());
 
-		var config = Spi.newConfigBuilder(pi4j)
+		var builder = Spi.newConfigBuilder(pi4j)
 				.id(id)
 				.name(name)
 				.address(channel)
-				.baud(Spi.DEFAULT_BAUD)
-				.build();
+				.baud(Spi.DEFAULT_BAUD);
+		if (auxLsbFirst) {
+			builder.bus(SpiBus.BUS_1).flags(FLAGS_LSB_FIRST);
+		}
+		var config = builder.build();
 		SpiProvider spiProvider = pi4j.provider(provider);
 		return spiProvider.create(config);
 	}
 
 	@Override
-	protected void wakeupInternal() throws InterruptedException, IOException {
-		csLow();
-		csOutput.high();
+	protected void wakeupInternal() throws InterruptedException, java.io.IOException {
+		if (!lockBus(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getAckTimeout()))) {
+			throw new Pn532TransferException(prefixMessage("wakeup() waiting for the bus"), Pn532TransferResult.TIMEOUT);
+		}
+		try {
+			csOutput.low();
+			Thread.sleep(WAKEUP_DELAY);
+			csOutput.high();
+		} finally {
+			unlockBus();
+		}
+	}
+
+	@Override
+	protected int getPowerDownWakeUpSource() {
+		return Pn532.WAKEUP_SPI;
 	}
 
 	@Override
-	protected boolean preRead(long timeoutEnd) throws InterruptedException, IOException {
+	protected String getBusKey() {
+		// The whole controller, CS is a GPIO so every device on it sees the clock of every transfer
+		return "spi-" + (auxLsbFirst ? 1 : 0);
+	}
+
+	@Override
+	protected boolean preRead(long deadline) throws InterruptedException, IOException {
+		if (hasIrq()) {
+			if (!waitForIrq(deadline)) {
+				return false;
+			}
+
+			return startDataRead(deadline);
+		}
+
+		int attempt = 0;
 		while (true) {
-			if (!isReady()) {
-				Thread.sleep(10);
-				if (System.currentTimeMillis() > timeoutEnd) {
+			if (!isReady(deadline)) {
+				if (!idle(attempt++, deadline)) {
 					return false;
 				}
 			} else {
-				csLow();
-				writeByte(SPI_DATA_READ, true);
-				return true;
+				return startDataRead(deadline);
+			}
+		}
+	}
+
+	// The bus stays locked until postRead(), so the whole read is one transaction. DATA_READ goes out with the first read.
+	private boolean startDataRead(long deadline) throws InterruptedException, IOException {
+		if (!lockBus(deadline)) {
+			log("startDataRead() timed out waiting for the bus.");
+			return false;
+		}
+		boolean started = false;
+		try {
+			csLow();
+			dataReadPending = true;
+			started = true;
+		} finally {
+			if (!started) {
+				csOutput.high();
+				unlockBus();
 			}
 		}
+		return true;
 	}
 
 	@Override
-	protected boolean read(byte[] buffer, int startIndex, int length, long timeoutEnd) throws InterruptedException, IOException {
-		int readTotal = 0;
-		while (true) {
-			try {
-				while (true) {
-					int read = io.read(buffer, startIndex + readTotal, length - readTotal); // Processed in finally
-
-					if (read > 0) {
-						readTotal += read;
-						if (readTotal >= length) { // Shouldn't happen, but >= for safety
-							return true;
-						}
-					}
+	protected boolean read(byte[] buffer, int startIndex, int length, long deadline) throws InterruptedException, IOException {
+		if (dataReadPending) {
+			dataReadPending = false;
+			if (Pn532Utility.isLogEnabled()) {
+				log("read() sending " + String.format("%02X", SPI_DATA_READ));
+			}
+
+			// DATA_READ and the first bytes in one transfer, the PN532 answers starting with the byte after the command
+			txTransfer[0] = reverseByte(SPI_DATA_READ);
+			int transferred = io.transfer(txTransfer, 0, rxTransfer, 0, length + 1);
+			txTransfer[0] = 0;
+			if (transferred == length + 1) {
+				System.arraycopy(rxTransfer, 1, buffer, startIndex, length);
+				reverseBytes(buffer, startIndex, length);
+
+				if (Pn532Utility.isLogEnabled()) {
+					log("read() received " + length + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, startIndex, length));
+				}
+				return true;
+			}
+
+			if (transferred > 1) {
+				System.arraycopy(rxTransfer, 1, buffer, startIndex, transferred - 1);
+				reverseBytes(buffer, startIndex, transferred - 1);
+			}
+			return readRemaining(buffer, startIndex, Math.max(transferred - 1, 0), length, deadline);
+		}
 
-					Thread.sleep(10);
-					if (System.currentTimeMillis() > timeoutEnd) {
-						return false;
+		return readRemaining(buffer, startIndex, 0, length, deadline);
+	}
+
+	private boolean readRemaining(byte[] buffer, int startIndex, int alreadyRead, int length, long deadline) throws InterruptedException, IOException {
+		int readTotal = alreadyRead;
+		int attempt = 0;
+		try {
+			while (true) {
+				int read = io.read(buffer, startIndex + readTotal, length - readTotal); // Processed in finally
+
+				if (read > 0) {
+					readTotal += read;
+					if (readTotal >= length) { // Shouldn't happen, but >= for safety
+						return true;
 					}
 				}
-			} finally {
-				reverseBytes(buffer);
 
+				if (!idle(attempt++, deadline)) {
+					return false;
+				}
+			}
+		} finally {
+			reverseBytes(buffer, startIndex + alreadyRead, readTotal - alreadyRead); // Only what this loop read, earlier reads are already reversed
+
+			if (Pn532Utility.isLogEnabled()) {
 				final int readTotalFinal = readTotal;
 				log("read() received " + readTotal + " bytes: %s", () -> Pn532Utility.getByteHexString(buffer, startIndex, readTotalFinal));
 			}
@@ -122,13 +269,17 @@ public class Pn532Spi extends Pn532Connection<Spi> {
 
 	@Override
 	protected void postRead() throws IOException {
-		csOutput.high();
+		dataReadPending = false;
+		try {
+			csOutput.high();
+		} finally {
+			unlockBus();
+		}
 	}
 
 	@Override
 	protected void preWrite() throws InterruptedException, IOException {
 		csLow();
-		writeByte(SPI_DATA_WRITE, true);
 	}
 
 	@Override
@@ -136,11 +287,21 @@ public class Pn532Spi extends Pn532Connection<Spi> {
 		csOutput.high();
 	}
 
+	// DATA_WRITE and the frame in one transfer
 	@Override
 	protected void ioWrite(ByteBuffer buffer) throws IOException {
-		var bufferArray = buffer.array();
-		reverseBytes(bufferArray);
-		io.write(buffer);
+		if (Pn532Utility.isLogEnabled()) {
+			log("ioWrite() sending " + String.format("%02X", SPI_DATA_WRITE) + " and the frame");
+		}
+
+		int length = buffer.remaining();
+		txTransfer[0] = reverseByte(SPI_DATA_WRITE);
+		System.arraycopy(buffer.array(), buffer.position(), txTransfer, 1, length);
+		reverseBytes(txTransfer, 1, length);
+
+		io.write(txTransfer, 0, length + 1);
+		buffer.position(buffer.limit());
+		Arrays.fill(txTransfer, 0, length + 1, (byte) 0); // Reads clock out zeros from the same buffer
 	}
 
 	@Override
@@ -151,51 +312,56 @@ public class Pn532Spi extends Pn532Connection<Spi> {
 	@Override
 	protected void ioClose() {
 		io.close();
+		if (csOutput != null) {
+			release(csOutput.id());
+		}
 	}
 
-	private boolean isReady() throws IOException {
-		csOutput.low(); // No delay in C++ code, so not calling csLow()
-		writeByte(SPI_STATUS_READ, false); // Not logged because isReady() spams too much
-
-		boolean result = reverseByte(io.readByte()) == SPI_READY;
-		csOutput.high();
-
-		return result;
+	// Also false if the bus couldn't be locked before the deadline, the caller's idle() then times out
+	private boolean isReady(long deadline) throws InterruptedException, IOException {
+		if (!lockBus(deadline)) {
+			return false;
+		}
+		try {
+			csOutput.low(); // No delay in C++ code, so not calling csLow()
+
+			// STATUS_READ and the status byte in one transfer. Not logged because isReady() spams too much
+			txTransfer[0] = reverseByte(SPI_STATUS_READ);
+			int transferred = io.transfer(txTransfer, 0, rxTransfer, 0, 2);
+			txTransfer[0] = 0;
+
+			return transferred == 2 && reverseByte(rxTransfer[1]) == SPI_READY;
+		} finally {
+			csOutput.high();
+			unlockBus();
+		}
 	}
 
-	// There was a 1-2ms delay in every place but one in the C++ code
+	// There was a 1-2ms delay in every place but one in the C++ code, the PN532 only needs a fraction of it
 	private void csLow() throws InterruptedException, IOException {
 		csOutput.low();
-		Thread.sleep(2);
-	}
-
-	private void writeByte(byte value, boolean log) throws IOException {
-		if (log) {
-			log("writeByte() sending " + String.format("%02X", value));
+		if (csSetupDelay > 0) {
+			long end = System.nanoTime() + csSetupDelay;
+			for (long remaining = csSetupDelay; remaining > 0; remaining = end - System.nanoTime()) {
+				LockSupport.parkNanos(remaining);
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
 		}
-
-		io.write(reverseByte(value));
 	}
 
-	// https://www.geeksforgeeks.org/reverse-actual-bits-given-number/
 	private byte reverseByte(byte value) {
-		byte input = value;
+		return auxLsbFirst ? value : REVERSED[value & 0xFF];
+	}
 
-		byte output = 0;
-		for (int i = 0; i < 8; i++) {
-			output <<= 1;
-			if ((input & 0x01) > 0) {
-				output ^= 1;
-			}
-			input >>= 1;
+	private void reverseBytes(byte[] values, int startIndex, int length) {
+		if (auxLsbFirst) {
+			return;
 		}
 
-		return output;
-	}
-
-	private void reverseBytes(byte[] values) {
-		for (int i = 0; i < values.length; i++) {
-			values[i] = reverseByte(values[i]);
+		for (int i = startIndex; i < startIndex + length; i++) {
+			values[i] = REVERSED[values[i] & 0xFF];
 		}
 	}
 }
\ No newline at end of file
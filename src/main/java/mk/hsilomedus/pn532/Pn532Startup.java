@@ -0,0 +1,109 @@
+package mk.hsilomedus.pn532;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * The initialize, firmware, SAM config, and max retries sequence that brings a PN532 up before polling, shared by
+ * {@link Pn532SamThread}, {@link Pn532Supervisor}, and {@link Pn532ReaderManager}. Runs one transaction per
+ * {@link #step()}, so the caller decides how to wait between steps and can watch each transaction on its own.
+ */
+final class Pn532Startup {
+
+	/** Milliseconds to wait after initializing, before the PN532 answers commands. */
+	static final int INITIALIZE_DELAY = 1000;
+	/** Skips setting the passive activation retries, for auto poll. */
+	static final int KEEP_RETRIES = -1;
+
+	private enum Step {
+		INITIALIZE,
+		FIRMWARE,
+		SAM_CONFIG,
+		MAX_RETRIES,
+		DONE
+	}
+
+	private final Pn532<?> pn532;
+	private final int passiveActivationRetries;
+	private final Consumer<String> println;
+
+	private Step step = Step.INITIALIZE;
+
+	/**
+	 * @param passiveActivationRetries see {@link Pn532SamThread#setPassiveActivationRetries(int)}, or
+	 *     {@link Pn532Startup#KEEP_RETRIES}.
+	 * @param println receives the progress messages, without the reader's prefix.
+	 */
+	Pn532Startup(Pn532<?> pn532, int passiveActivationRetries, Consumer<String> println) {
+		this.pn532 = pn532;
+		this.passiveActivationRetries = passiveActivationRetries;
+		this.println = println;
+	}
+
+	boolean isDone() {
+		return step == Step.DONE;
+	}
+
+	/**
+	 * Runs the next step.
+	 *
+	 * @return the milliseconds to wait before the next step.
+	 * @throws IOException when the step fails, with a message naming the command.
+	 */
+	int step() throws InterruptedException, IOException {
+		switch (step) {
+			case INITIALIZE:
+				try {
+					pn532.initialize();
+				} catch (IOException e) {
+					throw error("begin()", e);
+				}
+				step = Step.FIRMWARE;
+				return INITIALIZE_DELAY;
+			case FIRMWARE:
+				long version;
+				try {
+					version = pn532.getFirmwareVersion();
+				} catch (IOException e) {
+					throw error("getFirmwareVersion()", e);
+				}
+				if (version < 0) {
+					throw new IOException("getFirmwareVersion() returned " + Pn532TransferResult.fromValue((int) version));
+				}
+				println.accept("device found.");
+				step = Step.SAM_CONFIG;
+				return 0;
+			case SAM_CONFIG:
+				boolean configured;
+				try {
+					configured = pn532.samConfig();
+				} catch (IOException e) {
+					throw error("samConfig()", e);
+				}
+				if (!configured) {
+					throw new IOException("samConfig() failed.");
+				}
+				step = passiveActivationRetries == KEEP_RETRIES ? Step.DONE : Step.MAX_RETRIES;
+				return 0;
+			case MAX_RETRIES:
+				// Bound each poll on the PN532's side, otherwise an empty poll waits for the read timeout
+				boolean retriesSet;
+				try {
+					retriesSet = pn532.setMaxRetries(Pn532.RETRIES_FOREVER, 1, passiveActivationRetries);
+				} catch (IOException e) {
+					throw error("setMaxRetries()", e);
+				}
+				if (!retriesSet) {
+					println.accept("setMaxRetries() failed, polling with the default retries.");
+				}
+				step = Step.DONE;
+				return 0;
+			default:
+				throw new IllegalStateException("PN532Startup.step() called after the last step.");
+		}
+	}
+
+	private static IOException error(String method, IOException cause) {
+		return new IOException(method + " error: " + cause.getMessage(), cause);
+	}
+}
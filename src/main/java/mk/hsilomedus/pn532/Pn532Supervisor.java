@@ -0,0 +1,496 @@
+package mk.hsilomedus.pn532;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.pi4j.io.IO;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+/**
+ * Keeps a reader polling unattended. Runs the same initialize, firmware, SAM config, and poll sequence as
+ * {@link Pn532SamThread}, but instead of stopping when a step fails, closes the connection, creates a new one with the
+ * factory, and starts over after an exponential backoff with jitter. A watchdog gives every transaction a deadline; a
+ * transaction that hangs past it (a wedged pigpio read, for example) has its thread abandoned and a new one takes over
+ * once the old connection is closed. The listener is only called from the thread in charge, one at a time. The health
+ * state and recovery counters can be read from any thread.
+ */
+public final class Pn532Supervisor<T extends IO<T, ?, ?>> implements AutoCloseable {
+
+	public enum Health {
+		/** Bringing the reader up for the first time. */
+		INITIALIZING,
+		/** Polling. */
+		RUNNING,
+		/** Something failed and the reader is being recreated. */
+		DEGRADED,
+		/** Gave up after the maximum number of consecutive failures. */
+		FAILED
+	}
+
+	public static final int DEFAULT_WATCHDOG_TIMEOUT = 5000;
+	public static final int DEFAULT_INITIAL_BACKOFF = 500;
+	public static final int DEFAULT_MAX_BACKOFF = 60_000;
+	public static final int DEFAULT_MAX_POLL_ERRORS = 3;
+	public static final int DEFAULT_POLL_INTERVAL = 100;
+	public static final int RETRY_FOREVER = 0;
+
+	private static final int MIN_WATCHDOG_PERIOD = 10;
+	private static final int CLOSE_TIMEOUT = 5000;
+
+	private final Pn532SamThreadListener listener;
+	private final Supplier<? extends Pn532Connection<T>> connectionFactory;
+
+	private int watchdogTimeout = DEFAULT_WATCHDOG_TIMEOUT;
+	private int initialBackoff = DEFAULT_INITIAL_BACKOFF;
+	private int maxBackoff = DEFAULT_MAX_BACKOFF;
+	private int maxFailures = RETRY_FOREVER;
+	private int maxPollErrors = DEFAULT_MAX_POLL_ERRORS;
+	private int pollInterval = DEFAULT_POLL_INTERVAL;
+	private int passiveActivationRetries = Pn532SamThread.DEFAULT_PASSIVE_ACTIVATION_RETRIES;
+	private Pn532PresenceTracker presenceTracker = null;
+
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong recoveries = new AtomicLong();
+	private final AtomicLong watchdogTrips = new AtomicLong();
+	private volatile Health health = Health.INITIALIZING;
+	private volatile String lastError = null;
+
+	private ScheduledExecutorService watchdog = null;
+	private volatile Worker worker = null; // The worker in charge, abandoned workers exit once they notice they aren't
+	private volatile boolean started = false;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param connectionFactory creates a new, unopened connection for the first attempt and after every failure, since a
+	 *     closed connection can't be opened again.
+	 */
+	public Pn532Supervisor(Pn532SamThreadListener listener, Supplier<? extends Pn532Connection<T>> connectionFactory) {
+		if (listener == null) {
+			throw new IllegalArgumentException("PN532Supervisor constructed with null listener.");
+		} else if (connectionFactory == null) {
+			throw new IllegalArgumentException("PN532Supervisor constructed with null connectionFactory.");
+		}
+
+		this.listener = listener;
+		this.connectionFactory = connectionFactory;
+	}
+
+	/**
+	 * Sets how long in milliseconds a single transaction may take before the watchdog abandons it. Must be longer than the
+	 * connection's read timeout. Defaults to {@link Pn532Supervisor#DEFAULT_WATCHDOG_TIMEOUT}.
+	 */
+	public void setWatchdogTimeout(int value) {
+		checkNotStarted("setWatchdogTimeout");
+		if (value < 1) {
+			throw new IllegalArgumentException("PN532Supervisor.setWatchdogTimeout() called with value less than 1.");
+		}
+
+		watchdogTimeout = value;
+	}
+
+	/**
+	 * Sets the delay in milliseconds before the first recovery attempt, doubling for every consecutive failure up to
+	 * {@code max}. Each delay is randomized between half and all of its value, so readers that fail together don't retry in
+	 * lockstep. Defaults to {@link Pn532Supervisor#DEFAULT_INITIAL_BACKOFF} and {@link Pn532Supervisor#DEFAULT_MAX_BACKOFF}.
+	 */
+	public void setBackoff(int initial, int max) {
+		checkNotStarted("setBackoff");
+		if (initial < 1 || max < initial) {
+			throw new IllegalArgumentException("PN532Supervisor.setBackoff() called with initial less than 1 or max less than initial.");
+		}
+
+		initialBackoff = initial;
+		maxBackoff = max;
+	}
+
+	/**
+	 * Sets how many consecutive failures are tolerated before giving up in {@link Health#FAILED}. Defaults to
+	 * {@link Pn532Supervisor#RETRY_FOREVER}.
+	 */
+	public void setMaxFailures(int value) {
+		checkNotStarted("setMaxFailures");
+		if (value < 0) {
+			throw new IllegalArgumentException("PN532Supervisor.setMaxFailures() called with negative value.");
+		}
+
+		maxFailures = value;
+	}
+
+	/**
+	 * Sets how many polls in a row may return an error (a timeout, bad frame, and so on) before the reader is recreated.
+	 * Defaults to {@link Pn532Supervisor#DEFAULT_MAX_POLL_ERRORS}.
+	 */
+	public void setMaxPollErrors(int value) {
+		checkNotStarted("setMaxPollErrors");
+		if (value < 1) {
+			throw new IllegalArgumentException("PN532Supervisor.setMaxPollErrors() called with value less than 1.");
+		}
+
+		maxPollErrors = value;
+	}
+
+	/**
+	 * @param value the delay in milliseconds between the end of one poll and the start of the next. Defaults to
+	 *     {@link Pn532Supervisor#DEFAULT_POLL_INTERVAL}.
+	 */
+	public void setPollInterval(int value) {
+		checkNotStarted("setPollInterval");
+		if (value < 0) {
+			throw new IllegalArgumentException("PN532Supervisor.setPollInterval() called with negative value.");
+		}
+
+		pollInterval = value;
+	}
+
+	/**
+	 * See {@link Pn532SamThread#setPassiveActivationRetries(int)}.
+	 */
+	public void setPassiveActivationRetries(int value) {
+		checkNotStarted("setPassiveActivationRetries");
+		if (value < 0 || value > Pn532.RETRIES_FOREVER) {
+			throw new IllegalArgumentException("PN532Supervisor.setPassiveActivationRetries() called with value outside of 0 to 255.");
+		}
+
+		passiveActivationRetries = value;
+	}
+
+	/**
+	 * See {@link Pn532SamThread#setPresenceTracker(Pn532PresenceTracker)}. Cards still in the field after a recovery
+	 * aren't reported as arriving again.
+	 */
+	public void setPresenceTracker(Pn532PresenceTracker value) {
+		checkNotStarted("setPresenceTracker");
+		presenceTracker = value;
+	}
+
+	/**
+	 * Starts bringing the reader up. The threads are daemon threads, so one stuck in a hung transaction doesn't keep the JVM
+	 * from exiting.
+	 */
+	public synchronized void start() {
+		if (closed) {
+			throw new IllegalStateException("PN532Supervisor.start() called after close().");
+		}
+		checkNotStarted("start");
+		started = true;
+
+		watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			var thread = new Thread(runnable, "pn532-watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(watchdogTimeout / 4, MIN_WATCHDOG_PERIOD);
+		watchdog.scheduleAtFixedRate(this::checkWatchdog, period, period, TimeUnit.MILLISECONDS);
+
+		startWorker(new Worker(0, null, null));
+	}
+
+	public Health getHealth() {
+		return health;
+	}
+
+	/**
+	 * @return the number of failures since {@link #start()}, including watchdog trips.
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return the number of times the reader was brought back up after a failure.
+	 */
+	public long getRecoveries() {
+		return recoveries.get();
+	}
+
+	public long getWatchdogTrips() {
+		return watchdogTrips.get();
+	}
+
+	/**
+	 * @return the reason for the last failure, or null if there hasn't been one.
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * Stops polling and closes the connection, waiting up to 5 seconds for the current transaction.
+	 */
+	@Override
+	public void close() {
+		Worker current;
+		synchronized (this) {
+			closed = true;
+			if (watchdog != null) {
+				watchdog.shutdownNow();
+			}
+			current = worker;
+		}
+
+		// Not joined while synchronized, the worker synchronizes on the way out
+		if (current != null) {
+			current.interrupt();
+			try {
+				current.join(CLOSE_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			current.closeConnection();
+		}
+	}
+
+	private void checkNotStarted(String method) {
+		if (started) {
+			throw new IllegalStateException("PN532Supervisor." + method + "() must be called before start().");
+		}
+	}
+
+	private void startWorker(Worker value) {
+		worker = value;
+		value.start();
+	}
+
+	private synchronized void checkWatchdog() {
+		var current = worker;
+		if (closed || current == null) {
+			return;
+		}
+
+		long deadline = current.deadline;
+		if (deadline == 0 || System.nanoTime() - deadline < 0) {
+			return;
+		}
+
+		watchdogTrips.incrementAndGet();
+
+		// Interrupting may not unblock a native read, closing the connection from another thread usually does
+		current.interrupt();
+		var closer = new Thread(current::closeConnection, "pn532-watchdog-close");
+		closer.setDaemon(true);
+		closer.start();
+
+		// The new worker reports the failure, so the listener isn't called from this thread
+		startWorker(new Worker(current.consecutiveFailures, closer,
+				"watchdog: transaction took longer than " + watchdogTimeout + "ms, abandoning its thread."));
+	}
+
+	// Returns true when there have been too many failures and the supervisor gives up
+	private boolean failed(int consecutiveFailures, String message) {
+		failures.incrementAndGet();
+		lastError = message;
+		println(null, message);
+
+		if (maxFailures != RETRY_FOREVER && consecutiveFailures >= maxFailures) {
+			health = Health.FAILED;
+			println(null, "giving up after " + consecutiveFailures + " consecutive failures.");
+			return true;
+		}
+
+		health = Health.DEGRADED;
+		return false;
+	}
+
+	private long getBackoff(int consecutiveFailures) {
+		long delay = Math.min((long) initialBackoff << Math.min(consecutiveFailures - 1, 20), maxBackoff);
+		return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+	}
+
+	private void println(Pn532<T> pn532, String message) {
+		listener.receiveMessage(pn532 == null ? "PN532Supervisor " + message : pn532.prefixMessage(message));
+	}
+
+	private final class Worker extends Thread {
+
+		private final AtomicReference<Pn532<T>> pn532 = new AtomicReference<>();
+		private final byte[] buffer = new byte[10]; // UID should be max 10 bytes
+
+		private volatile long deadline = 0; // System.nanoTime() the current transaction has to finish by, 0 between transactions
+		private volatile int consecutiveFailures;
+		private Thread closer; // Closing the connection of the worker this one replaced, null once it's done
+		private final String watchdogError;
+
+		Worker(int consecutiveFailures, Thread closer, String watchdogError) {
+			super("pn532-supervisor");
+			setDaemon(true);
+			this.consecutiveFailures = consecutiveFailures;
+			this.closer = closer;
+			this.watchdogError = watchdogError;
+		}
+
+		@Override
+		public void run() {
+			if (watchdogError != null && !recordFailure(watchdogError)) {
+				return;
+			}
+
+			while (isCurrent()) {
+				if (consecutiveFailures > 0) {
+					long delay = getBackoff(consecutiveFailures);
+					report(null, "recovering in " + delay + "ms.");
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						return; // Closed or abandoned
+					}
+					if (!isCurrent()) {
+						return;
+					}
+				}
+
+				String error;
+				try {
+					if (!awaitCloser()) {
+						error = "the abandoned connection is still closing.";
+					} else {
+						var current = new Pn532<>(connectionFactory.get());
+						pn532.set(current);
+						run(current);
+						return; // Only returns normally when closed
+					}
+				} catch (InterruptedException e) {
+					error = "interrupted.";
+				} catch (IOException | RuntimeException e) {
+					error = "error: " + e.getMessage();
+				} finally {
+					deadline = 0;
+					closeConnection();
+				}
+
+				if (!recordFailure(error)) {
+					return;
+				}
+			}
+		}
+
+		// Returns false when this worker should exit, after being replaced or giving up
+		private boolean recordFailure(String error) {
+			synchronized (Pn532Supervisor.this) { // Not while checkWatchdog() is replacing this worker
+				if (!isCurrent()) {
+					return false;
+				} else if (failed(++consecutiveFailures, error)) {
+					worker = null;
+					return false;
+				}
+				return true;
+			}
+		}
+
+		// The new connection can't begin() until the old one has left the Pi4J registry and released the device
+		private boolean awaitCloser() throws InterruptedException {
+			if (closer != null) {
+				closer.join(watchdogTimeout);
+				if (closer.isAlive()) {
+					return false;
+				}
+				closer = null;
+			}
+			return true;
+		}
+
+		private void run(Pn532<T> pn532) throws InterruptedException, IOException {
+			var startup = new Pn532Startup(pn532, passiveActivationRetries, message -> report(pn532, message));
+			while (!startup.isDone()) {
+				watch();
+				int delay = startup.step();
+				unwatch();
+				Thread.sleep(delay);
+			}
+
+			synchronized (Pn532Supervisor.this) {
+				if (!isCurrent()) {
+					return;
+				}
+				if (consecutiveFailures > 0) {
+					recoveries.incrementAndGet();
+					println(pn532, "recovered and running.");
+				} else {
+					println(pn532, "configured for SAM and running.");
+				}
+				consecutiveFailures = 0;
+				health = Health.RUNNING;
+			}
+
+			var displayName = pn532.getDisplayName(); // Set by the firmware version, built on every call
+			int pollErrors = 0;
+			while (isCurrent()) {
+				watch();
+				int length = pn532.readPassiveTargetId(buffer);
+				unwatch();
+				if (!isCurrent()) {
+					return; // Abandoned while polling, the new worker reports from here on
+				}
+
+				if (length < 0) {
+					if (++pollErrors >= maxPollErrors) {
+						throw new IOException("readPassiveTargetId() returned " + Pn532TransferResult.fromValue(length) + " " + pollErrors + " times in a row.");
+					}
+				} else {
+					pollErrors = 0;
+					if (length > 0) {
+						uidReceived(displayName, length);
+					}
+				}
+				expire(displayName);
+
+				Thread.sleep(pollInterval);
+			}
+		}
+
+		void closeConnection() {
+			var current = pn532.getAndSet(null);
+			if (current != null) {
+				current.close();
+			}
+		}
+
+		private boolean isCurrent() {
+			return !closed && worker == this;
+		}
+
+		private void watch() {
+			deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(watchdogTimeout);
+		}
+
+		private void unwatch() {
+			deadline = 0;
+		}
+
+		// Synchronized like recordFailure(), so a worker abandoned after its last isCurrent() check can't call the listener or
+		// tracker alongside the one that replaced it. The same goes for expire() and report().
+		private void uidReceived(String displayName, int length) {
+			synchronized (Pn532Supervisor.this) {
+				if (!isCurrent()) {
+					return;
+				} else if (presenceTracker == null) {
+					listener.uidReceived(displayName, buffer, 0, length);
+				} else {
+					presenceTracker.seen(displayName, buffer, 0, length, listener);
+				}
+			}
+		}
+
+		private void expire(String displayName) {
+			synchronized (Pn532Supervisor.this) {
+				if (isCurrent() && presenceTracker != null) {
+					presenceTracker.expire(displayName, listener);
+				}
+			}
+		}
+
+		private void report(Pn532<T> pn532, String message) {
+			synchronized (Pn532Supervisor.this) {
+				if (isCurrent()) {
+					println(pn532, message);
+				}
+			}
+		}
+	}
+}
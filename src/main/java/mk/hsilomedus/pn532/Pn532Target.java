@@ -0,0 +1,146 @@
+package mk.hsilomedus.pn532;
+
+import java.util.Arrays;
+
+/**
+ * A target (card, tag, or phone) found by the PN532, parsed from an InListPassiveTarget or InAutoPoll response.
+ */
+public final class Pn532Target {
+
+	public static final byte TYPE_GENERIC_106 = 0x00;
+	public static final byte TYPE_JEWEL = 0x04;
+	public static final byte TYPE_MIFARE = 0x10;
+	public static final byte TYPE_FELICA_212 = 0x11;
+	public static final byte TYPE_FELICA_424 = 0x12;
+	public static final byte TYPE_ISO14443_4A = 0x20;
+	public static final byte TYPE_ISO14443_4B = 0x23;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final byte type;
+	private final byte number;
+	private final byte[] uid;
+	private final byte[] data;
+
+	private Pn532Target(byte type, byte number, byte[] uid, byte[] data) {
+		this.type = type;
+		this.number = number;
+		this.uid = uid;
+		this.data = data;
+	}
+
+	/**
+	 * @return the InAutoPoll target type, one of the TYPE_ constants.
+	 */
+	public byte getType() {
+		return type;
+	}
+
+	/**
+	 * @return the logical target number (Tg) the PN532 assigned, used to address the target in later commands.
+	 */
+	public byte getNumber() {
+		return number;
+	}
+
+	/**
+	 * @return the NFCID/UID/PUPI of the target, or an empty array if the type isn't one we know how to parse.
+	 */
+	public byte[] getUid() {
+		return uid.clone();
+	}
+
+	public int getUidLength() {
+		return uid.length;
+	}
+
+	/**
+	 * @return the raw target data as returned by the PN532, starting with the target number.
+	 */
+	public byte[] getData() {
+		return data.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "Pn532Target[type: " + String.format("%02X", type) + ", number: " + number
+				+ ", uid: " + Pn532Utility.getByteHexString(uid) + "]";
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof Pn532Target)) {
+			return false;
+		}
+
+		var other = (Pn532Target) obj;
+		return type == other.type && number == other.number && Arrays.equals(data, other.data);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * type + number) + Arrays.hashCode(data);
+	}
+
+	/**
+	 * Parses the target data for a single target.
+	 *
+	 * @param buffer the response buffer, with the target data (starting at Tg) at {@code buffer[offset]}.
+	 * @return the target, or null if {@code length} is too short for the type.
+	 */
+	static Pn532Target parse(byte type, byte[] buffer, int offset, int length) {
+		if (length < 1) {
+			return null;
+		}
+
+		byte number = buffer[offset];
+		byte[] data = Arrays.copyOfRange(buffer, offset, offset + length);
+
+		switch (type) {
+			case TYPE_GENERIC_106:
+			case TYPE_MIFARE:
+			case TYPE_ISO14443_4A: {
+				// Tg, SENS_RES (2), SEL_RES, NFCID length, NFCID, [ATS]
+				if (length < 5) {
+					return null;
+				}
+
+				int uidLength = buffer[offset + 4] & 0xFF;
+				if (5 + uidLength > length) {
+					return null;
+				}
+
+				return new Pn532Target(type, number, Arrays.copyOfRange(buffer, offset + 5, offset + 5 + uidLength), data);
+			}
+			case TYPE_FELICA_212:
+			case TYPE_FELICA_424: {
+				// Tg, POL_RES length, response code (0x01), NFCID2t (8), Pad (8), [SYST_CODE (2)]
+				if (length < 11) {
+					return null;
+				}
+
+				return new Pn532Target(type, number, Arrays.copyOfRange(buffer, offset + 3, offset + 11), data);
+			}
+			case TYPE_ISO14443_4B: {
+				// Tg, ATQB (0x50, PUPI (4), ...), ...
+				if (length < 6) {
+					return null;
+				}
+
+				return new Pn532Target(type, number, Arrays.copyOfRange(buffer, offset + 2, offset + 6), data);
+			}
+			case TYPE_JEWEL: {
+				// Tg, SENS_RES (2), JEWELID (4)
+				if (length < 7) {
+					return null;
+				}
+
+				return new Pn532Target(type, number, Arrays.copyOfRange(buffer, offset + 3, offset + 7), data);
+			}
+			default:
+				return new Pn532Target(type, number, EMPTY, data);
+		}
+	}
+}
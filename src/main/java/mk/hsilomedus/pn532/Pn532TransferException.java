@@ -0,0 +1,23 @@
+package mk.hsilomedus.pn532;
+
+import java.io.IOException;
+
+/**
+ * Thrown (or used to complete a future exceptionally) when a command gets a {@link Pn532TransferResult} other than OK,
+ * so callers can tell a timeout from a bad frame without checking magic negative ints.
+ */
+public class Pn532TransferException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Pn532TransferResult result;
+
+	public Pn532TransferException(String message, Pn532TransferResult result) {
+		super(message + " returned " + result + ".");
+		this.result = result;
+	}
+
+	public Pn532TransferResult getResult() {
+		return result;
+	}
+}
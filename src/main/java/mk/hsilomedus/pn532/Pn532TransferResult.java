@@ -1,13 +1,14 @@
 package mk.hsilomedus.pn532;
 
-enum Pn532TransferResult {
+public enum Pn532TransferResult {
 	OK(0),
 	UNDEFINED(-1),
 	TIMEOUT(-2),
 	INVALID_ACK(-3),
 	INVALID_FRAME(-4),
 	INVALID_FW_VERSION(-5),
-	INSUFFICIENT_SPACE(-6);
+	INSUFFICIENT_SPACE(-6),
+	STATUS_ERROR(-7);
 
 	private static final Pn532TransferResult[] VALUES = values();
 
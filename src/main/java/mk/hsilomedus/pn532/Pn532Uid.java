@@ -0,0 +1,179 @@
+package mk.hsilomedus.pn532;
+
+/**
+ * An immutable UID of up to 10 bytes (the 4, 7, and 10 byte ISO14443A sizes, or an 8 byte FeliCa IDm) packed into two
+ * primitives, with its hash computed once. Equal UIDs are equal objects, so it can be a map key where a {@code byte[]}
+ * can't, at a fraction of the size of a hex {@code String}. {@link Pn532UidIndex} uses the same packing to look UIDs up
+ * straight from a buffer without creating one.
+ */
+public final class Pn532Uid {
+
+	public static final int MAX_LENGTH = 10;
+
+	private static final int LENGTH_SHIFT = 16;
+
+	private final long first; // Bytes 0 to 7, big endian, zero padded
+	private final int second; // Length, then bytes 8 and 9
+	private final int hash;
+
+	private Pn532Uid(long first, int second) {
+		this.first = first;
+		this.second = second;
+		this.hash = hash(first, second);
+	}
+
+	public static Pn532Uid of(byte[] bytes) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("PN532Uid.of() called with null bytes.");
+		}
+
+		return of(bytes, 0, bytes.length);
+	}
+
+	public static Pn532Uid of(byte[] bytes, int offset, int length) {
+		check("of()", bytes, offset, length);
+		return new Pn532Uid(packFirst(bytes, offset, length), packSecond(bytes, offset, length));
+	}
+
+	/**
+	 * Parses hex digits in either case, the format of {@link #toString()} and
+	 * {@link Pn532SamThread.Pn532SamThreadListener#getUidString(byte[])}.
+	 */
+	public static Pn532Uid parse(CharSequence hex) {
+		if (hex == null) {
+			throw new IllegalArgumentException("PN532Uid.parse() called with null hex.");
+		}
+
+		int length = hex.length() / 2;
+		if (hex.length() % 2 != 0 || length < 1 || length > MAX_LENGTH) {
+			throw new IllegalArgumentException("PN532Uid.parse() called with " + hex.length() + " characters, not an even number from 2 to " + MAX_LENGTH * 2 + ".");
+		}
+
+		long first = 0;
+		int second = length << LENGTH_SHIFT;
+		for (int i = 0; i < length; i++) {
+			int high = Pn532Utility.getHexValue(hex.charAt(i * 2));
+			int low = Pn532Utility.getHexValue(hex.charAt(i * 2 + 1));
+			if (high < 0 || low < 0) {
+				throw new IllegalArgumentException("PN532Uid.parse() called with a character that isn't a hex digit: " + hex);
+			}
+
+			int value = (high << 4) | low;
+			if (i < Long.BYTES) {
+				first |= (long) value << (56 - i * 8);
+			} else {
+				second |= value << (8 - (i - Long.BYTES) * 8);
+			}
+		}
+		return new Pn532Uid(first, second);
+	}
+
+	public int length() {
+		return second >>> LENGTH_SHIFT;
+	}
+
+	public byte get(int index) {
+		if (index < 0 || index >= length()) {
+			throw new IndexOutOfBoundsException("PN532Uid.get() called with index " + index + " outside of 0 to " + (length() - 1) + ".");
+		}
+
+		return index < Long.BYTES ? (byte) (first >>> (56 - index * 8)) : (byte) (second >>> (8 - (index - Long.BYTES) * 8));
+	}
+
+	/**
+	 * Copies the UID to {@code buffer[offset]}, which needs room for {@link #length()} bytes.
+	 */
+	public void copyTo(byte[] buffer, int offset) {
+		for (int i = 0; i < length(); i++) {
+			buffer[offset + i] = get(i);
+		}
+	}
+
+	public byte[] toByteArray() {
+		var bytes = new byte[length()];
+		copyTo(bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * Appends the UID as uppercase hex digits without a separator.
+	 */
+	public StringBuilder appendTo(StringBuilder output) {
+		for (int i = 0; i < length(); i++) {
+			Pn532Utility.appendHex(output, get(i));
+		}
+		return output;
+	}
+
+	/**
+	 * @return true if this is the UID in {@code bytes[offset]} to {@code bytes[offset + length - 1]}, without creating one.
+	 */
+	public boolean equals(byte[] bytes, int offset, int length) {
+		check("equals()", bytes, offset, length);
+		return first == packFirst(bytes, offset, length) && second == packSecond(bytes, offset, length);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		} else if (!(other instanceof Pn532Uid)) {
+			return false;
+		}
+
+		var uid = (Pn532Uid) other;
+		return first == uid.first && second == uid.second;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return appendTo(new StringBuilder(length() * 2)).toString();
+	}
+
+	long getFirst() {
+		return first;
+	}
+
+	int getSecond() {
+		return second;
+	}
+
+	static long packFirst(byte[] bytes, int offset, int length) {
+		long first = 0;
+		for (int i = 0; i < Math.min(length, Long.BYTES); i++) {
+			first |= (bytes[offset + i] & 0xFFL) << (56 - i * 8);
+		}
+		return first;
+	}
+
+	static int packSecond(byte[] bytes, int offset, int length) {
+		int second = length << LENGTH_SHIFT;
+		for (int i = Long.BYTES; i < length; i++) {
+			second |= (bytes[offset + i] & 0xFF) << (8 - (i - Long.BYTES) * 8);
+		}
+		return second;
+	}
+
+	// Mixes every bit into the low ones, since Pn532UidIndex masks the hash to a power of 2 table size
+	static int hash(long first, int second) {
+		long hash = (first ^ ((long) second << 32 | second)) * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 29;
+		hash *= 0xBF58476D1CE4E5B9L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	static void check(String method, byte[] bytes, int offset, int length) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("PN532Uid." + method + " called with null bytes.");
+		} else if (length < 1 || length > MAX_LENGTH) {
+			throw new IllegalArgumentException("PN532Uid." + method + " called with length outside of 1 to " + MAX_LENGTH + ".");
+		} else if (offset < 0 || offset > bytes.length - length) {
+			throw new IllegalArgumentException("PN532Uid." + method + " called with offset and length outside of bytes.");
+		}
+	}
+}
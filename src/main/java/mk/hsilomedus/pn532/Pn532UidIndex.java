@@ -0,0 +1,236 @@
+package mk.hsilomedus.pn532;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Maps UIDs to an int decision (allowed, denied, a group, and so on) for access checks against millions of cards. Keys
+ * are stored packed like {@link Pn532Uid} in primitive arrays with open addressing, 16 bytes per slot, so 2 million cards
+ * take about 64MB instead of several hundred in a {@code HashMap<String, ...>}. Lookups straight from a UID buffer don't
+ * allocate.
+ *
+ * <p>The table is immutable once built. {@link #replace(Builder)} and {@link #load(Path)} build a new one and swap it in,
+ * so lookups on other threads never block and see either the old or the new contents, never a mix.
+ */
+public final class Pn532UidIndex {
+
+	/** Returned by the lookups for a UID that isn't in the index. Decisions have to be 0 or more. */
+	public static final int NOT_FOUND = -1;
+	/** The decision of a UID in a file without one. */
+	public static final int DEFAULT_DECISION = 1;
+
+	private volatile Table table = new Table(0);
+
+	public Pn532UidIndex() {
+	}
+
+	/**
+	 * @return the decision for the UID in {@code uid[offset]} to {@code uid[offset + length - 1]}, or
+	 *     {@link Pn532UidIndex#NOT_FOUND}.
+	 */
+	public int get(byte[] uid, int offset, int length) {
+		Pn532Uid.check("get()", uid, offset, length);
+		return table.get(Pn532Uid.packFirst(uid, offset, length), Pn532Uid.packSecond(uid, offset, length));
+	}
+
+	public int get(byte[] uid) {
+		return get(uid, 0, uid.length);
+	}
+
+	public int get(Pn532Uid uid) {
+		return table.get(uid.getFirst(), uid.getSecond());
+	}
+
+	public boolean contains(byte[] uid, int offset, int length) {
+		return get(uid, offset, length) != NOT_FOUND;
+	}
+
+	public boolean contains(Pn532Uid uid) {
+		return get(uid) != NOT_FOUND;
+	}
+
+	public int size() {
+		return table.size;
+	}
+
+	/**
+	 * Swaps in the contents of {@code builder}. The builder can't be used afterwards.
+	 */
+	public void replace(Builder builder) {
+		if (builder == null) {
+			throw new IllegalArgumentException("PN532UidIndex.replace() called with null builder.");
+		}
+
+		table = builder.build();
+	}
+
+	/**
+	 * Replaces the contents with {@code file}: one UID in hex per line, optionally followed by whitespace or a comma and its
+	 * decision ({@link Pn532UidIndex#DEFAULT_DECISION} if there isn't one). Blank lines and lines starting with # are
+	 * skipped. The old contents stay in place if the file can't be read or parsed.
+	 */
+	public void load(Path file) throws IOException {
+		var builder = new Builder(1024);
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.charAt(0) == '#') {
+					continue;
+				}
+
+				int end = 0;
+				while (end < line.length() && Pn532Utility.getHexValue(line.charAt(end)) >= 0) {
+					end++;
+				}
+
+				try {
+					var uid = Pn532Uid.parse(line.subSequence(0, end));
+					String decision = line.substring(end).replace(',', ' ').trim();
+					builder.put(uid, decision.isEmpty() ? DEFAULT_DECISION : Integer.parseInt(decision));
+				} catch (IllegalArgumentException e) { // Including NumberFormatException
+					throw new IOException("PN532UidIndex.load() couldn't parse line " + lineNumber + " of " + file + ": " + e.getMessage(), e);
+				}
+			}
+		}
+		replace(builder);
+	}
+
+	public static final class Builder {
+
+		private Table table;
+		private boolean built = false;
+
+		/**
+		 * @param expectedSize the number of UIDs expected, so the table doesn't have to grow while they're added.
+		 */
+		public Builder(int expectedSize) {
+			if (expectedSize < 0) {
+				throw new IllegalArgumentException("PN532UidIndex.Builder constructed with negative expectedSize.");
+			}
+
+			table = new Table(expectedSize);
+		}
+
+		/**
+		 * Adds {@code uid}, or changes its decision if it's already there.
+		 */
+		public Builder put(Pn532Uid uid, int decision) {
+			if (uid == null) {
+				throw new IllegalArgumentException("PN532UidIndex.Builder.put() called with null uid.");
+			}
+
+			return put(uid.getFirst(), uid.getSecond(), decision);
+		}
+
+		public Builder put(byte[] uid, int offset, int length, int decision) {
+			Pn532Uid.check("put()", uid, offset, length);
+			return put(Pn532Uid.packFirst(uid, offset, length), Pn532Uid.packSecond(uid, offset, length), decision);
+		}
+
+		private Builder put(long first, int second, int decision) {
+			if (built) {
+				throw new IllegalStateException("PN532UidIndex.Builder.put() called after the index was replaced with it.");
+			} else if (decision < 0) {
+				throw new IllegalArgumentException("PN532UidIndex.Builder.put() called with negative decision.");
+			}
+
+			if (table.isFull()) {
+				table = table.grow();
+			}
+			table.put(first, second, decision);
+			return this;
+		}
+
+		private Table build() {
+			if (built) {
+				throw new IllegalStateException("PN532UidIndex.replace() called with a builder that was already used.");
+			}
+
+			built = true;
+			return table;
+		}
+	}
+
+	/**
+	 * Linear probing over parallel arrays. A slot is empty while its {@code seconds} entry is 0, which no UID packs to since
+	 * the length is in it.
+	 */
+	private static final class Table {
+
+		private static final int MIN_CAPACITY = 16;
+		private static final int MAX_CAPACITY = 1 << 30;
+
+		private final long[] firsts;
+		private final int[] seconds;
+		private final int[] decisions;
+		private final int mask;
+		private final int threshold; // Grows past 3/4 full, so probes stay short
+		private int size = 0;
+
+		Table(int expectedSize) {
+			int capacity = MIN_CAPACITY;
+			while (capacity < MAX_CAPACITY && capacity * 3L / 4 < expectedSize) {
+				capacity <<= 1;
+			}
+
+			firsts = new long[capacity];
+			seconds = new int[capacity];
+			decisions = new int[capacity];
+			mask = capacity - 1;
+			threshold = (int) (capacity * 3L / 4);
+		}
+
+		int get(long first, int second) {
+			int i = Pn532Uid.hash(first, second) & mask;
+			while (true) {
+				int slotSecond = seconds[i];
+				if (slotSecond == 0) {
+					return NOT_FOUND;
+				} else if (slotSecond == second && firsts[i] == first) {
+					return decisions[i];
+				}
+				i = (i + 1) & mask;
+			}
+		}
+
+		void put(long first, int second, int decision) {
+			int i = Pn532Uid.hash(first, second) & mask;
+			while (seconds[i] != 0) {
+				if (seconds[i] == second && firsts[i] == first) {
+					decisions[i] = decision;
+					return;
+				}
+				i = (i + 1) & mask;
+			}
+
+			firsts[i] = first;
+			seconds[i] = second;
+			decisions[i] = decision;
+			size++;
+		}
+
+		boolean isFull() {
+			return size >= threshold;
+		}
+
+		Table grow() {
+			if (firsts.length >= MAX_CAPACITY) {
+				throw new IllegalStateException("PN532UidIndex can't hold more than " + threshold + " UIDs.");
+			}
+
+			var grown = new Table(firsts.length); // 3/4 of double the capacity
+			for (int i = 0; i < firsts.length; i++) {
+				if (seconds[i] != 0) {
+					grown.put(firsts[i], seconds[i], decisions[i]);
+				}
+			}
+			return grown;
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,6 +14,16 @@ import com.pi4j.provider.exception.ProviderNotFoundException;
 public final class Pn532Utility {
 
 	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS");
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+	private static final byte[] HEX_VALUES = new byte[128]; // -1 for characters that aren't hex digits
+
+	static {
+		Arrays.fill(HEX_VALUES, (byte) -1);
+		for (int i = 0; i < HEX.length; i++) {
+			HEX_VALUES[HEX[i]] = (byte) i;
+			HEX_VALUES[Character.toLowerCase(HEX[i])] = (byte) i;
+		}
+	}
 
 	private static Logger logger = null;
 
@@ -24,28 +35,41 @@ public final class Pn532Utility {
 		logger = value;
 	}
 
+	/**
+	 * @return true if a logger is set and will accept the messages logged by this library. Callers that build
+	 *     messages eagerly should check this first.
+	 */
+	public static boolean isLogEnabled() {
+		var current = logger;
+		return current != null && current.isLoggable(Level.FINE);
+	}
+
 	public static void log(String message) {
-		if (logger != null) {
+		if (isLogEnabled()) {
 			logger.log(Level.FINE, () -> LocalDateTime.now().format(DATE_FORMAT) + "   " + message + System.lineSeparator());
 		}
 	}
 
 	public static void log(Supplier<String> message) {
-		if (logger != null) {
+		if (isLogEnabled()) {
 			logger.log(Level.FINE, () -> LocalDateTime.now().format(DATE_FORMAT) + "   " + message.get() + System.lineSeparator());
 		}
 	}
 
 	public static void log(String message, Supplier<String> arg1) {
-		log(() -> String.format(message, arg1.get()));
+		if (isLogEnabled()) { // Checked before the capturing lambda is allocated
+			log(() -> String.format(message, arg1.get()));
+		}
 	}
 
 	public static void log(String message, Supplier<String> arg1, Supplier<String> arg2) {
-		log(() -> String.format(message, arg1.get(), arg2.get()));
+		if (isLogEnabled()) {
+			log(() -> String.format(message, arg1.get(), arg2.get()));
+		}
 	}
 
 	public static String getByteHexString(byte[] bytes, int startIndex, int length) {
-		var output = new StringBuilder();
+		var output = new StringBuilder(2 + length * 3);
 		output.append('[');
 
 		if (bytes != null) {
@@ -56,7 +80,7 @@ public final class Pn532Utility {
 				}
 				first = false;
 
-				output.append(String.format("%02X", bytes[i]));
+				appendHex(output, bytes[i]);
 			}
 		}
 
@@ -68,6 +92,20 @@ public final class Pn532Utility {
 		return getByteHexString(bytes, 0, bytes.length);
 	}
 
+	/**
+	 * Appends {@code value} as 2 uppercase hex digits, the same as {@code String.format("%02X", value)} without parsing a format.
+	 */
+	public static void appendHex(StringBuilder output, byte value) {
+		output.append(HEX[(value >> 4) & 0x0F]).append(HEX[value & 0x0F]);
+	}
+
+	/**
+	 * @return the value of the hex digit {@code value} (either case), or -1 if it isn't one.
+	 */
+	public static int getHexValue(char value) {
+		return value < HEX_VALUES.length ? HEX_VALUES[value] : -1;
+	}
+
 	public static void wrapInitializationExceptions(Runnable runnable) throws IOException {
 		try {
 			runnable.run();
@@ -101,7 +139,7 @@ public final class Pn532Utility {
 		return new IOException(message, e);
 	}
 
-	private static IOException getCheckedIoException(Throwable e) {
+	static IOException getCheckedIoException(Throwable e) {
 		return getCheckedIoException(e, false);
 	}
 
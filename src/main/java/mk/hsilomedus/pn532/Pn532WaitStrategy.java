@@ -0,0 +1,66 @@
+package mk.hsilomedus.pn532;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a connection waits between readiness checks while reading from the PN532. Deadlines are {@link System#nanoTime()}
+ * values so they aren't affected by the wall clock changing (NTP on a Pi without an RTC, for example).
+ */
+@FunctionalInterface
+public interface Pn532WaitStrategy {
+
+	/**
+	 * Waits before the next readiness check.
+	 *
+	 * @param attempt the number of checks that have already failed in the current read loop, starting at 0.
+	 * @param deadline the {@link System#nanoTime()} value the read loop gives up at. Implementations shouldn't wait past it.
+	 */
+	void idle(int attempt, long deadline) throws InterruptedException;
+
+	/**
+	 * Waits the same {@code intervalNanos} between every check, like the original {@code Thread.sleep(10)} loops.
+	 */
+	static Pn532WaitStrategy fixed(long intervalNanos) {
+		if (intervalNanos < 0) {
+			throw new IllegalArgumentException("Pn532WaitStrategy.fixed() called with negative intervalNanos.");
+		}
+
+		return (attempt, deadline) -> park(intervalNanos, deadline);
+	}
+
+	/**
+	 * Spins for the first {@code spins} checks, then parks starting at {@code minParkNanos} and doubling every check up to
+	 * {@code maxParkNanos}. A response that's ready quickly is picked up almost immediately without pegging a core on a slow one.
+	 */
+	static Pn532WaitStrategy backoff(int spins, long minParkNanos, long maxParkNanos) {
+		if (spins < 0) {
+			throw new IllegalArgumentException("Pn532WaitStrategy.backoff() called with negative spins.");
+		} else if (minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+			throw new IllegalArgumentException("Pn532WaitStrategy.backoff() called with minParkNanos <= 0 or maxParkNanos < minParkNanos.");
+		}
+
+		return (attempt, deadline) -> {
+			if (attempt < spins) {
+				Thread.onSpinWait();
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				return;
+			}
+
+			int doublings = Math.min(attempt - spins, Long.numberOfLeadingZeros(minParkNanos) - 1); // Don't overflow
+			park(Math.min(maxParkNanos, minParkNanos << doublings), deadline);
+		};
+	}
+
+	private static void park(long nanos, long deadline) throws InterruptedException {
+		long remaining = deadline - System.nanoTime();
+		if (remaining > 0) {
+			LockSupport.parkNanos(Math.min(nanos, remaining));
+		}
+
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package mk.hsilomedus.pn532;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21 version of {@code src/main/java/mk/hsilomedus/pn532/Pn532Executors.java}, packaged in META-INF/versions/21.
+ */
+final class Pn532Executors {
+
+	private Pn532Executors() {
+		throw new UnsupportedOperationException("Utility class.");
+	}
+
+	/**
+	 * @return a fixed pool of {@code threads} virtual threads with a FIFO queue, so readers are served in turn like on Java 11,
+	 *     but a thread blocked in I/O doesn't hold on to a platform thread.
+	 */
+	static ExecutorService newWorkerExecutor(int threads, String name) {
+		return Executors.newFixedThreadPool(threads, Thread.ofVirtual().name(name + "-", 0).factory());
+	}
+}
@@ -0,0 +1,50 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes the current thread allocates, for the tests of code that shouldn't allocate once it's warmed up.
+ */
+final class Pn532Allocations {
+
+	static final int WARMUP_CYCLES = 20_000;
+	static final int CYCLES = 10_000;
+
+	private Pn532Allocations() {
+		throw new UnsupportedOperationException("Utility class.");
+	}
+
+	/**
+	 * Runs {@code cycle} until it's compiled, then returns the bytes this thread allocated running it
+	 * {@link Pn532Allocations#CYCLES} more times. Skips the test on a JVM without allocation counters.
+	 */
+	static long measure(Cycle cycle) throws Exception {
+		var threads = ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "No allocation counters on this JVM.");
+		var counters = (com.sun.management.ThreadMXBean) threads;
+		assumeTrue(counters.isThreadAllocatedMemorySupported() && counters.isThreadAllocatedMemoryEnabled(),
+				"Allocation counters disabled on this JVM.");
+
+		for (int i = 0; i < WARMUP_CYCLES; i++) {
+			cycle.run();
+		}
+
+		long id = Thread.currentThread().getId();
+		long before = counters.getThreadAllocatedBytes(id);
+		long overhead = counters.getThreadAllocatedBytes(id) - before; // Reading the counter can allocate itself
+
+		before = counters.getThreadAllocatedBytes(id);
+		for (int i = 0; i < CYCLES; i++) {
+			cycle.run();
+		}
+		return counters.getThreadAllocatedBytes(id) - before - overhead;
+	}
+
+	@FunctionalInterface
+	interface Cycle {
+		void run() throws InterruptedException, IOException;
+	}
+}
@@ -0,0 +1,66 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pi4j.io.i2c.I2C;
+
+class Pn532ConnectionTest {
+
+	private static final int CYCLES = Pn532Allocations.CYCLES;
+
+	// Tags found, tag number, SENS_RES x2, SEL_RES, NFCID length, NFCID
+	private static final byte[] TARGET_RESPONSE = { 1, 1, 0x00, 0x04, 0x08, 4, 0x12, 0x34, 0x56, 0x78 };
+
+	private Pn532LoopbackConnection connection;
+	private Pn532<I2C> pn532;
+
+	@BeforeEach
+	void setUp() {
+		connection = new Pn532LoopbackConnection();
+		connection.setResponse(TARGET_RESPONSE);
+		pn532 = new Pn532<>(connection);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pn532.close();
+	}
+
+	@Test
+	void pollCycleDoesNotAllocate() throws Exception {
+		var uid = new byte[10];
+		long allocated = Pn532Allocations.measure(() -> assertEquals(4, pn532.readPassiveTargetId(uid)));
+
+		// Less than a byte per cycle, any allocation per poll would be at least 16 bytes each time
+		assertTrue(allocated < CYCLES, () -> allocated + " bytes allocated over " + CYCLES + " poll cycles.");
+	}
+
+	@Test
+	void commandResponseCycleDoesNotAllocate() throws Exception {
+		byte[] command = { 0x4A, 1, 0 }; // InListPassiveTarget, 1 target, 106 kbps type A
+		var response = new byte[Pn532Connection.MAX_RESPONSE_LENGTH];
+		long allocated = Pn532Allocations.measure(() -> {
+			assertEquals(Pn532TransferResult.OK, connection.writeCommand(command, 0, command.length));
+			assertEquals(TARGET_RESPONSE.length, connection.readResponse(response, 0, response.length, 100));
+		});
+
+		assertTrue(allocated < CYCLES, () -> allocated + " bytes allocated over " + CYCLES + " command/response cycles.");
+	}
+
+	@Test
+	void readResponseDecodesInPlace() throws Exception {
+		byte[] command = { 0x4A, 1, 0 };
+		var response = new byte[4 + TARGET_RESPONSE.length];
+
+		assertEquals(Pn532TransferResult.OK, connection.writeCommand(command, 0, command.length));
+		assertEquals(TARGET_RESPONSE.length, connection.readResponse(response, 4, TARGET_RESPONSE.length, 100));
+		for (int i = 0; i < TARGET_RESPONSE.length; i++) {
+			assertEquals(TARGET_RESPONSE[i], response[4 + i]);
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mk.hsilomedus.pn532.Pn532EventBus.Event;
+import mk.hsilomedus.pn532.Pn532EventBus.EventType;
+import mk.hsilomedus.pn532.Pn532EventBus.OverflowPolicy;
+import mk.hsilomedus.pn532.Pn532EventBus.Publisher;
+import mk.hsilomedus.pn532.Pn532EventBus.Subscription;
+
+class Pn532EventBusTest {
+
+	private static final int CAPACITY = 64;
+	private static final int PUBLISHERS = 2;
+	private static final int THREADS_PER_PUBLISHER = 2;
+	private static final int EVENTS_PER_THREAD = 100_000;
+	private static final long TOTAL = (long) PUBLISHERS * THREADS_PER_PUBLISHER * EVENTS_PER_THREAD;
+	private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	private Pn532EventBus bus;
+
+	@AfterEach
+	void tearDown() {
+		if (bus != null) {
+			bus.close();
+		}
+		Pn532Utility.setLogger(null);
+	}
+
+	@Test
+	void blockDeliversEveryEventInOrder() throws Exception {
+		bus = new Pn532EventBus(CAPACITY, OverflowPolicy.BLOCK);
+		var checker = new OrderChecker(1000, false); // Falls behind now and then, so the publishers have to wait
+		var subscription = bus.subscribe("block", checker);
+		var publishers = publishers();
+
+		publish(publishers);
+		awaitAccounted(() -> checker.delivered.get());
+
+		assertNull(checker.error);
+		assertEquals(TOTAL, checker.delivered.get());
+		assertEquals(0, subscription.getLost());
+		assertEquals(0, dropped(publishers));
+		for (var next : checker.next) {
+			assertEquals(EVENTS_PER_THREAD, next);
+		}
+	}
+
+	@Test
+	void dropDropsWhatDoesntFitAndDeliversTheRestInOrder() throws Exception {
+		bus = new Pn532EventBus(CAPACITY, OverflowPolicy.DROP);
+		var checker = new OrderChecker(0, true);
+		var subscription = bus.subscribe("drop", checker);
+		var publishers = publishers();
+
+		// Stuck on the first event until every event is published, so each ring takes exactly its capacity
+		checker.hold();
+		publish(publishers);
+		checker.release();
+		awaitAccounted(() -> checker.delivered.get() + dropped(publishers));
+
+		assertNull(checker.error);
+		assertEquals(0, subscription.getLost());
+		for (var publisher : publishers) {
+			assertEquals(THREADS_PER_PUBLISHER * EVENTS_PER_THREAD - CAPACITY, publisher.getDropped());
+		}
+		assertEquals(PUBLISHERS * CAPACITY, checker.delivered.get());
+	}
+
+	@Test
+	void overwriteCountsWhatWasLostAndDeliversTheRestInOrder() throws Exception {
+		bus = new Pn532EventBus(CAPACITY, OverflowPolicy.OVERWRITE);
+		var checker = new OrderChecker(0, true);
+		var subscription = bus.subscribe("overwrite", checker);
+		var publishers = publishers();
+
+		checker.hold();
+		publish(publishers);
+		checker.release();
+		awaitAccounted(() -> checker.delivered.get() + subscription.getLost());
+
+		assertNull(checker.error);
+		assertEquals(0, dropped(publishers));
+		assertTrue(subscription.getLost() > 0);
+		assertTrue(checker.delivered.get() >= PUBLISHERS * CAPACITY); // At least the ring the subscriber skipped to
+		assertEquals(TOTAL, checker.delivered.get() + subscription.getLost());
+	}
+
+	@Test
+	void handlerErrorsAreCountedAndLogged() throws Exception {
+		var records = new CopyOnWriteArrayList<String>();
+		var logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.setLevel(Level.FINE);
+		logger.addHandler(new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				records.add(record.getMessage());
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		Pn532Utility.setLogger(logger);
+
+		bus = new Pn532EventBus(CAPACITY, OverflowPolicy.BLOCK);
+		var handled = new AtomicLong();
+		var subscription = bus.subscribe("failing", (event, endOfBatch) -> {
+			if (handled.incrementAndGet() == 2) {
+				throw new IllegalStateException("handler failed");
+			}
+		});
+		var publisher = bus.publisher();
+		for (int i = 0; i < 3; i++) {
+			publisher.receiveMessage("message " + i);
+		}
+
+		long deadline = System.nanoTime() + TIMEOUT_NANOS;
+		while (handled.get() < 3 && System.nanoTime() - deadline < 0) {
+			Thread.sleep(1);
+		}
+		assertEquals(3, handled.get()); // Carried on after the error
+		assertEquals(1, subscription.getErrors());
+		assertEquals(1, records.size());
+		assertTrue(records.get(0).contains("PN532EventBus subscriber failing handler threw on MESSAGE"), records.get(0));
+		assertTrue(records.get(0).contains("handler failed"), records.get(0));
+	}
+
+	private List<Publisher> publishers() {
+		var publishers = new ArrayList<Publisher>();
+		for (int i = 0; i < PUBLISHERS; i++) {
+			publishers.add(bus.publisher());
+		}
+		return publishers;
+	}
+
+	// Each publisher gets THREADS_PER_PUBLISHER threads, each event carries its thread and counter in the UID
+	private static void publish(List<Publisher> publishers) throws InterruptedException {
+		var threads = new ArrayList<Thread>();
+		var start = new CountDownLatch(1);
+		for (int p = 0; p < PUBLISHERS; p++) {
+			var publisher = publishers.get(p);
+			var displayName = Integer.toString(p);
+			for (int t = 0; t < THREADS_PER_PUBLISHER; t++) {
+				int thread = t;
+				threads.add(new Thread(() -> {
+					var uid = new byte[5];
+					uid[0] = (byte) thread;
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+						uid[1] = (byte) (i >>> 24);
+						uid[2] = (byte) (i >>> 16);
+						uid[3] = (byte) (i >>> 8);
+						uid[4] = (byte) i;
+						publisher.publish(EventType.UID_RECEIVED, displayName, null, uid);
+					}
+				}));
+			}
+		}
+
+		for (var thread : threads) {
+			thread.start();
+		}
+		start.countDown();
+		for (var thread : threads) {
+			thread.join();
+		}
+	}
+
+	private static void awaitAccounted(LongSupplier accounted) throws InterruptedException {
+		long deadline = System.nanoTime() + TIMEOUT_NANOS;
+		while (accounted.getAsLong() < TOTAL && System.nanoTime() - deadline < 0) {
+			Thread.sleep(1);
+		}
+		assertEquals(TOTAL, accounted.getAsLong());
+	}
+
+	private static long dropped(List<Publisher> publishers) {
+		long dropped = 0;
+		for (var publisher : publishers) {
+			dropped += publisher.getDropped();
+		}
+		return dropped;
+	}
+
+	// Checks that every publishing thread's events arrive in the order it published them, with gaps only if events can be lost
+	private static final class OrderChecker implements Pn532EventBus.Handler {
+
+		final int[] next = new int[PUBLISHERS * THREADS_PER_PUBLISHER]; // Only read once delivered stops changing
+		final AtomicLong delivered = new AtomicLong();
+		volatile String error = null;
+
+		private final int parkEvery;
+		private final boolean gaps;
+		private volatile CountDownLatch held = null;
+
+		OrderChecker(int parkEvery, boolean gaps) {
+			this.parkEvery = parkEvery;
+			this.gaps = gaps;
+		}
+
+		void hold() {
+			held = new CountDownLatch(1);
+		}
+
+		void release() {
+			held.countDown();
+		}
+
+		@Override
+		public void onEvent(Event event, boolean endOfBatch) throws Exception {
+			var latch = held;
+			if (latch != null) {
+				latch.await();
+				held = null;
+			}
+
+			var uid = event.getUid();
+			int index = Integer.parseInt(event.getDisplayName()) * THREADS_PER_PUBLISHER + uid[0];
+			int counter = ((uid[1] & 0xFF) << 24) | ((uid[2] & 0xFF) << 16) | ((uid[3] & 0xFF) << 8) | (uid[4] & 0xFF);
+			if (event.getType() != EventType.UID_RECEIVED || event.getUidLength() != 5) {
+				error = "Unexpected event " + event.getType() + " with a " + event.getUidLength() + " byte UID.";
+			} else if ((gaps ? counter < next[index] : counter != next[index]) && error == null) {
+				error = "Publisher " + event.getDisplayName() + " thread " + uid[0] + " event " + counter + " after " + (next[index] - 1) + ".";
+			}
+			next[index] = counter + 1;
+
+			if (parkEvery > 0 && delivered.get() % parkEvery == 0) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+			}
+			delivered.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pi4j.io.gpio.digital.DigitalState;
+import com.pi4j.plugin.mock.provider.gpio.digital.MockDigitalInput;
+
+class Pn532IrqTest {
+
+	private static final int IRQ_PIN = 25;
+
+	private Pn532LoopbackConnection connection;
+	private MockDigitalInput irq;
+
+	@BeforeAll
+	static void initializeContext() {
+		Pn532TestContext.initialize();
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		connection = new Pn532LoopbackConnection(Pn532TestContext.MOCK_DIGITAL_INPUT, IRQ_PIN);
+		connection.setResponse(new byte[] { 0x00 });
+		connection.begin();
+		irq = Pn532ContextHelper.getContext().registry().get("pn5xx-loopback-irq", MockDigitalInput.class);
+		irq.mockState(DigitalState.HIGH);
+	}
+
+	@AfterEach
+	void tearDown() {
+		connection.close();
+	}
+
+	@Test
+	void waitForIrqTimesOutWhileHigh() throws Exception {
+		long start = System.nanoTime();
+		assertFalse(connection.waitForIrq(start + TimeUnit.MILLISECONDS.toNanos(50)));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+	}
+
+	@Test
+	void waitForIrqReturnsWhenPulledLow() throws Exception {
+		var pulled = new Thread(() -> {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				return;
+			}
+			irq.mockState(DigitalState.LOW);
+		});
+
+		long start = System.nanoTime();
+		pulled.start();
+		assertTrue(connection.waitForIrq(start + TimeUnit.SECONDS.toNanos(5)));
+		// Woken by the listener, not by the deadline
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		pulled.join();
+	}
+
+	@Test
+	void waitForIrqReturnsImmediatelyWhenLow() throws Exception {
+		irq.mockState(DigitalState.LOW);
+		assertTrue(connection.waitForIrq(System.nanoTime()));
+	}
+
+	@Test
+	void writeCommandWaitsForIrq() throws Exception {
+		byte[] command = { 0x02 }; // GetFirmwareVersion
+		connection.setAckTimeout(50);
+
+		assertEquals(Pn532TransferResult.TIMEOUT, connection.writeCommand(command, 0, command.length));
+
+		irq.mockState(DigitalState.LOW);
+		assertEquals(Pn532TransferResult.OK, connection.writeCommand(command, 0, command.length));
+	}
+}
@@ -0,0 +1,232 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pi4j.io.i2c.I2C;
+
+import mk.hsilomedus.pn532.Pn532MifareClassic.Key;
+
+class Pn532MifareClassicTest {
+
+	private static final byte[] UID = { 0x12, 0x34, 0x56, 0x78 };
+	private static final byte[] OTHER_UID = { 0x0A, 0x0B, 0x0C, 0x0D };
+	private static final byte[] DEFAULT_KEY = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+	private static final byte[] NDEF_KEY = { (byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7 };
+	private static final byte[] SECRET_KEY = { 1, 2, 3, 4, 5, 6 };
+
+	private Card card;
+	private Pn532<I2C> pn532;
+	private Pn532MifareClassic<I2C> mifare;
+	private final byte[] buffer = new byte[4 * Pn532MifareClassic.BLOCK_SIZE];
+
+	@BeforeEach
+	void setUp() throws Exception {
+		card = new Card();
+		var connection = new Pn532LoopbackConnection();
+		connection.setResponder(card);
+		pn532 = new Pn532<>(connection);
+		mifare = new Pn532MifareClassic<>(pn532);
+
+		assertEquals(UID.length, pn532.readPassiveTargetId(new byte[10]));
+		card.log.clear();
+	}
+
+	@AfterEach
+	void tearDown() {
+		pn532.close();
+	}
+
+	@Test
+	void authenticatesASectorOnceForAllOfItsBlocks() throws Exception {
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+
+		assertEquals(List.of("auth 4 FFFFFFFFFFFF", "read 4", "read 5", "read 6", "read 7"), card.log);
+		assertEquals(1, mifare.getLastAuthentications());
+		assertEquals(5, mifare.getLastExchanges());
+		assertEquals(Key.DEFAULT, mifare.getCachedKey(UID, 1));
+		for (int i = 0; i < buffer.length; i++) {
+			assertEquals((byte) (4 * Pn532MifareClassic.BLOCK_SIZE + i), buffer[i]);
+		}
+	}
+
+	@Test
+	void authenticatesEachSectorARangeCrosses() throws Exception {
+		assertEquals(64, mifare.readBlocks(UID, 2, 4, buffer, 0));
+
+		assertEquals(List.of("auth 0 FFFFFFFFFFFF", "read 2", "read 3", "auth 4 FFFFFFFFFFFF", "read 4", "read 5"), card.log);
+	}
+
+	@Test
+	void authenticatesAgainInTheNextOperation() throws Exception {
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+		card.log.clear();
+
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+		assertEquals(1, mifare.getLastAuthentications());
+		assertEquals("auth 4 FFFFFFFFFFFF", card.log.get(0));
+	}
+
+	@Test
+	void fallsBackThroughTheKeysReselectingAfterEachFailure() throws Exception {
+		card.keys[1] = NDEF_KEY;
+
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+
+		assertEquals(List.of("auth 4 FFFFFFFFFFFF", "select", "auth 4 A0A1A2A3A4A5", "select", "auth 4 D3F7D3F7D3F7",
+				"read 4", "read 5", "read 6", "read 7"), card.log);
+		assertEquals(3, mifare.getLastAuthentications());
+		assertEquals(Key.NDEF, mifare.getCachedKey(UID, 1));
+	}
+
+	@Test
+	void triesTheCachedKeyFirst() throws Exception {
+		card.keys[1] = NDEF_KEY;
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+		card.log.clear();
+
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+		assertEquals(List.of("auth 4 D3F7D3F7D3F7", "read 4", "read 5", "read 6", "read 7"), card.log);
+		assertEquals(1, mifare.getLastAuthentications());
+	}
+
+	@Test
+	void fallsBackWhenTheCachedKeyStopsWorking() throws Exception {
+		card.keys[1] = NDEF_KEY;
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+		card.keys[1] = DEFAULT_KEY;
+		card.log.clear();
+
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+		// The cached key isn't tried twice
+		assertEquals(List.of("auth 4 D3F7D3F7D3F7", "select", "auth 4 FFFFFFFFFFFF", "read 4", "read 5", "read 6", "read 7"), card.log);
+		assertEquals(Key.DEFAULT, mifare.getCachedKey(UID, 1));
+	}
+
+	@Test
+	void failsWhenNoKeyWorks() throws Exception {
+		card.keys[1] = SECRET_KEY;
+
+		assertEquals(Pn532TransferResult.STATUS_ERROR.getValue(), mifare.readSector(UID, 1, buffer, 0));
+		assertEquals(3, mifare.getLastAuthentications());
+		assertNull(mifare.getCachedKey(UID, 1));
+
+		// The last failure halted the card, so it has to be selected again like after any failed operation
+		assertEquals(UID.length, pn532.readPassiveTargetId(new byte[10]));
+		mifare.setKeys(Key.a(SECRET_KEY));
+		assertEquals(64, mifare.readSector(UID, 1, buffer, 0));
+		assertEquals(Key.a(SECRET_KEY), mifare.getCachedKey(UID, 1));
+	}
+
+	@Test
+	void stopsWhenReselectFindsAnotherCard() throws Exception {
+		card.keys[1] = NDEF_KEY;
+		card.uid = OTHER_UID;
+
+		assertEquals(Pn532TransferResult.UNDEFINED.getValue(), mifare.readSector(UID, 1, buffer, 0));
+		assertEquals(List.of("auth 4 FFFFFFFFFFFF", "select"), card.log);
+	}
+
+	@Test
+	void writesDataBlocksOnly() throws Exception {
+		Arrays.fill(buffer, (byte) 0x5A);
+
+		assertEquals(48, mifare.writeSector(UID, 1, buffer, 0));
+		assertEquals(List.of("auth 4 FFFFFFFFFFFF", "write 4", "write 5", "write 6"), card.log);
+		assertThrows(IllegalArgumentException.class, () -> mifare.writeBlocks(UID, 7, 1, buffer, 0));
+		assertThrows(IllegalArgumentException.class, () -> mifare.writeBlocks(UID, 0, 1, buffer, 0));
+	}
+
+	@Test
+	void getCachedKeyChecksTheSector() {
+		assertNull(mifare.getCachedKey(UID, Pn532MifareClassic.SECTOR_COUNT_4K - 1));
+		assertThrows(IllegalArgumentException.class, () -> mifare.getCachedKey(UID, Pn532MifareClassic.SECTOR_COUNT_4K));
+		assertThrows(IllegalArgumentException.class, () -> mifare.getCachedKey(UID, -1));
+		assertThrows(IllegalArgumentException.class, () -> mifare.getCachedKey(null, 0));
+	}
+
+	/**
+	 * A MIFARE Classic card with key A per sector. A failed authentication halts it until it's selected again, and blocks
+	 * can only be read or written in the sector last authenticated.
+	 */
+	private static final class Card implements Pn532LoopbackConnection.Responder {
+
+		private static final byte IN_LIST_PASSIVE_TARGET = 0x4A;
+		private static final byte IN_DATA_EXCHANGE = 0x40;
+		private static final byte AUTH_A = 0x60;
+		private static final byte READ = 0x30;
+		private static final byte WRITE = (byte) 0xA0;
+		private static final byte[] OK = { 0x00 };
+		private static final byte[] AUTHENTICATION_ERROR = { 0x14 };
+		private static final byte[] TIMEOUT = { 0x01 };
+
+		final List<String> log = new ArrayList<>();
+		final byte[][] keys = new byte[Pn532MifareClassic.SECTOR_COUNT_4K][];
+		byte[] uid = UID;
+
+		private boolean halted = false;
+		private int authenticatedSector = -1;
+
+		Card() {
+			Arrays.fill(keys, DEFAULT_KEY);
+		}
+
+		@Override
+		public byte[] respond(byte[] command) {
+			if (command[0] == IN_LIST_PASSIVE_TARGET) {
+				log.add("select");
+				halted = false;
+				authenticatedSector = -1;
+				var response = new byte[6 + uid.length];
+				response[0] = 1;
+				response[1] = 1;
+				response[3] = 0x04;
+				response[4] = 0x08;
+				response[5] = (byte) uid.length;
+				System.arraycopy(uid, 0, response, 6, uid.length);
+				return response;
+			} else if (command[0] != IN_DATA_EXCHANGE || halted) {
+				return TIMEOUT;
+			}
+
+			int block = command[3] & 0xFF;
+			int sector = Pn532MifareClassic.getSector(block);
+			switch (command[2]) {
+				case AUTH_A:
+					var key = Arrays.copyOfRange(command, 4, 10);
+					log.add("auth " + block + " " + Pn532SamThread.Pn532SamThreadListener.getUidString(key));
+					if (!Arrays.equals(key, keys[sector]) || !Arrays.equals(command, 10, 14, uid, 0, 4)) {
+						halted = true;
+						authenticatedSector = -1;
+						return AUTHENTICATION_ERROR;
+					}
+					authenticatedSector = sector;
+					return OK;
+				case READ:
+					log.add("read " + block);
+					if (sector != authenticatedSector) {
+						return TIMEOUT;
+					}
+					var response = new byte[1 + Pn532MifareClassic.BLOCK_SIZE];
+					for (int i = 0; i < Pn532MifareClassic.BLOCK_SIZE; i++) {
+						response[1 + i] = (byte) (block * Pn532MifareClassic.BLOCK_SIZE + i);
+					}
+					return response;
+				case WRITE:
+					log.add("write " + block);
+					return sector == authenticatedSector ? OK : TIMEOUT;
+				default:
+					return TIMEOUT;
+			}
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import mk.hsilomedus.pn532.Pn532NdefParser.Result;
+
+class Pn532NdefParserTest {
+
+	private static final int MB = 0x80;
+	private static final int ME = 0x40;
+	private static final int CF = 0x20;
+	private static final int SR = 0x10;
+	private static final int IL = 0x08;
+
+	private static final int OFFSET = Pn532NdefParser.TYPE_2_TLV_OFFSET;
+	private static final byte[] URI_PAYLOAD = { 0x04, 'e', 'x', 'a', 'm', 'p', 'l', 'e', '.', 'c', 'o', 'm' }; // https://
+	private static final byte[] LOCK_CONTROL_TLV = { 0x01, 0x03, (byte) 0xA0, 0x10, 0x44 };
+
+	private final Pn532NdefParser parser = new Pn532NdefParser();
+
+	@Test
+	void readsAShortRecord() {
+		var memory = memory(LOCK_CONTROL_TLV, ndefTlv(record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD)));
+		parser.reset(memory, OFFSET, memory.length);
+
+		assertEquals(Result.RECORD, parser.next());
+		assertTrue(parser.isMessageBegin());
+		assertTrue(parser.isMessageEnd());
+		assertFalse(parser.isChunk());
+		assertEquals(Pn532NdefParser.TNF_WELL_KNOWN, parser.getTnf());
+		assertTrue(parser.isType((byte) 'U'));
+		assertFalse(parser.isType((byte) 'T'));
+		assertEquals(0, parser.getIdLength());
+		assertArrayEquals(URI_PAYLOAD, bytes(parser.getPayload()));
+		assertEquals(URI_PAYLOAD.length, parser.getPayloadLength());
+		assertEquals(URI_PAYLOAD[0], memory[parser.getPayloadOffset()]);
+
+		assertEquals(Result.END, parser.next());
+		assertEquals(Result.END, parser.next());
+	}
+
+	@Test
+	void readsALongRecordInALongTlv() {
+		var payload = new byte[300];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) i;
+		}
+		var memory = memory(ndefTlv(record(MB | ME, Pn532NdefParser.TNF_MEDIA, "application/octet-stream", "id", payload)));
+		assertEquals((byte) 0xFF, memory[OFFSET + 1]); // 3 byte TLV length
+		parser.reset(memory, OFFSET, memory.length);
+
+		assertEquals(Result.RECORD, parser.next());
+		assertEquals(Pn532NdefParser.TNF_MEDIA, parser.getTnf());
+		assertEquals("application/octet-stream", string(parser.getType()));
+		assertEquals("id", string(parser.getId()));
+		assertArrayEquals(payload, bytes(parser.getPayload()));
+		assertEquals(Result.END, parser.next());
+	}
+
+	@Test
+	void readsEveryRecordOfEveryMessage() {
+		var memory = memory(
+				ndefTlv(concat(record(MB | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD),
+						record(ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "T", null, new byte[] { 0x02, 'e', 'n', 'h', 'i' }))),
+				new byte[] { 0x00, 0x00 }, // NULL TLVs between messages
+				ndefTlv(record(MB | ME | SR, Pn532NdefParser.TNF_EMPTY, "", null, new byte[0])));
+		parser.reset(memory, OFFSET, memory.length);
+
+		assertEquals(Result.RECORD, parser.next());
+		assertTrue(parser.isMessageBegin());
+		assertFalse(parser.isMessageEnd());
+		assertTrue(parser.isType((byte) 'U'));
+
+		assertEquals(Result.RECORD, parser.next());
+		assertFalse(parser.isMessageBegin());
+		assertTrue(parser.isMessageEnd());
+		assertTrue(parser.isType((byte) 'T'));
+
+		assertEquals(Result.RECORD, parser.next());
+		assertEquals(Pn532NdefParser.TNF_EMPTY, parser.getTnf());
+		assertEquals(0, parser.getPayloadLength());
+
+		assertEquals(Result.END, parser.next());
+	}
+
+	@Test
+	void endsAtTheEndOfTheBufferWithoutATerminator() {
+		var tlv = ndefTlv(record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD));
+		var memory = new byte[OFFSET + tlv.length];
+		System.arraycopy(tlv, 0, memory, OFFSET, tlv.length);
+		parser.reset(memory, OFFSET, memory.length);
+
+		assertEquals(Result.RECORD, parser.next());
+		assertEquals(Result.END, parser.next());
+	}
+
+	@Test
+	void reportsChunksWithTheTypeOfTheFirst() {
+		var memory = memory(ndefTlv(concat(
+				record(MB | CF | SR, Pn532NdefParser.TNF_MEDIA, "text/plain", null, "Hello, ".getBytes(StandardCharsets.US_ASCII)),
+				record(CF | SR, Pn532NdefParser.TNF_UNCHANGED, "", null, "chunked ".getBytes(StandardCharsets.US_ASCII)),
+				record(SR, Pn532NdefParser.TNF_UNCHANGED, "", null, "world".getBytes(StandardCharsets.US_ASCII)),
+				record(ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD))));
+		parser.reset(memory, OFFSET, memory.length);
+
+		var text = new StringBuilder();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(Result.RECORD, parser.next());
+			assertTrue(parser.isChunk());
+			assertEquals(i == 2, parser.isLastChunk());
+			assertEquals(Pn532NdefParser.TNF_MEDIA, parser.getTnf());
+			assertEquals("text/plain", string(parser.getType()));
+			text.append(string(parser.getPayload()));
+		}
+		assertEquals("Hello, chunked world", text.toString());
+
+		assertEquals(Result.RECORD, parser.next());
+		assertFalse(parser.isChunk());
+		assertFalse(parser.isLastChunk());
+		assertTrue(parser.isType((byte) 'U'));
+		assertEquals(Result.END, parser.next());
+	}
+
+	@Test
+	void rejectsBadChunks() {
+		// A continuation chunk with a type
+		var memory = memory(ndefTlv(concat(
+				record(MB | CF | SR, Pn532NdefParser.TNF_MEDIA, "text/plain", null, new byte[] { 'a' }),
+				record(ME | SR, Pn532NdefParser.TNF_UNCHANGED, "x", null, new byte[] { 'b' }))));
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.RECORD, parser.next());
+		assertEquals(Result.MALFORMED, parser.next());
+
+		// TNF_UNCHANGED outside of a chunked payload
+		memory = memory(ndefTlv(record(MB | ME | SR, Pn532NdefParser.TNF_UNCHANGED, "", null, new byte[] { 'a' })));
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.MALFORMED, parser.next());
+
+		// A chunked payload that doesn't continue with TNF_UNCHANGED
+		memory = memory(ndefTlv(concat(
+				record(MB | CF | SR, Pn532NdefParser.TNF_MEDIA, "text/plain", null, new byte[] { 'a' }),
+				record(ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD))));
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.RECORD, parser.next());
+		assertEquals(Result.MALFORMED, parser.next());
+	}
+
+	@Test
+	void waitsForMoreAndResumes() {
+		var memory = memory(LOCK_CONTROL_TLV, ndefTlv(concat(
+				record(MB | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD),
+				record(ME | IL, Pn532NdefParser.TNF_MEDIA, "text/plain", "1", new byte[40]))));
+		int tlvEnd = OFFSET + LOCK_CONTROL_TLV.length + 2 + (4 + URI_PAYLOAD.length) + (7 + "text/plain".length() + 1 + 40);
+
+		// Nothing read yet, like the README's example with Pn532Ntag.readAll(IntConsumer)
+		parser.reset(memory, OFFSET, 0);
+		assertEquals(Result.NEED_MORE, parser.next());
+
+		// One byte at a time: each record shows up exactly when its last byte is available, and nothing is consumed before
+		int records = 0;
+		for (int available = 1; available <= memory.length; available++) {
+			parser.setAvailable(available);
+			var result = parser.next();
+			if (result == Result.RECORD) {
+				records++;
+				assertEquals(parser.getPayloadOffset() + parser.getPayloadLength(), available);
+				assertEquals(Result.NEED_MORE, parser.next());
+			} else if (available < tlvEnd + 1) {
+				assertEquals(Result.NEED_MORE, result, "Available " + available);
+			} else {
+				assertEquals(Result.END, result, "Available " + available); // The terminator
+				break;
+			}
+		}
+		assertEquals(2, records);
+	}
+
+	@Test
+	void resumesInPagesAfterAnOffsetPastAvailable() {
+		var memory = memory(ndefTlv(record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD)));
+		parser.reset(memory, OFFSET, 4);
+		assertEquals(Result.NEED_MORE, parser.next());
+
+		for (int available = 8; available < memory.length; available += Pn532Ntag.PAGE_SIZE) {
+			parser.setAvailable(available);
+			var result = parser.next();
+			if (result == Result.RECORD) {
+				assertArrayEquals(URI_PAYLOAD, bytes(parser.getPayload()));
+				return;
+			}
+			assertEquals(Result.NEED_MORE, result);
+		}
+		throw new AssertionError("No record.");
+	}
+
+	@Test
+	void rejectsLengthsPastTheEnd() {
+		// TLV longer than the buffer
+		var memory = new byte[OFFSET + 4];
+		memory[OFFSET] = 0x03;
+		memory[OFFSET + 1] = 10;
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.MALFORMED, parser.next());
+		assertEquals(Result.END, parser.next()); // Nothing more can be read
+
+		// TLV header cut off by the end of the buffer
+		memory = new byte[OFFSET + 3];
+		memory[OFFSET] = 0x03;
+		memory[OFFSET + 1] = (byte) 0xFF;
+		memory[OFFSET + 2] = 0x01;
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.MALFORMED, parser.next());
+
+		// Record payload longer than its message
+		var record = record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD);
+		record[2]++;
+		memory = memory(ndefTlv(record));
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.MALFORMED, parser.next());
+
+		// Long record header cut off by the end of its message
+		memory = memory(ndefTlv(new byte[] { (byte) (MB | ME | Pn532NdefParser.TNF_WELL_KNOWN), 1, 0, 0 }));
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.MALFORMED, parser.next());
+
+		// Record ending before its message does is fine up to there, then the leftover isn't a record
+		memory = memory(ndefTlv(concat(record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD), new byte[] { 0x00 })));
+		parser.reset(memory, OFFSET, memory.length);
+		assertEquals(Result.RECORD, parser.next());
+		assertEquals(Result.MALFORMED, parser.next());
+	}
+
+	@Test
+	void stopsAtTheEnd() {
+		var record = record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD);
+		var tlv = ndefTlv(record);
+		var memory = new byte[OFFSET + 3 * tlv.length];
+		System.arraycopy(tlv, 0, memory, OFFSET + tlv.length, tlv.length); // Past the end, left over from a larger tag
+
+		parser.reset(memory, OFFSET, 0);
+		parser.setEnd(OFFSET + tlv.length);
+		parser.setAvailable(OFFSET + tlv.length);
+		assertEquals(Result.END, parser.next());
+
+		// A TLV running past the end
+		System.arraycopy(tlv, 0, memory, OFFSET + 1, tlv.length);
+		parser.reset(memory, OFFSET, 0);
+		parser.setEnd(OFFSET + tlv.length);
+		parser.setAvailable(OFFSET + tlv.length);
+		assertEquals(Result.MALFORMED, parser.next());
+
+		parser.reset(memory, OFFSET, OFFSET + 4);
+		assertThrows(IllegalArgumentException.class, () -> parser.setEnd(OFFSET + 3));
+		assertThrows(IllegalArgumentException.class, () -> parser.setEnd(memory.length + 1));
+		parser.setEnd(OFFSET + 8);
+		assertThrows(IllegalArgumentException.class, () -> parser.setEnd(OFFSET + 9));
+		assertThrows(IllegalArgumentException.class, () -> parser.setAvailable(OFFSET + 9));
+	}
+
+	@Test
+	void malformedBoundsDontWaitForMore() {
+		// Only available up to the TLV header, but the length already runs past the end of the buffer
+		var memory = new byte[OFFSET + 8];
+		memory[OFFSET] = 0x03;
+		memory[OFFSET + 1] = 20;
+		parser.reset(memory, OFFSET, OFFSET + 2);
+		assertEquals(Result.MALFORMED, parser.next());
+	}
+
+	@Test
+	void readsABareMessage() {
+		var message = concat(new byte[] { 0x55, 0x55 }, record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD));
+		var buffer = ByteBuffer.wrap(message);
+		buffer.position(2);
+
+		parser.resetMessage(buffer);
+		assertEquals(Result.RECORD, parser.next());
+		assertArrayEquals(URI_PAYLOAD, bytes(parser.getPayload()));
+		assertEquals(Result.END, parser.next());
+		assertEquals(2, buffer.position());
+	}
+
+	@Test
+	void isReusable() {
+		var first = memory(ndefTlv(record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "U", null, URI_PAYLOAD)));
+		var second = memory(ndefTlv(record(MB | ME | SR, Pn532NdefParser.TNF_WELL_KNOWN, "T", null, new byte[] { 0x02, 'e', 'n' })));
+
+		parser.reset(first, OFFSET, first.length);
+		assertEquals(Result.RECORD, parser.next());
+		parser.reset(second, OFFSET, second.length);
+		assertEquals(Result.RECORD, parser.next());
+		assertTrue(parser.isType((byte) 'T'));
+		parser.reset(first, OFFSET, first.length);
+		assertEquals(Result.RECORD, parser.next());
+		assertTrue(parser.isType((byte) 'U'));
+	}
+
+	@Test
+	void checksArguments() {
+		var memory = new byte[64];
+		assertThrows(IllegalStateException.class, () -> new Pn532NdefParser().next());
+		assertThrows(IllegalArgumentException.class, () -> parser.reset((byte[]) null, 0, 0));
+		assertThrows(IllegalArgumentException.class, () -> parser.reset(memory, -1, 0));
+		assertThrows(IllegalArgumentException.class, () -> parser.reset(memory, 65, 64));
+		assertThrows(IllegalArgumentException.class, () -> parser.reset(memory, 0, 65));
+		assertThrows(IllegalArgumentException.class, () -> parser.reset(memory, 0, -1));
+
+		parser.reset(memory, OFFSET, 32);
+		assertThrows(IllegalArgumentException.class, () -> parser.setAvailable(31));
+		assertThrows(IllegalArgumentException.class, () -> parser.setAvailable(65));
+	}
+
+	// Tag memory: 16 bytes of UID, lock, and capability container, the TLVs, then a Terminator TLV and a few padding bytes
+	private static byte[] memory(byte[]... tlvs) {
+		var memory = new ByteArrayOutputStream();
+		memory.write(new byte[OFFSET], 0, OFFSET);
+		for (var tlv : tlvs) {
+			memory.write(tlv, 0, tlv.length);
+		}
+		memory.write(0xFE);
+		memory.write(new byte[3], 0, 3);
+		return memory.toByteArray();
+	}
+
+	private static byte[] ndefTlv(byte[] message) {
+		if (message.length < 0xFF) {
+			return concat(new byte[] { 0x03, (byte) message.length }, message);
+		}
+		return concat(new byte[] { 0x03, (byte) 0xFF, (byte) (message.length >> 8), (byte) message.length }, message);
+	}
+
+	private static byte[] record(int flags, int tnf, String type, String id, byte[] payload) {
+		var record = new ByteArrayOutputStream();
+		var typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		var idBytes = id == null ? null : id.getBytes(StandardCharsets.US_ASCII);
+
+		record.write(flags | (idBytes == null ? 0 : IL) | tnf);
+		record.write(typeBytes.length);
+		if ((flags & SR) != 0) {
+			record.write(payload.length);
+		} else {
+			record.write(payload.length >>> 24);
+			record.write(payload.length >>> 16);
+			record.write(payload.length >>> 8);
+			record.write(payload.length);
+		}
+		if (idBytes != null) {
+			record.write(idBytes.length);
+		}
+		record.write(typeBytes, 0, typeBytes.length);
+		if (idBytes != null) {
+			record.write(idBytes, 0, idBytes.length);
+		}
+		record.write(payload, 0, payload.length);
+		return record.toByteArray();
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		var bytes = new ByteArrayOutputStream();
+		for (var part : parts) {
+			bytes.write(part, 0, part.length);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		var bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static String string(ByteBuffer buffer) {
+		return new String(bytes(buffer), StandardCharsets.US_ASCII);
+	}
+}
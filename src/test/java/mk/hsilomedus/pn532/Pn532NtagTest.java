@@ -0,0 +1,139 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pi4j.io.i2c.I2C;
+
+import mk.hsilomedus.pn532.Pn532NdefParser.Result;
+
+class Pn532NtagTest {
+
+	private Tag tag;
+	private Pn532<I2C> pn532;
+	private Pn532Ntag<I2C> ntag;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		tag = new Tag();
+		var connection = new Pn532LoopbackConnection();
+		connection.setResponder(tag);
+		pn532 = new Pn532<>(connection);
+		ntag = new Pn532Ntag<>(pn532);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pn532.close();
+	}
+
+	@Test
+	void memoryLengthIsTheVariantsOnceDetected() throws Exception {
+		var progress = new ArrayList<Integer>();
+		tag.reset(Pn532Ntag.Variant.NTAG215, 0x11);
+		assertEquals(135 * Pn532Ntag.PAGE_SIZE, ntag.readAll(available -> {
+			assertEquals(135 * Pn532Ntag.PAGE_SIZE, ntag.getMemoryLength());
+			progress.add(available);
+		}));
+		assertEquals(135 * Pn532Ntag.PAGE_SIZE, ntag.getMemoryLength());
+		assertEquals(135 * Pn532Ntag.PAGE_SIZE, progress.get(progress.size() - 1));
+
+		tag.reset(Pn532Ntag.Variant.NTAG213, 0x22);
+		assertEquals(45 * Pn532Ntag.PAGE_SIZE, ntag.readAll());
+		assertEquals(45 * Pn532Ntag.PAGE_SIZE, ntag.getMemoryLength());
+		assertEquals(0x22, ntag.getMemory()[45 * Pn532Ntag.PAGE_SIZE - 1]);
+		assertEquals(0x11, ntag.getMemory()[45 * Pn532Ntag.PAGE_SIZE]); // Left over from the NTAG215
+	}
+
+	@Test
+	void memoryLengthIsZeroAfterAFailedRead() throws Exception {
+		tag.reset(Pn532Ntag.Variant.NTAG213, 0x11);
+		assertEquals(45 * Pn532Ntag.PAGE_SIZE, ntag.readAll());
+
+		tag.unknown = true;
+		assertTrue(ntag.readAll() < 0);
+		assertEquals(0, ntag.getMemoryLength());
+	}
+
+	@Test
+	void memoryLengthCoversPagesReadFromTheStart() throws Exception {
+		tag.reset(Pn532Ntag.Variant.NTAG213, 0x11);
+		assertEquals(8 * Pn532Ntag.PAGE_SIZE, ntag.readPages(Pn532Ntag.Variant.NTAG213, 0, 8));
+		assertEquals(8 * Pn532Ntag.PAGE_SIZE, ntag.getMemoryLength());
+
+		assertEquals(8 * Pn532Ntag.PAGE_SIZE, ntag.readPages(Pn532Ntag.Variant.NTAG213, 8, 8));
+		assertEquals(0, ntag.getMemoryLength());
+	}
+
+	@Test
+	void parserStopsAtTheMemoryLength() throws Exception {
+		// A larger tag leaves a record right after where the smaller one's memory ends
+		tag.reset(Pn532Ntag.Variant.NTAG215, 0x00);
+		byte[] stale = { 0x03, 0x05, (byte) 0xD1, 0x01, 0x01, 'U', 0x00, (byte) 0xFE };
+		System.arraycopy(stale, 0, tag.memory, 45 * Pn532Ntag.PAGE_SIZE, stale.length);
+		assertEquals(135 * Pn532Ntag.PAGE_SIZE, ntag.readAll());
+
+		// The smaller tag's memory holds nothing but NULL TLVs, so without an end the parser would run into the stale record
+		tag.reset(Pn532Ntag.Variant.NTAG213, 0x00);
+		var parser = new Pn532NdefParser().reset(ntag.getMemory(), Pn532NdefParser.TYPE_2_TLV_OFFSET, 0);
+		ntag.readAll(available -> {
+			parser.setEnd(ntag.getMemoryLength());
+			parser.setAvailable(available);
+		});
+
+		assertEquals(Result.END, parser.next());
+	}
+
+	// An NTAG21x answering GET_VERSION and FAST_READ, with its memory filled with one value
+	private static final class Tag implements Pn532LoopbackConnection.Responder {
+
+		private static final byte IN_LIST_PASSIVE_TARGET = 0x4A;
+		private static final byte IN_COMMUNICATE_THRU = 0x42;
+		private static final byte[] TIMEOUT = { 0x01 };
+
+		final byte[] memory = new byte[Pn532Ntag.Variant.NTAG216.getPages() * Pn532Ntag.PAGE_SIZE];
+		boolean unknown = false;
+		private int size = 0;
+		private int pages = 0;
+
+		void reset(Pn532Ntag.Variant variant, int fill) {
+			pages = variant.getPages();
+			size = variant == Pn532Ntag.Variant.NTAG213 ? 0x0F : variant == Pn532Ntag.Variant.NTAG215 ? 0x11 : 0x13;
+			Arrays.fill(memory, (byte) 0);
+			Arrays.fill(memory, 0, pages * Pn532Ntag.PAGE_SIZE, (byte) fill);
+			unknown = false;
+		}
+
+		@Override
+		public byte[] respond(byte[] command) {
+			if (command[0] == IN_LIST_PASSIVE_TARGET) {
+				return new byte[] { 1, 1, 0x00, 0x44, 0x00, 7, 0x04, 1, 2, 3, 4, 5, 6 };
+			} else if (command[0] != IN_COMMUNICATE_THRU) {
+				return TIMEOUT;
+			}
+
+			switch (command[1]) {
+				case 0x60: // GET_VERSION
+					return new byte[] { 0x00, 0x00, 0x04, unknown ? (byte) 0x7F : 0x04, 0x02, 0x01, 0x00, (byte) size, 0x03 };
+				case 0x3A: // FAST_READ
+					int first = command[2] & 0xFF;
+					int last = command[3] & 0xFF;
+					if (last >= pages || last < first) {
+						return TIMEOUT;
+					}
+					var response = new byte[1 + (last - first + 1) * Pn532Ntag.PAGE_SIZE];
+					System.arraycopy(memory, first * Pn532Ntag.PAGE_SIZE, response, 1, response.length - 1);
+					return response;
+				default:
+					return TIMEOUT;
+			}
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+class Pn532PresenceTrackerTest {
+
+	private static final String READER = "reader";
+	private static final byte[] CARD_1 = { 0x01, 0x02, 0x03, 0x04 };
+	private static final byte[] CARD_2 = { 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B };
+	private static final byte[] CARD_3 = { 0x0C, 0x0D, 0x0E, 0x0F };
+
+	private final List<String> events = new ArrayList<>();
+	private final Pn532SamThreadListener listener = new Pn532SamThreadListener() {
+		@Override
+		public void receiveMessage(String message) {
+		}
+
+		@Override
+		public void uidReceived(String displayName, byte[] uid) {
+			events.add("received " + Pn532SamThreadListener.getUidString(uid));
+		}
+
+		@Override
+		public void cardArrived(String displayName, byte[] uid) {
+			events.add("arrived " + Pn532SamThreadListener.getUidString(uid));
+		}
+
+		@Override
+		public void cardDeparted(String displayName, byte[] uid) {
+			events.add("departed " + Pn532SamThreadListener.getUidString(uid));
+		}
+	};
+
+	private long now;
+
+	@BeforeEach
+	void setUp() {
+		now = 1_000_000_000L;
+	}
+
+	@Test
+	void reportsArrivalOnce() {
+		var tracker = tracker(500, 0, 16);
+
+		tracker.seen(READER, CARD_1, listener);
+		advance(100);
+		tracker.seen(READER, CARD_1.clone(), listener); // Equal contents, not the same array
+		tracker.expire(READER, listener);
+
+		assertEquals(List.of("arrived 01020304", "received 01020304"), events);
+		assertEquals(1, tracker.size());
+	}
+
+	@Test
+	void repeatsReportsEveryInterval() {
+		var tracker = tracker(500, 200, 16);
+
+		tracker.seen(READER, CARD_1, listener);
+		advance(150);
+		tracker.seen(READER, CARD_1, listener);
+		advance(50);
+		tracker.seen(READER, CARD_1, listener);
+		advance(100);
+		tracker.seen(READER, CARD_1, listener);
+		advance(100);
+		tracker.seen(READER, CARD_1, listener);
+
+		assertEquals(List.of("arrived 01020304", "received 01020304", "received 01020304", "received 01020304"), events);
+	}
+
+	@Test
+	void departsAfterTheDelay() {
+		var tracker = tracker(500, 0, 16);
+
+		tracker.seen(READER, CARD_1, listener);
+		advance(499);
+		tracker.expire(READER, listener);
+		assertEquals(1, tracker.size());
+
+		// A missed poll within the delay doesn't count, seeing the card again restarts it
+		tracker.seen(READER, CARD_1, listener);
+		advance(499);
+		tracker.expire(READER, listener);
+		assertEquals(1, tracker.size());
+
+		advance(1);
+		tracker.expire(READER, listener);
+		assertEquals(0, tracker.size());
+		assertEquals(List.of("arrived 01020304", "received 01020304", "departed 01020304"), events);
+
+		// Arrives again after departing
+		events.clear();
+		tracker.seen(READER, CARD_1, listener);
+		assertEquals(List.of("arrived 01020304", "received 01020304"), events);
+	}
+
+	@Test
+	void evictsTheCardSeenLeastRecentlyWhenFull() {
+		var tracker = tracker(500, 0, 2);
+
+		tracker.seen(READER, CARD_1, listener);
+		advance(10);
+		tracker.seen(READER, CARD_2, listener);
+		advance(10);
+		tracker.seen(READER, CARD_1, listener); // CARD_2 is now the least recently seen
+		events.clear();
+
+		tracker.seen(READER, CARD_3, listener);
+
+		assertEquals(List.of("departed 05060708090A0B", "arrived 0C0D0E0F", "received 0C0D0E0F"), events);
+		assertEquals(2, tracker.size());
+	}
+
+	@Test
+	void clearForgetsWithoutDepartures() {
+		var tracker = tracker(500, 0, 16);
+
+		tracker.seen(READER, CARD_1, listener);
+		tracker.clear();
+		assertEquals(0, tracker.size());
+
+		tracker.seen(READER, CARD_1, listener);
+		assertEquals(List.of("arrived 01020304", "received 01020304", "arrived 01020304", "received 01020304"), events);
+	}
+
+	@Test
+	void pollingAPresentCardDoesNotAllocate() throws Exception {
+		var tracker = new Pn532PresenceTracker(60_000, 0, 16);
+		var uid = CARD_2.clone();
+		tracker.seen(READER, uid, listener);
+
+		long allocated = Pn532Allocations.measure(() -> {
+			tracker.seen(READER, uid, listener);
+			tracker.expire(READER, listener);
+		});
+
+		assertTrue(allocated < Pn532Allocations.CYCLES, () -> allocated + " bytes allocated over " + Pn532Allocations.CYCLES + " polls.");
+		assertEquals(2, events.size());
+	}
+
+	@Test
+	void copiesTheUidOnlyWhenACardArrives() {
+		var tracker = tracker(500, 0, 16);
+		var buffer = new byte[16];
+		System.arraycopy(CARD_2, 0, buffer, 3, CARD_2.length);
+
+		tracker.seen(READER, buffer, 3, CARD_2.length, listener);
+		tracker.seen(READER, CARD_2, listener);
+		assertEquals(List.of("arrived 05060708090A0B", "received 05060708090A0B"), events);
+
+		buffer[3] = 0; // Reused by the next poll, the tracker kept its own copy
+		advance(500);
+		tracker.expire(READER, listener);
+		assertEquals("departed 05060708090A0B", events.get(2));
+
+		assertThrows(IllegalArgumentException.class, () -> tracker.seen(READER, buffer, 10, 7, listener));
+		assertThrows(IllegalArgumentException.class, () -> tracker.seen(READER, buffer, 0, 0, listener));
+		assertThrows(IllegalArgumentException.class, () -> tracker.seen(READER, null, listener));
+	}
+
+	@Test
+	void reportingInPlaceDoesNotAllocate() throws Exception {
+		var allowlist = new Pn532UidIndex();
+		allowlist.replace(new Pn532UidIndex.Builder(1).put(CARD_1, 0, CARD_1.length, 7));
+		var allowed = new int[1];
+		var inPlace = new Pn532SamThreadListener() {
+			@Override
+			public void receiveMessage(String message) {
+			}
+
+			@Override
+			public void uidReceived(String displayName, byte[] uid) {
+				throw new AssertionError("Copied.");
+			}
+
+			@Override
+			public void uidReceived(String displayName, byte[] buffer, int offset, int length) {
+				if (allowlist.get(buffer, offset, length) == 7) {
+					allowed[0]++;
+				}
+			}
+		};
+
+		var tracker = tracker(60_000, 1, 16);
+		var buffer = new byte[10];
+		System.arraycopy(CARD_1, 0, buffer, 0, CARD_1.length);
+		tracker.seen(READER, buffer, 0, CARD_1.length, inPlace);
+
+		long allocated = Pn532Allocations.measure(() -> {
+			advance(1); // Past the report interval, so every poll reports
+			tracker.seen(READER, buffer, 0, CARD_1.length, inPlace);
+			tracker.expire(READER, inPlace);
+		});
+
+		assertTrue(allocated < Pn532Allocations.CYCLES, () -> allocated + " bytes allocated over " + Pn532Allocations.CYCLES + " polls.");
+		assertEquals(1 + Pn532Allocations.WARMUP_CYCLES + Pn532Allocations.CYCLES, allowed[0]);
+	}
+
+	private Pn532PresenceTracker tracker(int departureDelay, int reportInterval, int capacity) {
+		return new Pn532PresenceTracker(departureDelay, reportInterval, capacity, () -> now);
+	}
+
+	private void advance(int milliseconds) {
+		now += TimeUnit.MILLISECONDS.toNanos(milliseconds);
+	}
+}
@@ -0,0 +1,51 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+class Pn532ReaderManagerTest {
+
+	@BeforeAll
+	static void initializeContext() {
+		Pn532TestContext.initialize();
+	}
+
+	@Test
+	void closeReturnsWhileATransactionIsWedged() throws Exception {
+		var messages = new CopyOnWriteArrayList<String>();
+		var connection = new Pn532LoopbackConnection();
+		connection.setWedged(true);
+
+		var manager = new Pn532ReaderManager(listener(messages), 1);
+		manager.addReader(connection);
+		connection.awaitWedged();
+
+		// CLOSE_TIMEOUT plus STOP_TIMEOUT, with room to spare
+		assertTimeoutPreemptively(Duration.ofSeconds(10), manager::close);
+		assertTrue(connection.awaitClosed(1, TimeUnit.SECONDS)); // Closed on another thread
+		assertTrue(messages.stream().anyMatch(message -> message.contains("closing its connection from another thread")), messages::toString);
+	}
+
+	private static Pn532SamThreadListener listener(List<String> messages) {
+		return new Pn532SamThreadListener() {
+			@Override
+			public void receiveMessage(String message) {
+				messages.add(message);
+			}
+
+			@Override
+			public void uidReceived(String displayName, byte[] uid) {
+			}
+		};
+	}
+}
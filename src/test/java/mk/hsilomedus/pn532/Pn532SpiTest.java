@@ -0,0 +1,96 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class Pn532SpiTest {
+
+	private static final byte SPI_DATA_WRITE = 0x01;
+
+	// One for the class, MockSpi never reports itself open so close() leaves the CS output in the registry
+	private static Pn532Spi spi;
+
+	@BeforeAll
+	static void setUp() throws Exception {
+		Pn532TestContext.initialize();
+
+		// MockSpi queues what's written and hands it back on read, so the wire bytes can be checked and read back in
+		spi = new Pn532Spi(Pn532TestContext.MOCK_SPI, Pn532TestContext.MOCK_DIGITAL_OUTPUT, 0, Pn532Spi.CS_PIN_CE0);
+		spi.begin();
+	}
+
+	@AfterAll
+	static void tearDown() {
+		spi.close();
+	}
+
+	@Test
+	void framesHoldEveryByteValue() {
+		var seen = new boolean[256];
+		for (byte value : frame(new Random(42), 256)) {
+			seen[value & 0xFF] = true;
+		}
+		for (int i = 0; i < seen.length; i++) {
+			assertTrue(seen[i], "Byte value " + i);
+		}
+	}
+
+	@Test
+	void writesEveryFrameLengthBitReversed() throws Exception {
+		var random = new Random(42);
+		var wire = new byte[Pn532Connection.MAX_FRAME_LENGTH + 1];
+
+		for (int length = 1; length <= Pn532Connection.MAX_FRAME_LENGTH; length++) {
+			var frame = frame(random, length);
+			spi.ioWrite(ByteBuffer.wrap(frame));
+
+			assertEquals(length + 1, spi.io.read(wire, 0, length + 1), "Frame length " + length);
+			assertEquals(reverse(SPI_DATA_WRITE), wire[0], "Frame length " + length);
+			for (int i = 0; i < length; i++) {
+				assertEquals(reverse(frame[i]), wire[i + 1], "Frame length " + length + ", byte " + i);
+			}
+		}
+	}
+
+	@Test
+	void roundTripsEveryFrameLength() throws Exception {
+		var random = new Random(42);
+		var received = new byte[Pn532Connection.MAX_FRAME_LENGTH + 1];
+
+		for (int length = 1; length <= Pn532Connection.MAX_FRAME_LENGTH; length++) {
+			var frame = frame(random, length);
+			var buffer = ByteBuffer.wrap(frame);
+			spi.ioWrite(buffer);
+			assertEquals(0, buffer.remaining(), "Frame length " + length);
+
+			assertTrue(spi.read(received, 0, length + 1, System.nanoTime() + TimeUnit.SECONDS.toNanos(1)), "Frame length " + length);
+			assertEquals(SPI_DATA_WRITE, received[0], "Frame length " + length);
+			assertArrayEquals(frame, Arrays.copyOfRange(received, 1, length + 1), "Frame length " + length);
+		}
+	}
+
+	// A run of consecutive values starting at a different one per length, so frames of 256 bytes or more hold every byte
+	// value and use each entry of the reversal table. Bytes past the run are random.
+	private static byte[] frame(Random random, int length) {
+		var frame = new byte[length];
+		random.nextBytes(frame);
+		for (int i = 0; i < Math.min(length, 256); i++) {
+			frame[i] = (byte) (length + i);
+		}
+		return frame;
+	}
+
+	private static byte reverse(byte value) {
+		return (byte) (Integer.reverse(value & 0xFF) >>> 24);
+	}
+}
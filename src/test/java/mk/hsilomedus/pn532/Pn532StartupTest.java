@@ -0,0 +1,103 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pi4j.io.i2c.I2C;
+
+class Pn532StartupTest {
+
+	private static final byte GET_FIRMWARE_VERSION = 0x02;
+	private static final byte SAM_CONFIGURATION = 0x14;
+	private static final byte RF_CONFIGURATION = 0x32;
+
+	private final List<Byte> commands = new ArrayList<>();
+	private final List<String> messages = new ArrayList<>();
+	private byte[] firmwareVersion = { 0x32, 0x01, 0x06, 0x07 };
+	private boolean rfConfigurationAnswered = true;
+
+	private Pn532<I2C> pn532;
+
+	@BeforeAll
+	static void initializeContext() {
+		Pn532TestContext.initialize();
+	}
+
+	@BeforeEach
+	void setUp() {
+		var connection = new Pn532LoopbackConnection();
+		connection.setResponder(command -> {
+			commands.add(command[0]);
+			if (command[0] == SAM_CONFIGURATION) {
+				connection.setResponding(rfConfigurationAnswered); // Only the ACK for the next command
+			}
+			return command[0] == GET_FIRMWARE_VERSION ? firmwareVersion : new byte[0];
+		});
+		pn532 = new Pn532<>(connection);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pn532.close();
+	}
+
+	@Test
+	void runsEveryStepThenWaitsForTheInitialization() throws Exception {
+		var startup = new Pn532Startup(pn532, 3, messages::add);
+
+		assertEquals(Pn532Startup.INITIALIZE_DELAY, startup.step());
+		assertEquals(List.of(), commands);
+		assertEquals(0, startup.step());
+		assertEquals(0, startup.step());
+		assertFalse(startup.isDone());
+		assertEquals(0, startup.step());
+		assertTrue(startup.isDone());
+
+		assertEquals(List.of(GET_FIRMWARE_VERSION, SAM_CONFIGURATION, RF_CONFIGURATION), commands);
+		assertEquals(List.of("device found."), messages);
+		assertThrows(IllegalStateException.class, startup::step);
+	}
+
+	@Test
+	void keepsTheRetriesForAutoPoll() throws Exception {
+		var startup = new Pn532Startup(pn532, Pn532Startup.KEEP_RETRIES, messages::add);
+		while (!startup.isDone()) {
+			startup.step();
+		}
+
+		assertEquals(List.of(GET_FIRMWARE_VERSION, SAM_CONFIGURATION), commands);
+	}
+
+	@Test
+	void failsOnAMissingFirmwareVersion() throws Exception {
+		firmwareVersion = new byte[4];
+		var startup = new Pn532Startup(pn532, 3, messages::add);
+		startup.step();
+
+		var e = assertThrows(IOException.class, startup::step);
+		assertEquals("getFirmwareVersion() returned " + Pn532TransferResult.INVALID_FW_VERSION, e.getMessage());
+		assertFalse(startup.isDone());
+	}
+
+	@Test
+	void pollsWithTheDefaultRetriesWhenTheyCantBeSet() throws Exception {
+		rfConfigurationAnswered = false;
+		var startup = new Pn532Startup(pn532, 3, messages::add);
+		while (!startup.isDone()) {
+			startup.step();
+		}
+
+		assertEquals(List.of("device found.", "setMaxRetries() failed, polling with the default retries."), messages);
+	}
+}
@@ -0,0 +1,54 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pi4j.io.i2c.I2C;
+
+class Pn532Test {
+
+	private static final byte[] GENERIC_106 = { Pn532Target.TYPE_GENERIC_106 };
+
+	private Pn532LoopbackConnection connection;
+	private Pn532<I2C> pn532;
+
+	@BeforeEach
+	void setUp() {
+		connection = new Pn532LoopbackConnection();
+		pn532 = new Pn532<>(connection);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pn532.close();
+	}
+
+	@Test
+	void endlessAutoPollIsAbortedWhenNothingIsFound() throws Exception {
+		connection.setResponding(false);
+		var targets = new ArrayList<Pn532Target>();
+
+		assertEquals(0, pn532.autoPoll(Pn532.AUTO_POLL_ENDLESS, 1, GENERIC_106, targets));
+		assertEquals(1, connection.getAborts());
+		assertTrue(targets.isEmpty());
+
+		// The PN532 takes commands again
+		connection.setResponding(true);
+		connection.setResponse(new byte[] { 1, 1, 0x00, 0x04, 0x08, 4, 0x12, 0x34, 0x56, 0x78 });
+		assertEquals(4, pn532.readPassiveTargetId(new byte[10]));
+	}
+
+	@Test
+	void finiteAutoPollIsNotAborted() throws Exception {
+		connection.setResponding(false);
+
+		assertEquals(Pn532TransferResult.TIMEOUT.getValue(), pn532.autoPoll(1, 1, GENERIC_106, new ArrayList<>()));
+		assertEquals(0, connection.getAborts());
+	}
+}
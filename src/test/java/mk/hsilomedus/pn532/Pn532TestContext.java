@@ -0,0 +1,26 @@
+package mk.hsilomedus.pn532;
+
+/**
+ * Initializes {@link Pn532ContextHelper} once for every test class in the JVM, since it can only be initialized once. With
+ * pi4j-plugin-mock on the test classpath the mock providers ({@code "mock-digital-input"}, {@code "mock-spi"}, and so on)
+ * are available.
+ */
+final class Pn532TestContext {
+
+	static final String MOCK_DIGITAL_INPUT = "mock-digital-input";
+	static final String MOCK_DIGITAL_OUTPUT = "mock-digital-output";
+	static final String MOCK_SPI = "mock-spi";
+
+	private static boolean initialized = false;
+
+	private Pn532TestContext() {
+		throw new UnsupportedOperationException("Utility class.");
+	}
+
+	static synchronized void initialize() {
+		if (!initialized) {
+			Pn532ContextHelper.initialize();
+			initialized = true;
+		}
+	}
+}
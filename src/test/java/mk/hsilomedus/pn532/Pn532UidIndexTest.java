@@ -0,0 +1,140 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class Pn532UidIndexTest {
+
+	private static final byte[] SINGLE = { 0x04, (byte) 0xA1, 0x5B, (byte) 0xFF };
+	private static final byte[] DOUBLE = { 0x04, 0x12, (byte) 0x80, 0x7A, 0x00, 0x01, (byte) 0xC3 };
+	private static final byte[] TRIPLE = { (byte) 0x88, 0x04, 0x12, 0x34, 0x56, 0x78, (byte) 0x9A, (byte) 0xBC, (byte) 0xDE, (byte) 0xF0 };
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void getsWhatWasPut() {
+		var index = new Pn532UidIndex();
+		assertEquals(Pn532UidIndex.NOT_FOUND, index.get(SINGLE));
+		assertEquals(0, index.size());
+
+		var buffer = new byte[16];
+		System.arraycopy(DOUBLE, 0, buffer, 3, DOUBLE.length);
+		index.replace(new Pn532UidIndex.Builder(3)
+				.put(Pn532Uid.of(SINGLE), 0)
+				.put(buffer, 3, DOUBLE.length, 2)
+				.put(Pn532Uid.of(TRIPLE), 3)
+				.put(SINGLE, 0, SINGLE.length, 1)); // Changes the decision
+
+		assertEquals(3, index.size());
+		assertEquals(1, index.get(SINGLE));
+		assertEquals(2, index.get(buffer, 3, DOUBLE.length));
+		assertEquals(2, index.get(Pn532Uid.of(DOUBLE)));
+		assertEquals(3, index.get(TRIPLE));
+		assertTrue(index.contains(Pn532Uid.of(TRIPLE)));
+		assertTrue(index.contains(SINGLE, 0, SINGLE.length));
+
+		// Same leading bytes, other lengths
+		assertEquals(Pn532UidIndex.NOT_FOUND, index.get(SINGLE, 0, 3));
+		assertEquals(Pn532UidIndex.NOT_FOUND, index.get(buffer, 3, DOUBLE.length + 1));
+		assertFalse(index.contains(TRIPLE, 0, 8));
+	}
+
+	@Test
+	void growsPastItsExpectedSize() {
+		var builder = new Pn532UidIndex.Builder(0);
+		var uid = new byte[7];
+		for (int i = 0; i < 10_000; i++) {
+			write(uid, i);
+			builder.put(uid, 0, uid.length, i);
+		}
+		var index = new Pn532UidIndex();
+		index.replace(builder);
+
+		assertEquals(10_000, index.size());
+		for (int i = 0; i < 10_000; i++) {
+			write(uid, i);
+			assertEquals(i, index.get(uid));
+		}
+		write(uid, 10_000);
+		assertEquals(Pn532UidIndex.NOT_FOUND, index.get(uid));
+	}
+
+	@Test
+	void replaceSwapsTheWholeTable() {
+		var index = new Pn532UidIndex();
+		index.replace(new Pn532UidIndex.Builder(1).put(Pn532Uid.of(SINGLE), 1));
+		var builder = new Pn532UidIndex.Builder(1).put(Pn532Uid.of(DOUBLE), 2);
+		assertEquals(1, index.get(SINGLE)); // Nothing changes until the builder is swapped in
+
+		index.replace(builder);
+		assertEquals(Pn532UidIndex.NOT_FOUND, index.get(SINGLE));
+		assertEquals(2, index.get(DOUBLE));
+		assertEquals(1, index.size());
+
+		assertThrows(IllegalStateException.class, () -> index.replace(builder));
+		assertThrows(IllegalStateException.class, () -> builder.put(Pn532Uid.of(TRIPLE), 3));
+		assertThrows(IllegalArgumentException.class, () -> index.replace(null));
+		assertThrows(IllegalArgumentException.class, () -> new Pn532UidIndex.Builder(1).put(Pn532Uid.of(TRIPLE), -1));
+		assertThrows(IllegalArgumentException.class, () -> new Pn532UidIndex.Builder(-1));
+	}
+
+	@Test
+	void loadsAFile() throws IOException {
+		var file = write("uids.txt",
+				"# Enrolled cards",
+				"",
+				"04A15BFF",
+				"  0412807a0001c3, 2  ",
+				"8804123456789ABCDEF0\t3");
+		var index = new Pn532UidIndex();
+		index.load(file);
+
+		assertEquals(3, index.size());
+		assertEquals(Pn532UidIndex.DEFAULT_DECISION, index.get(SINGLE));
+		assertEquals(2, index.get(DOUBLE));
+		assertEquals(3, index.get(TRIPLE));
+	}
+
+	@Test
+	void keepsTheOldContentsWhenALineIsBad() throws IOException {
+		var index = new Pn532UidIndex();
+		index.load(write("good.txt", "04A15BFF 5"));
+
+		assertLoadFails(index, write("hex.txt", "04A15BFF", "04A15BFG"), "line 2");
+		assertLoadFails(index, write("odd.txt", "04A15BF"), "line 1");
+		assertLoadFails(index, write("long.txt", "0102030405060708090A0B"), "line 1");
+		assertLoadFails(index, write("decision.txt", "04A15BFF", "", "0412807A0001C3 allowed"), "line 3");
+		assertLoadFails(index, write("negative.txt", "04A15BFF -1"), "line 1");
+		assertThrows(IOException.class, () -> index.load(directory.resolve("missing.txt")));
+
+		assertEquals(1, index.size());
+		assertEquals(5, index.get(SINGLE));
+	}
+
+	private void assertLoadFails(Pn532UidIndex index, Path file, String line) {
+		var e = assertThrows(IOException.class, () -> index.load(file));
+		assertTrue(e.getMessage().contains("couldn't parse " + line + " of " + file), e.getMessage());
+	}
+
+	private Path write(String name, String... lines) throws IOException {
+		return Files.write(directory.resolve(name), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void write(byte[] uid, int value) {
+		uid[0] = 0x04;
+		uid[3] = (byte) (value >>> 16);
+		uid[5] = (byte) (value >>> 8);
+		uid[6] = (byte) value;
+	}
+}
@@ -0,0 +1,100 @@
+package mk.hsilomedus.pn532;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mk.hsilomedus.pn532.Pn532SamThread.Pn532SamThreadListener;
+
+class Pn532UidTest {
+
+	private static final byte[] SINGLE = { 0x04, (byte) 0xA1, 0x5B, (byte) 0xFF };
+	private static final byte[] DOUBLE = { 0x04, 0x12, (byte) 0x80, 0x7A, 0x00, 0x01, (byte) 0xC3 };
+	private static final byte[] TRIPLE = { (byte) 0x88, 0x04, 0x12, 0x34, 0x56, 0x78, (byte) 0x9A, (byte) 0xBC, (byte) 0xDE, (byte) 0xF0 };
+
+	@Test
+	void roundTripsEverySize() {
+		for (var bytes : new byte[][] { SINGLE, DOUBLE, TRIPLE }) {
+			var uid = Pn532Uid.of(bytes);
+			var hex = Pn532SamThreadListener.getUidString(bytes);
+
+			assertEquals(bytes.length, uid.length());
+			assertEquals(hex, uid.toString());
+			assertEquals(uid, Pn532Uid.parse(hex));
+			assertEquals(uid, Pn532Uid.parse(hex.toLowerCase()));
+			assertEquals(uid.hashCode(), Pn532Uid.parse(hex).hashCode());
+			assertArrayEquals(bytes, uid.toByteArray());
+			assertArrayEquals(bytes, Pn532Uid.parse(hex).toByteArray());
+			for (int i = 0; i < bytes.length; i++) {
+				assertEquals(bytes[i], uid.get(i));
+			}
+		}
+	}
+
+	@Test
+	void lengthIsPartOfTheUid() {
+		// Zero padding doesn't make a shorter UID equal to a longer one
+		var four = Pn532Uid.of(new byte[] { 1, 2, 3, 4 });
+		var seven = Pn532Uid.of(new byte[] { 1, 2, 3, 4, 0, 0, 0 });
+		var ten = Pn532Uid.of(new byte[10]);
+
+		assertNotEquals(four, seven);
+		assertNotEquals(Pn532Uid.of(new byte[8]), ten);
+		assertFalse(four.equals(seven.toByteArray(), 0, 7));
+	}
+
+	@Test
+	void equalsBytesInPlace() {
+		var buffer = new byte[16];
+		System.arraycopy(TRIPLE, 0, buffer, 5, TRIPLE.length);
+		var uid = Pn532Uid.of(TRIPLE);
+
+		assertTrue(uid.equals(buffer, 5, TRIPLE.length));
+		assertFalse(uid.equals(buffer, 4, TRIPLE.length));
+		assertFalse(uid.equals(buffer, 5, TRIPLE.length - 1));
+		assertEquals(uid, Pn532Uid.of(buffer, 5, TRIPLE.length));
+
+		buffer[14]++; // The last byte, packed in the second word
+		assertFalse(uid.equals(buffer, 5, TRIPLE.length));
+
+		assertTrue(Pn532Uid.of(SINGLE).equals(SINGLE, 0, SINGLE.length));
+		assertTrue(Pn532Uid.of(DOUBLE).equals(DOUBLE, 0, DOUBLE.length));
+	}
+
+	@Test
+	void copiesAndAppends() {
+		var uid = Pn532Uid.of(DOUBLE);
+		var buffer = new byte[9];
+		uid.copyTo(buffer, 2);
+		for (int i = 0; i < DOUBLE.length; i++) {
+			assertEquals(DOUBLE[i], buffer[2 + i]);
+		}
+
+		assertEquals("UID 0412807A0001C3", uid.appendTo(new StringBuilder("UID ")).toString());
+	}
+
+	@Test
+	void checksArguments() {
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.of(null));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.of(new byte[0]));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.of(new byte[11]));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.of(SINGLE, 1, 4));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.of(SINGLE, -1, 2));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.of(SINGLE).equals(null, 0, 4));
+
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.parse(null));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.parse(""));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.parse("123"));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.parse("0123456789ABCDEF012345"));
+		assertThrows(IllegalArgumentException.class, () -> Pn532Uid.parse("0G"));
+
+		var uid = Pn532Uid.of(SINGLE);
+		assertThrows(IndexOutOfBoundsException.class, () -> uid.get(-1));
+		assertThrows(IndexOutOfBoundsException.class, () -> uid.get(4));
+	}
+}
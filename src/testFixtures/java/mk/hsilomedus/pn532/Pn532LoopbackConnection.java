@@ -0,0 +1,264 @@
+package mk.hsilomedus.pn532;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.pi4j.io.i2c.I2C;
+
+/**
+ * In-memory {@link Pn532Connection} that answers every command with an ACK followed by a canned response frame.
+ * Used by the tests and the benchmarks to exercise the frame codec without a board attached.
+ */
+final class Pn532LoopbackConnection extends Pn532Connection<I2C> {
+
+	private static final byte[] ACK = { 0x00, 0x00, (byte) 0xFF, 0x00, (byte) 0xFF, 0x00 };
+	private static final ByteBuffer ACK_FRAME = ByteBuffer.wrap(ACK).asReadOnlyBuffer();
+
+	private final byte[] rx = new byte[1024];
+	private int rxStart = 0;
+	private int rxEnd = 0;
+
+	private byte[] responsePayload = new byte[0];
+	private byte[] responseFrame = null;
+	private byte responseCommand = 0;
+	private Responder responder = null;
+	private boolean responding = true;
+	private int aborts = 0;
+
+	private volatile boolean wedged = false;
+	private final CountDownLatch wedgedWrite = new CountDownLatch(1);
+	private final CountDownLatch closing = new CountDownLatch(1);
+
+	Pn532LoopbackConnection() {
+		this(DEFAULT_PROVIDER_DI, NO_IRQ_PIN);
+	}
+
+	/**
+	 * Waits for the IRQ pin on {@code irqPin} before each read once {@link #begin()} is called, like a real transport.
+	 */
+	Pn532LoopbackConnection(String providerDi, int irqPin) {
+		super("loopback", "loopback", "Loopback", "Loopback", providerDi, irqPin);
+		io = createInterface();
+	}
+
+	/**
+	 * Sets the payload returned (after the ACK) in response to every subsequent command.
+	 */
+	void setResponse(byte[] payload) {
+		responsePayload = payload.clone();
+		responseFrame = null;
+	}
+
+	/**
+	 * Answers every subsequent command with what {@code value} returns for it instead of the payload from
+	 * {@link #setResponse(byte[])}, to simulate a card.
+	 */
+	void setResponder(Responder value) {
+		responder = value;
+	}
+
+	/**
+	 * Stops answering commands after their ACK when false, like a PN532 still busy with one (an endless InAutoPoll).
+	 */
+	void setResponding(boolean value) {
+		responding = value;
+	}
+
+	/**
+	 * @return the number of ACK frames the host sent to abort a command.
+	 */
+	int getAborts() {
+		return aborts;
+	}
+
+	/**
+	 * Makes the next write hang until the connection is closed, ignoring interrupts like a wedged native read.
+	 */
+	void setWedged(boolean value) {
+		wedged = value;
+	}
+
+	/**
+	 * Waits until a write is hanging because of {@link #setWedged(boolean)}.
+	 */
+	void awaitWedged() throws InterruptedException {
+		wedgedWrite.await();
+	}
+
+	boolean awaitClosed(long timeout, TimeUnit unit) throws InterruptedException {
+		return closing.await(timeout, unit);
+	}
+
+	void queueAck() {
+		queue(ACK);
+	}
+
+	/**
+	 * Queues the response frame for {@code command} as if it had just been written.
+	 */
+	void queueResponse(byte command) {
+		lastCommand = command;
+		queue(getResponseFrame(command));
+	}
+
+	@Override
+	protected I2C getInterface() {
+		return io;
+	}
+
+	@Override
+	protected void wakeupInternal() {
+	}
+
+	@Override
+	protected boolean read(byte[] buffer, int startIndex, int length, long deadline) {
+		if (rxEnd - rxStart < length) {
+			return false;
+		}
+
+		System.arraycopy(rx, rxStart, buffer, startIndex, length);
+		rxStart += length;
+		return true;
+	}
+
+	@Override
+	protected void ioWrite(ByteBuffer buffer) {
+		if (wedged) {
+			wedgedWrite.countDown();
+			boolean interrupted = false;
+			while (closing.getCount() > 0) {
+				try {
+					closing.await();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (buffer.equals(ACK_FRAME)) {
+			rxStart = 0;
+			rxEnd = 0;
+			aborts++;
+			return;
+		}
+
+		// PREAMBLE, START_CODE x2, LEN, LCS (or FF FF LENm LENl LCS for an extended frame), TFI, command
+		boolean extended = buffer.get(3) == (byte) 0xFF && buffer.get(4) == (byte) 0xFF;
+		int commandIndex = extended ? 9 : 6;
+		byte command = buffer.get(commandIndex);
+
+		rxStart = 0;
+		rxEnd = 0;
+		queue(ACK);
+		if (!responding) {
+			return;
+		} else if (responder != null) {
+			int length = (extended ? ((buffer.get(5) & 0xFF) << 8) | (buffer.get(6) & 0xFF) : buffer.get(3) & 0xFF) - 1; // Without TFI
+			var bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(commandIndex + i);
+			}
+			queue(buildFrame((byte) (command + 1), responder.respond(bytes)));
+		} else {
+			queue(getResponseFrame(command));
+		}
+	}
+
+	@Override
+	protected boolean ioIsOpen() {
+		return true;
+	}
+
+	@Override
+	protected void ioClose() {
+		closing.countDown();
+	}
+
+	private void queue(byte[] bytes) {
+		if (rxStart == rxEnd) {
+			rxStart = 0;
+			rxEnd = 0;
+		}
+
+		System.arraycopy(bytes, 0, rx, rxEnd, bytes.length);
+		rxEnd += bytes.length;
+	}
+
+	private byte[] getResponseFrame(byte command) {
+		if (responseFrame == null || responseCommand != command) {
+			responseFrame = buildFrame((byte) (command + 1), responsePayload);
+			responseCommand = command;
+		}
+
+		return responseFrame;
+	}
+
+	private static byte[] buildFrame(byte responseCommand, byte[] payload) {
+		int length = payload.length + 2;
+		boolean extended = length > 255;
+		int header = extended ? 8 : 5;
+		var frame = new byte[header + length + 2];
+
+		frame[0] = 0x00;
+		frame[1] = 0x00;
+		frame[2] = (byte) 0xFF;
+		if (extended) {
+			frame[3] = (byte) 0xFF;
+			frame[4] = (byte) 0xFF;
+			frame[5] = (byte) (length >> 8);
+			frame[6] = (byte) length;
+			frame[7] = (byte) -((length >> 8) + length);
+		} else {
+			frame[3] = (byte) length;
+			frame[4] = (byte) -length;
+		}
+		frame[header] = (byte) 0xD5;
+		frame[header + 1] = responseCommand;
+
+		byte sum = (byte) (0xD5 + responseCommand);
+		for (int i = 0; i < payload.length; i++) {
+			frame[header + 2 + i] = payload[i];
+			sum += payload[i];
+		}
+
+		frame[header + 2 + payload.length] = (byte) -sum;
+		frame[header + 3 + payload.length] = 0x00;
+		return frame;
+	}
+
+	/**
+	 * Simulates what's on the other side of the PN532.
+	 */
+	@FunctionalInterface
+	interface Responder {
+		/**
+		 * @param command the command code followed by its parameters.
+		 * @return the response payload, without the response code.
+		 */
+		byte[] respond(byte[] command);
+	}
+
+	private static I2C createInterface() {
+		return (I2C) Proxy.newProxyInstance(I2C.class.getClassLoader(), new Class<?>[] { I2C.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "isOpen":
+					return true;
+				case "close":
+					return null;
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				case "toString":
+					return "Loopback I2C";
+				default:
+					throw new UnsupportedOperationException("Loopback I2C does not support " + method.getName() + "().");
+			}
+		});
+	}
+}